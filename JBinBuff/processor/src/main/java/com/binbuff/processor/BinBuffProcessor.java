@@ -0,0 +1,429 @@
+package com.binbuff.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a serializer for every class annotated with com.binbuff.BinBuff.
+ * The generated class [ClassName]BinBuffSerializer is placed in the package of the annotated class,
+ * it implements ISerializer and IDeserializer with straight line code that writes and reads
+ * every field with the primitive write and read methods of the Buffer.
+ * When the serialized class starts with primitive fields a [ClassName]BinBuffFlyweight is generated as well,
+ * it reads and updates those fields straight from the serialized data.
+ * To use it add the processor module to the annotation processor path of the project, for example: <br>
+ *      annotationProcessor project(':processor')
+ */
+@SupportedAnnotationTypes(BinBuffProcessor.ANNOTATION)
+public class BinBuffProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "com.binbuff.BinBuff";
+    static final String SUFFIX = "BinBuffSerializer";
+    static final String FLYWEIGHT_SUFFIX = "BinBuffFlyweight";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "only classes can be annotated with @BinBuff.");
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    error(element, "cannot write the serializer of " + element + " - " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = this.processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    //region Fields
+
+    /*
+    A field of the annotated class and the code that reads it from 'data' / 'dest' and assigns it.
+     */
+    private static final class Field {
+        final VariableElement element;
+        final String name;
+        final String get;
+        final String setter;
+
+        Field(VariableElement element, String get, String setter) {
+            this.element = element;
+            this.name = element.getSimpleName().toString();
+            this.get = get;
+            this.setter = setter;
+        }
+
+        String get(String object) {
+            return object + "." + this.get;
+        }
+
+        String set(String object, String value) {
+            if (this.setter == null) return object + "." + this.name + " = " + value + ";";
+            return object + "." + this.setter + "(" + value + ");";
+        }
+    }
+
+    /*
+    The class and its superclasses up to (not including) Object, superclasses first.
+     */
+    private static List<TypeElement> hierarchy(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement c = type; c != null && !c.getQualifiedName().contentEquals("java.lang.Object"); ) {
+            hierarchy.add(0, c);
+            TypeMirror superclass = c.getSuperclass();
+            c = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return hierarchy;
+    }
+
+    /*
+    The serialized fields of the class in the order ObjectCodec writes them, fields of superclasses first.
+     */
+    private static List<VariableElement> declaredFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement c : hierarchy(type)) {
+            for (VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private List<Field> fields(TypeElement type) {
+        List<Field> fields = new ArrayList<>();
+        // private fields of superclasses are accessed with getters and setters that may be declared anywhere in the hierarchy.
+        List<ExecutableElement> methods = ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type));
+        for (VariableElement field : declaredFields(type)) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.FINAL)) {
+                error(field, "@BinBuff classes cannot have final fields, mark the field transient to skip it.");
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            if (!modifiers.contains(Modifier.PRIVATE)) {
+                fields.add(new Field(field, name, null));
+                continue;
+            }
+
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            String getter = null, setter = null;
+            for (ExecutableElement method : methods) {
+                if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) continue;
+                String methodName = method.getSimpleName().toString();
+                boolean sameType = this.processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType());
+                if (method.getParameters().isEmpty() && sameType
+                        && (methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized)))
+                    getter = methodName;
+                if (method.getParameters().size() == 1 && methodName.equals("set" + capitalized)
+                        && this.processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType()))
+                    setter = methodName;
+            }
+            if (getter == null || setter == null) {
+                error(field, "private field " + name + " must have a getter (get" + capitalized + " or is" + capitalized +
+                        ") and a setter (set" + capitalized + ").");
+                continue;
+            }
+            fields.add(new Field(field, getter + "()", setter));
+        }
+        return fields;
+    }
+
+    private static int primitiveSize(TypeKind kind) {
+        switch (kind) {
+            case BYTE: case BOOLEAN: return 1;
+            case SHORT: case CHAR: return 2;
+            case INT: case FLOAT: return 4;
+            default: return 8;
+        }
+    }
+
+    private static String readMethod(TypeKind kind) {
+        String name = kind.name().toLowerCase();
+        return "read" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "()";
+    }
+
+    private boolean isAnnotated(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION))
+                return true;
+        }
+        return false;
+    }
+
+    /*
+    The number of bytes an annotated class is serialized into, or -1 if the size depends on the values of its fields.
+     */
+    private int layoutSize(TypeElement type, Set<TypeElement> visiting) {
+        if (!visiting.add(type)) return -1;
+        int size = 0;
+        for (VariableElement field : declaredFields(type)) {
+            TypeMirror fieldType = field.asType();
+            int fieldSize = -1;
+            if (fieldType.getKind().isPrimitive()) fieldSize = primitiveSize(fieldType.getKind());
+            else if (fieldType.getKind() == TypeKind.DECLARED) {
+                TypeElement fieldClass = (TypeElement) ((DeclaredType) fieldType).asElement();
+                if (isAnnotated(fieldClass)) fieldSize = layoutSize(fieldClass, visiting);
+            }
+            if (fieldSize < 0) {
+                size = -1;
+                break;
+            }
+            size += fieldSize;
+        }
+        visiting.remove(type);
+        return size;
+    }
+
+    /*
+    The names of the methods every flyweight already has (like getBuffer and getOffset), accessors cannot use them.
+     */
+    private Set<String> flyweightMethods() {
+        Set<String> names = new HashSet<>();
+        TypeElement flyweight = this.processingEnv.getElementUtils().getTypeElement("com.binbuff.Flyweight");
+        if (flyweight == null) return names;
+        for (ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(flyweight)))
+            if (!method.getModifiers().contains(Modifier.PRIVATE)) names.add(method.getSimpleName().toString());
+        return names;
+    }
+
+    private boolean isSerializable(TypeMirror type) {
+        TypeElement serializable = this.processingEnv.getElementUtils().getTypeElement("com.binbuff.ISerializable");
+        return serializable != null && this.processingEnv.getTypeUtils().isAssignable(type, serializable.asType());
+    }
+
+    //endregion
+
+    //region Generation
+
+    private static String serializerName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement())
+            name = e.getSimpleName() + "_" + name;
+        return name + SUFFIX;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "@BinBuff classes cannot be private.");
+            return;
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            error(type, "nested @BinBuff classes must be static.");
+            return;
+        }
+
+        PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String serializer = serializerName(type);
+
+        StringBuilder write = new StringBuilder();
+        StringBuilder read = new StringBuilder();
+        StringBuilder size = new StringBuilder();
+        StringBuilder accessors = new StringBuilder();
+        int fixedSize = 0;
+        // the offset of the next field in the serialized data, -1 once a field of variable size was written.
+        int offset = 0;
+        Set<String> reserved = flyweightMethods();
+        for (Field field : fields(type)) {
+            TypeMirror fieldType = field.element.asType();
+            String value = field.get("data");
+            if (fieldType.getKind().isPrimitive()) {
+                write.append("        buffer.write(").append(value).append(");\n");
+                read.append("        ").append(field.set("dest", "buffer." + readMethod(fieldType.getKind()))).append("\n");
+                fixedSize += primitiveSize(fieldType.getKind());
+                if (offset >= 0) {
+                    String kind = capitalize(fieldType.getKind().name().toLowerCase());
+                    String name = capitalize(field.name);
+                    String getter = (fieldType.getKind() == TypeKind.BOOLEAN ? "is" : "get") + name;
+                    if (reserved.contains(getter) || reserved.contains("set" + name))
+                        error(field.element, "the flyweight accessor " + getter + " of field " + field.name +
+                                " clashes with a method of Flyweight, rename the field.");
+                    else accessors.append("\n    public ").append(fieldType).append(" ").append(getter).append("() {\n")
+                            .append("        return this.get").append(kind).append("(").append(offset).append(");\n")
+                            .append("    }\n\n")
+                            .append("    public void set").append(name).append("(").append(fieldType).append(" value) {\n")
+                            .append("        this.put").append(kind).append("(").append(offset).append(", value);\n")
+                            .append("    }\n");
+                    offset += primitiveSize(fieldType.getKind());
+                }
+                continue;
+            }
+            int fieldSize = -1;
+            if (fieldType.getKind() == TypeKind.DECLARED && isAnnotated((TypeElement) ((DeclaredType) fieldType).asElement()))
+                fieldSize = layoutSize((TypeElement) ((DeclaredType) fieldType).asElement(), new HashSet<>());
+            offset = offset < 0 || fieldSize < 0 ? -1 : offset + fieldSize;
+
+            if (fieldType.getKind() == TypeKind.ARRAY && ((ArrayType) fieldType).getComponentType().getKind().isPrimitive()) {
+                // arrays are written with their length, -1 marks a null array.
+                TypeKind component = ((ArrayType) fieldType).getComponentType().getKind();
+                String local = field.name + "Array";
+                write.append("        ").append(fieldType).append(" ").append(local).append(" = ").append(value).append(";\n")
+                        .append("        buffer.write(").append(local).append(" == null ? -1 : ").append(local).append(".length);\n")
+                        .append("        if (").append(local).append(" != null) buffer.write(").append(local).append(");\n");
+                read.append("        int ").append(local).append("Length = buffer.readArrayLength(")
+                        .append(primitiveSize(component)).append(");\n")
+                        .append("        ").append(fieldType).append(" ").append(local).append(" = ").append(local)
+                        .append("Length < 0 ? null : new ").append(component.name().toLowerCase()).append("[").append(local).append("Length];\n")
+                        .append("        if (").append(local).append(" != null) buffer.read(").append(local).append(");\n")
+                        .append("        ").append(field.set("dest", local)).append("\n");
+                size.append("        if (").append(value).append(" != null) size += ").append(primitiveSize(component))
+                        .append("L * ").append(value).append(".length;\n");
+                fixedSize += 4;
+            }
+            else if (fieldType.getKind() == TypeKind.DECLARED && fieldType.toString().equals("java.lang.String")) {
+                write.append("        buffer.writeString(").append(value).append(");\n");
+                read.append("        ").append(field.set("dest", "buffer.readString()")).append("\n");
+                size.append("        size += Buffer.stringSize(").append(value).append(");\n");
+            }
+            else if (fieldType.getKind() == TypeKind.DECLARED) {
+                TypeElement fieldClass = (TypeElement) ((DeclaredType) fieldType).asElement();
+                String className = fieldClass.getQualifiedName().toString();
+                String local = field.name + "Value";
+                String writeCall, readCall, sizeCall;
+                if (isAnnotated(fieldClass)) {
+                    String nested = serializerName(fieldClass);
+                    String nestedPackage = this.processingEnv.getElementUtils().getPackageOf(fieldClass).getQualifiedName().toString();
+                    if (!nestedPackage.isEmpty()) nested = nestedPackage + "." + nested;
+                    writeCall = nested + ".INSTANCE.serialize(" + value + ", buffer);";
+                    readCall = nested + ".INSTANCE.deserialize(" + local + ", buffer);";
+                    sizeCall = nested + ".INSTANCE.serializedSize(" + value + ")";
+                }
+                else if (isSerializable(fieldType)) {
+                    writeCall = "buffer.write((com.binbuff.ISerializable) " + value + ");";
+                    readCall = "buffer.read((com.binbuff.ISerializable) " + local + ");";
+                    sizeCall = value + ".serializedSize()";
+                }
+                else {
+                    error(field.element, "unsupported field type " + fieldType + ", fields must be primitives, primitive arrays, " +
+                            "strings, ISerializable or classes annotated with @BinBuff.");
+                    continue;
+                }
+                write.append("        ").append(writeCall).append("\n");
+                read.append("        ").append(className).append(" ").append(local).append(" = ").append(field.get("dest")).append(";\n")
+                        .append("        if (").append(local).append(" == null) {\n")
+                        .append("            ").append(local).append(" = new ").append(className).append("();\n")
+                        .append("            ").append(field.set("dest", local)).append("\n")
+                        .append("        }\n")
+                        .append("        ").append(readCall).append("\n");
+                size.append("        int ").append(local).append("Size = ").append(sizeCall).append(";\n")
+                        .append("        if (").append(local).append("Size < 0) return -1;\n")
+                        .append("        size += ").append(local).append("Size;\n");
+            }
+            else error(field.element, "unsupported field type " + fieldType + ", fields must be primitives, primitive arrays, " +
+                        "strings, ISerializable or classes annotated with @BinBuff.");
+        }
+
+        String qualifiedSerializer = packageName.isEmpty() ? serializer : packageName + "." + serializer;
+        try (Writer out = this.processingEnv.getFiler().createSourceFile(qualifiedSerializer, type).openWriter()) {
+            if (!packageName.isEmpty()) out.write("package " + packageName + ";\n\n");
+            out.write("import com.binbuff.Buffer;\n" +
+                    "import com.binbuff.IDeserializer;\n" +
+                    "import com.binbuff.ISerializer;\n\n" +
+                    "/**\n" +
+                    " * Serializer of " + typeName + ", generated by the BinBuff annotation processor.\n" +
+                    " */\n" +
+                    "public final class " + serializer + " implements ISerializer<" + typeName + ">, IDeserializer<" + typeName + "> {\n\n" +
+                    "    public static final " + serializer + " INSTANCE = new " + serializer + "();\n\n" +
+                    "    /**\n" +
+                    "     * Registers the serializer as the codec of " + type.getSimpleName() + ", so that the generic write and read methods\n" +
+                    "     * of the buffer (and collections and maps of " + type.getSimpleName() + ") use it.\n" +
+                    "     */\n" +
+                    "    public static void register() {\n" +
+                    "        Buffer.registerCodec(" + typeName + ".class, INSTANCE, INSTANCE);\n" +
+                    "    }\n\n" +
+                    "    @Override\n" +
+                    "    public void serialize(" + typeName + " data, Buffer buffer) {\n" +
+                    write +
+                    "    }\n\n" +
+                    "    @Override\n" +
+                    "    public void deserialize(" + typeName + " dest, Buffer buffer) {\n" +
+                    read +
+                    "    }\n\n" +
+                    "    @Override\n" +
+                    "    public int serializedSize(" + typeName + " data) {\n" +
+                    "        long size = " + fixedSize + ";\n" +
+                    size +
+                    "        return size > Integer.MAX_VALUE ? -1 : (int) size;\n" +
+                    "    }\n\n" +
+                    "    @Override\n" +
+                    "    public Class<" + typeName + "> getTypeClass() {\n" +
+                    "        return " + typeName + ".class;\n" +
+                    "    }\n" +
+                    "}\n");
+        }
+
+        if (accessors.length() > 0) generateFlyweight(type, packageName, accessors, offset);
+    }
+
+    /*
+    The flyweight has a getter and a setter for every primitive field at a known offset,
+    and when the whole class is serialized into a known number of bytes that number is its SIZE.
+     */
+    private void generateFlyweight(TypeElement type, String packageName, CharSequence accessors, int size) throws IOException {
+        String typeName = type.getQualifiedName().toString();
+        String flyweight = serializerName(type).replace(SUFFIX, FLYWEIGHT_SUFFIX);
+        String qualifiedFlyweight = packageName.isEmpty() ? flyweight : packageName + "." + flyweight;
+        try (Writer out = this.processingEnv.getFiler().createSourceFile(qualifiedFlyweight, type).openWriter()) {
+            if (!packageName.isEmpty()) out.write("package " + packageName + ";\n\n");
+            out.write("import com.binbuff.Buffer;\n" +
+                    "import com.binbuff.Flyweight;\n\n" +
+                    "/**\n" +
+                    " * Flyweight of " + typeName + ", generated by the BinBuff annotation processor.\n" +
+                    " * Reads and updates the primitive fields at fixed offsets of a serialized " + type.getSimpleName() + " in place.\n" +
+                    " */\n" +
+                    "public final class " + flyweight + " extends Flyweight {\n\n" +
+                    (size < 0 ? "" : "    public static final int SIZE = " + size + ";\n\n") +
+                    "    @Override\n" +
+                    "    public " + flyweight + " wrap(Buffer buffer, int offset) {\n" +
+                    "        super.wrap(buffer, offset);\n" +
+                    "        return this;\n" +
+                    "    }\n" +
+                    accessors +
+                    "}\n");
+        }
+    }
+
+    //endregion
+}
@@ -0,0 +1,263 @@
+import com.binbuff.Buffer;
+import com.binbuff.Flyweight;
+import com.binbuff.IDeserializer;
+import com.binbuff.ISerializer;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProcessorTest {
+
+    private static final String POINT = "package shapes;\n" +
+            "@com.binbuff.BinBuff\n" +
+            "public class Point {\n" +
+            "    public int x;\n" +
+            "    public int y;\n" +
+            "}\n";
+
+    private static final String SHAPE = "package shapes;\n" +
+            "@com.binbuff.BinBuff\n" +
+            "public class Shape {\n" +
+            "    public byte kind;\n" +
+            "    boolean filled;\n" +
+            "    private double area;\n" +
+            "    public Point center;\n" +
+            "    public long[] ids;\n" +
+            "    public short[] empty;\n" +
+            "    public String name;\n" +
+            "    public transient int cached;\n" +
+            "    public static int count;\n" +
+            "    public double getArea() { return area; }\n" +
+            "    public void setArea(double area) { this.area = area; }\n" +
+            "}\n";
+
+    private static final String CIRCLE = "package shapes;\n" +
+            "@com.binbuff.BinBuff\n" +
+            "public class Circle extends Shape {\n" +
+            "    public int radius;\n" +
+            "    private boolean hollow;\n" +
+            "    public boolean isHollow() { return hollow; }\n" +
+            "    public void setHollow(boolean hollow) { this.hollow = hollow; }\n" +
+            "}\n";
+
+    private static final String INVALID = "package shapes;\n" +
+            "@com.binbuff.BinBuff\n" +
+            "public class Invalid {\n" +
+            "    public java.util.List<Integer> values;\n" +
+            "    private int hidden;\n" +
+            "}\n";
+
+    // the flyweight accessors of these fields would be Flyweight's own getOffset and getBuffer.
+    private static final String CLASHING = "package shapes;\n" +
+            "@com.binbuff.BinBuff\n" +
+            "public class Clashing {\n" +
+            "    public int offset;\n" +
+            "    public long buffer;\n" +
+            "    public int length;\n" +
+            "}\n";
+
+    /*
+    Compiles the given sources with the processor and returns the errors of the compilation,
+    the classes are written into 'out'.
+     */
+    private static List<String> compile(Path out, String... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<File> files = new ArrayList<>();
+        Path src = Files.createDirectories(out.resolve("src/shapes"));
+        for (String source : sources) {
+            int start = source.indexOf("class ") + 6;
+            String name = source.substring(start, source.indexOf(' ', start));
+            Path file = src.resolve(name + ".java");
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            files.add(file.toFile());
+        }
+        try (StandardJavaFileManager manager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = Arrays.asList("-d", out.toString(), "-s", out.toString(),
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", "com.binbuff.processor.BinBuffProcessor");
+            compiler.getTask(null, manager, diagnostics, options, null, manager.getJavaFileObjectsFromFiles(files)).call();
+        }
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic.getMessage(null));
+        return errors;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGeneratedSerializer() throws Exception {
+        Path out = Files.createTempDirectory("binbuff");
+        List<String> errors = compile(out, POINT, SHAPE);
+        assert errors.isEmpty() : errors;
+
+        String generated = new String(Files.readAllBytes(out.resolve("shapes/ShapeBinBuffSerializer.java")), StandardCharsets.UTF_8);
+        assert !generated.contains("reflect") && !generated.contains("valueOf") && !generated.contains("Object");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toUri().toURL() }, ProcessorTest.class.getClassLoader())) {
+            Class<?> shapeClass = loader.loadClass("shapes.Shape");
+            Class<?> pointClass = loader.loadClass("shapes.Point");
+            Object serializer = loader.loadClass("shapes.ShapeBinBuffSerializer").getField("INSTANCE").get(null);
+
+            Object point = pointClass.getConstructor().newInstance();
+            pointClass.getField("x").set(point, 3);
+            pointClass.getField("y").set(point, -4);
+            Object shape = shapeClass.getConstructor().newInstance();
+            shapeClass.getField("kind").set(shape, (byte) 2);
+            shapeClass.getMethod("setArea", double.class).invoke(shape, 12.5);
+            shapeClass.getField("center").set(shape, point);
+            shapeClass.getField("ids").set(shape, new long[] { 1, 2, 3 });
+            shapeClass.getField("name").set(shape, "circle");
+            shapeClass.getField("cached").set(shape, 7);
+
+            Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+            ((ISerializer<Object>) serializer).serialize(shape, buf);
+            // kind, filled, area, center, ids (length and data), empty (null), name (length and UTF-8 bytes).
+            int size = 1 + 1 + 8 + 8 + 4 + 3 * 8 + 4 + 1 + 6;
+            assert buf.asByteBuffer().remaining() == size;
+            assert ((ISerializer<Object>) serializer).serializedSize(shape) == size;
+
+            buf.setRead();
+            Object read = shapeClass.getConstructor().newInstance();
+            ((IDeserializer<Object>) serializer).deserialize(read, buf);
+            assert ((IDeserializer<Object>) serializer).getTypeClass() == shapeClass;
+            assert (byte) shapeClass.getField("kind").get(read) == 2;
+            assert (double) shapeClass.getMethod("getArea").invoke(read) == 12.5;
+            Object readPoint = shapeClass.getField("center").get(read);
+            assert (int) pointClass.getField("x").get(readPoint) == 3 && (int) pointClass.getField("y").get(readPoint) == -4;
+            assert Arrays.equals((long[]) shapeClass.getField("ids").get(read), new long[] { 1, 2, 3 });
+            assert shapeClass.getField("empty").get(read) == null;
+            assert shapeClass.getField("name").get(read).equals("circle");
+            assert (int) shapeClass.getField("cached").get(read) == 0;
+
+            // an array length larger than the rest of the data is rejected before the array is allocated.
+            byte[] corrupt = buf.cloneSerialized();
+            corrupt[18] = 0x10;
+            try {
+                ((IDeserializer<Object>) serializer).deserialize(read, new Buffer(corrupt));
+                assert false;
+            } catch (IllegalStateException ignored) { }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSubclass() throws Exception {
+        Path out = Files.createTempDirectory("binbuff");
+        List<String> errors = compile(out, POINT, SHAPE, CIRCLE);
+        assert errors.isEmpty() : errors;
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toUri().toURL() }, ProcessorTest.class.getClassLoader())) {
+            Class<?> circleClass = loader.loadClass("shapes.Circle");
+            Class<?> pointClass = loader.loadClass("shapes.Point");
+            Object serializer = loader.loadClass("shapes.CircleBinBuffSerializer").getField("INSTANCE").get(null);
+
+            Object circle = circleClass.getConstructor().newInstance();
+            circleClass.getField("kind").set(circle, (byte) 3);
+            circleClass.getMethod("setArea", double.class).invoke(circle, 28.25);
+            circleClass.getField("center").set(circle, pointClass.getConstructor().newInstance());
+            circleClass.getField("name").set(circle, "ring");
+            circleClass.getField("radius").set(circle, 3);
+            circleClass.getMethod("setHollow", boolean.class).invoke(circle, true);
+
+            // the fields of the superclass are written first, in the same format as the codec of plain classes.
+            Buffer generated = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+            ((ISerializer<Object>) serializer).serialize(circle, generated);
+            Buffer plain = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+            plain.write(circle);
+            byte[] data = generated.cloneSerialized();
+            assert Arrays.equals(data, plain.cloneSerialized());
+            assert ((ISerializer<Object>) serializer).serializedSize(circle) == data.length;
+
+            generated.setRead();
+            Object read = circleClass.getConstructor().newInstance();
+            ((IDeserializer<Object>) serializer).deserialize(read, generated);
+            byte kind = (byte) circleClass.getField("kind").get(read);
+            double area = (double) circleClass.getMethod("getArea").invoke(read);
+            String name = (String) circleClass.getField("name").get(read);
+            int radius = (int) circleClass.getField("radius").get(read);
+            boolean hollow = (boolean) circleClass.getMethod("isHollow").invoke(read);
+            assert kind == 3 && area == 28.25 && name.equals("ring") && radius == 3 && hollow;
+        }
+    }
+
+    @Test
+    public void testGeneratedFlyweight() throws Exception {
+        Path out = Files.createTempDirectory("binbuff");
+        List<String> errors = compile(out, POINT, SHAPE);
+        assert errors.isEmpty() : errors;
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toUri().toURL() }, ProcessorTest.class.getClassLoader())) {
+            Class<?> pointFlyweight = loader.loadClass("shapes.PointBinBuffFlyweight");
+            Class<?> shapeFlyweight = loader.loadClass("shapes.ShapeBinBuffFlyweight");
+            // the whole point has a fixed size, the shape only up to its ids.
+            assert (int) pointFlyweight.getField("SIZE").get(null) == 8;
+            try {
+                shapeFlyweight.getField("SIZE");
+                assert false;
+            } catch (NoSuchFieldException ignored) { }
+            try {
+                shapeFlyweight.getMethod("getIds");
+                assert false;
+            } catch (NoSuchMethodException ignored) { }
+
+            Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+            buf.write(7L);
+            buf.write((byte) 2);
+            buf.write(true);
+            buf.write(12.5);
+            buf.write(3);
+            buf.write(-4);
+            buf.write(-1);
+
+            Flyweight shape = (Flyweight) shapeFlyweight.getConstructor().newInstance();
+            Object wrapped = shapeFlyweight.getMethod("wrap", Buffer.class, int.class).invoke(shape, buf, 8);
+            assert wrapped == shape;
+            assert (byte) shapeFlyweight.getMethod("getKind").invoke(shape) == 2;
+            assert (boolean) shapeFlyweight.getMethod("isFilled").invoke(shape);
+            assert (double) shapeFlyweight.getMethod("getArea").invoke(shape) == 12.5;
+            shapeFlyweight.getMethod("setArea", double.class).invoke(shape, 0.5);
+
+            Flyweight point = ((Flyweight) pointFlyweight.getConstructor().newInstance()).wrap(buf, 8 + 10);
+            assert (int) pointFlyweight.getMethod("getX").invoke(point) == 3;
+            pointFlyweight.getMethod("setY", int.class).invoke(point, 5);
+
+            buf.setRead();
+            long before = buf.readLong();
+            byte kind = buf.readByte();
+            boolean filled = buf.readBoolean();
+            double area = buf.readDouble();
+            int x = buf.readInt();
+            int y = buf.readInt();
+            int ids = buf.readInt();
+            assert before == 7L && kind == 2 && filled;
+            assert area == 0.5 && x == 3 && y == 5 && ids == -1;
+        }
+    }
+
+    @Test
+    public void testInvalidClass() throws IOException {
+        List<String> errors = compile(Files.createTempDirectory("binbuff"), INVALID);
+        assert errors.size() == 2 : errors;
+        assert errors.get(0).contains("unsupported field type") || errors.get(1).contains("unsupported field type");
+
+        errors = compile(Files.createTempDirectory("binbuff"), CLASHING);
+        assert errors.size() == 2 : errors;
+        assert errors.get(0).contains("getOffset") && errors.get(1).contains("getBuffer") : errors;
+    }
+}
@@ -1,7 +1,19 @@
 import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import com.binbuff.ConcurrentBuffer;
+import com.binbuff.DirectBuffer;
+import com.binbuff.Flyweight;
+import com.binbuff.ISerializable;
+import com.binbuff.Int2IntHashMap;
+import com.binbuff.IntArrayList;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 
 public class Benchmark {
 
@@ -31,6 +43,20 @@ public class Benchmark {
             "\trcd - is read collection in disk\n" +
             "\trmm - is read map in memory\n" +
             "\trmd - is read map in disk\n" +
+            "\toptional extra flags may follow the first eight:\n" +
+            "\ttp - is Player/Game payload throughput in memory\n" +
+            "\twc - is write to a FileChannel compared to a FileOutputStream\n" +
+            "\tcw - is List<Integer>/Map<Integer, Player> write throughput in memory\n" +
+            "\tcr - is List<Player> read throughput compared to reflective construction\n" +
+            "\tpj - is writing and reading plain objects compared to Player.serialize\n" +
+            "\tst - is writeString/readString throughput compared to writing strings as char arrays\n" +
+            "\tdc - is writing and reading repeated strings with the dictionary compared to without it\n" +
+            "\tfr - is reading framed maps with readMap compared to reading into a map that is not presized\n" +
+            "\tpc - is IntArrayList/Int2IntHashMap round trips compared to List<Integer>/Map<Integer, Integer>\n" +
+            "\tcb - is concurrent writes into a ConcurrentBuffer compared to merged per thread buffers and a locked buffer\n" +
+            "\tpw - is writing large arrays with ChunkedBuffer.writeParallel compared to write\n" +
+            "\tri - is reading indexed records with readRecordsParallel compared to reading them one after the other\n" +
+            "\tfw - is filtering serialized games with a Flyweight compared to deserializing them\n" +
             "\tin order to activate on of the benchmarks set the appropriate value to 1, " +
             "for example to activate all the benchmarks use [1, 1, 1, 1, 1, 1, 1, 1]\n" +
             "\tdefault value for log is 2 and for benchmark it is 1000000 (only wm)";
@@ -63,7 +89,7 @@ public class Benchmark {
         }
         BENCHMARK_OPTION = option;
 
-        if(benchmark.length() != 8) {
+        if(benchmark.length() < 8) {
             System.out.println("[ERROR]: invalid benchmarks " + benchmark + "\n" + USAGE);
             System.exit(0);
         }
@@ -79,8 +105,26 @@ public class Benchmark {
         if (benchmark.charAt(5) == '1') benchmarkReadCollection("read collection on disk", Benchmark::benchmarkReadOnDiskCollection);
         if (benchmark.charAt(6) == '1') benchmarkReadMap("read map in memory", Benchmark::benchmarkReadInMemoryMap);
         if (benchmark.charAt(7) == '1') benchmarkReadMap("read map on disk", Benchmark::benchmarkReadOnDiskMap);
+        if (isEnabled(benchmark, 8)) benchmarkPayloadThroughput("payload throughput in memory");
+        if (isEnabled(benchmark, 9)) benchmarkChannelWrite("write to channel on disk");
+        if (isEnabled(benchmark, 10)) benchmarkCollectionWrite("collection write throughput in memory");
+        if (isEnabled(benchmark, 11)) benchmarkCollectionRead("collection read throughput in memory");
+        if (isEnabled(benchmark, 12)) benchmarkPlainObjects("plain object throughput in memory");
+        if (isEnabled(benchmark, 13)) benchmarkStrings("string throughput in memory");
+        if (isEnabled(benchmark, 14)) benchmarkDictionary("string dictionary in memory");
+        if (isEnabled(benchmark, 15)) benchmarkFramedRead("framed map read in memory");
+        if (isEnabled(benchmark, 16)) benchmarkPrimitiveCollections("primitive collections in memory");
+        if (isEnabled(benchmark, 17)) benchmarkConcurrentWrite("concurrent write in memory");
+        if (isEnabled(benchmark, 18)) benchmarkParallelWrite("parallel write in memory");
+        if (isEnabled(benchmark, 19)) benchmarkRecordRead("record read in memory");
+        if (isEnabled(benchmark, 20)) benchmarkFlyweight("flyweight filter in memory");
+
+        if (benchmarkCounter > 0)
+            System.out.println(ANSI_RED + "average time saved - " + overallTimeSaved / benchmarkCounter);
+    }
 
-        System.out.println(ANSI_RED + "average time saved - " + overallTimeSaved / benchmarkCounter);
+    private static boolean isEnabled(String benchmark, int index) {
+        return benchmark.length() > index && benchmark.charAt(index) == '1';
     }
 
     private static double overallTimeSaved = 0;
@@ -104,6 +148,10 @@ public class Benchmark {
         <K, V> double run(Map<K, V> data, String description, Map<K, V> read, Class<K> kType, Class<V> vType);
     }
 
+    private interface bufferAction {
+        void run(Buffer buf);
+    }
+
     private static void benchmarkWrite(String benchTitle, writeBenchmark benchmark) {
         Random r;
         LinkedHashMap<String, Double> results = new LinkedHashMap<>();
@@ -1018,6 +1066,789 @@ public class Benchmark {
         return runTimeImprove;
     }
 
+    /*
+    Unlike the other benchmarks this one does not compare against the JDK serialization,
+    it measures the raw throughput of the buffer on the Player and Game payloads so that
+    changes to the buffer itself can be compared before and after.
+     */
+    private static void benchmarkPayloadThroughput(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        Player[] players = new Player[100000];
+        for (int i = 0; i < players.length; i++) players[i] = new Player(r.nextInt(Integer.MAX_VALUE));
+        Game[] games = new Game[10000];
+        for (int i = 0; i < games.length; i++) games[i] = new Game(1280, 1080, r.nextInt(100));
+
+        runPayloadThroughput("Player[] with 100000 elements", players, new Player[players.length]);
+        runPayloadThroughput("Game[] with 10000 elements", games, new Game[games.length]);
+    }
+
+    private static void runPayloadThroughput(String description, ISerializable[] data, ISerializable[] read) {
+        int warmup = 20, iterations = 100;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW +  description + ANSI_RESET + " (" + iterations + " iterations)...");
+        double minWrite = Double.MAX_VALUE, avgWrite = 0;
+        double minRead = Double.MAX_VALUE, avgRead = 0;
+        int size = 0;
+
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+            double writeRes, readRes;
+
+            Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+            timer.start();
+            buf.write(data);
+            writeRes = timer.stop();
+
+            buf.setRead();
+            Arrays.fill(read, null);
+            timer.start();
+            buf.read(read);
+            readRes = timer.stop();
+
+            if (i < 0) continue;
+            size = buf.asByteBuffer().remaining();
+            minWrite = Math.min(writeRes, minWrite);
+            avgWrite = (avgWrite * i + writeRes) / (i + 1);
+            minRead = Math.min(readRes, minRead);
+            avgRead = (avgRead * i + readRes) / (i + 1);
+        }
+
+        double writeMBs = size / (avgWrite / 1000) / (1024 * 1024);
+        double readMBs = size / (avgRead / 1000) / (1024 * 1024);
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("payload size = " + size + "B\n" +
+                    "write - min = " + minWrite + ", average = " + avgWrite + ", " + ANSI_BLUE + (avgWrite * 1000000 / data.length) + " ns/object, " + writeMBs + " MB/s" + ANSI_RESET + "\n" +
+                    "read - min = " + minRead + ", average = " + avgRead + ", " + ANSI_BLUE + (avgRead * 1000000 / data.length) + " ns/object, " + readMBs + " MB/s" + ANSI_RESET);
+    }
+
+    /*
+    Compares writing a buffer to disk through a FileOutputStream (the path used by benchmarkWriteOnDisk)
+    to writing it with writeTo to a FileChannel, from a heap Buffer and from a DirectBuffer.
+     */
+    private static void benchmarkChannelWrite(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int[] ints = new int[10000000];
+        for (int i = 0; i < ints.length; i++) ints[i] = r.nextInt(Integer.MAX_VALUE);
+        Player[] players = new Player[100000];
+        for (int i = 0; i < players.length; i++) players[i] = new Player(r.nextInt(Integer.MAX_VALUE));
+
+        runChannelWrite("int[] with 10000000 elements", ints);
+        runChannelWrite("Player[] with 100000 elements", players);
+    }
+
+    private static <T> void runChannelWrite(String description, T data) {
+        int warmup = 5, iterations = 50;
+        System.out.println("running Channel benchmark on " + ANSI_YELLOW +  description + ANSI_RESET + " (" + iterations + " iterations)...");
+        double minFOS = Double.MAX_VALUE, avgFOS = 0;
+        double minChannel = Double.MAX_VALUE, avgChannel = 0;
+        double minDirect = Double.MAX_VALUE, avgDirect = 0;
+
+        File file = new File("channel.test");
+        for (int i = -warmup; i < iterations; i++) {
+            try {
+                Timer timer = new Timer();
+                double fosRes, channelRes, directRes;
+
+                timer.start();
+                Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+                buf.write(data);
+                try (FileOutputStream fos = new FileOutputStream(file)) {
+                    fos.write(buf.cloneSerialized());
+                }
+                fosRes = timer.stop();
+
+                timer.start();
+                buf = new Buffer(Buffer.TYPE.DYNAMIC);
+                buf.write(data);
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    buf.writeTo(channel);
+                }
+                channelRes = timer.stop();
+
+                timer.start();
+                buf = new DirectBuffer(Buffer.TYPE.DYNAMIC);
+                buf.write(data);
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    buf.writeTo(channel);
+                }
+                directRes = timer.stop();
+
+                if (i < 0) continue;
+                minFOS = Math.min(fosRes, minFOS);
+                avgFOS = (avgFOS * i + fosRes) / (i + 1);
+                minChannel = Math.min(channelRes, minChannel);
+                avgChannel = (avgChannel * i + channelRes) / (i + 1);
+                minDirect = Math.min(directRes, minDirect);
+                avgDirect = (avgDirect * i + directRes) / (i + 1);
+            }
+            catch (IOException e) { e.printStackTrace(); }
+        }
+        if (!file.delete()) System.out.println("[ERROR]: cannot delete " + file);
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("FileOutputStream - min = " + minFOS + ", average = " + avgFOS + "\n" +
+                    "Buffer.writeTo(FileChannel) - min = " + minChannel + ", average = " + avgChannel + ", " +
+                    ANSI_BLUE + "improvement - " + (((avgFOS / avgChannel) * 100) - 100) + "%" + ANSI_RESET + "\n" +
+                    "DirectBuffer.writeTo(FileChannel) - min = " + minDirect + ", average = " + avgDirect + ", " +
+                    ANSI_BLUE + "improvement - " + (((avgFOS / avgDirect) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    /*
+    Measures the throughput of the generic write on collections and maps,
+    where every element is dispatched to the codec of its class.
+     */
+    private static void benchmarkCollectionWrite(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        List<Integer> ints = new ArrayList<>();
+        for (int i = 0; i < 1000000; i++) ints.add(r.nextInt());
+        Map<Integer, Player> players = new HashMap<>();
+        for (int i = 0; i < 100000; i++) players.put(i, new Player(r.nextInt(Integer.MAX_VALUE)));
+
+        runCollectionWrite("List<Integer> with 1000000 elements", ints, ints.size());
+        runCollectionWrite("Map<Integer, Player> with 100000 mappings", players, players.size());
+    }
+
+    private static <T> void runCollectionWrite(String description, T data, int elements) {
+        int warmup = 20, iterations = 100;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW +  description + ANSI_RESET + " (" + iterations + " iterations)...");
+        double minWrite = Double.MAX_VALUE, avgWrite = 0;
+        int size = 0;
+
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+            Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+            timer.start();
+            buf.write(data);
+            double writeRes = timer.stop();
+
+            if (i < 0) continue;
+            size = buf.asByteBuffer().remaining();
+            minWrite = Math.min(writeRes, minWrite);
+            avgWrite = (avgWrite * i + writeRes) / (i + 1);
+        }
+
+        double writeMBs = size / (avgWrite / 1000) / (1024 * 1024);
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("payload size = " + size + "B\n" +
+                    "write - min = " + minWrite + ", average = " + avgWrite + ", " + ANSI_BLUE + (avgWrite * 1000000 / elements) + " ns/element, " + writeMBs + " MB/s" + ANSI_RESET);
+    }
+
+    /*
+    Compares reading a collection with the buffer (which creates the elements with a cached instantiator)
+    to creating every element through reflection and deserializing it, which is how the buffer used to read collections.
+     */
+    private static void benchmarkCollectionRead(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 1000000; i++) players.add(new Player(r.nextInt(Integer.MAX_VALUE)));
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.write(players);
+
+        int warmup = 10, iterations = 50;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + "List<Player> with 1000000 elements" + ANSI_RESET + " (" + iterations + " iterations)...");
+        double minReflect = Double.MAX_VALUE, avgReflect = 0;
+        double minRead = Double.MAX_VALUE, avgRead = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+            double reflectRes, readRes;
+
+            buf.setRead();
+            List<Player> read = new ArrayList<>(players.size());
+            timer.start();
+            try {
+                for (int j = 0; j < players.size(); j++) {
+                    Player player = Player.class.getDeclaredConstructor().newInstance();
+                    player.deserialize(buf);
+                    read.add(player);
+                }
+            } catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+            reflectRes = timer.stop();
+
+            buf.rewind();
+            read = new ArrayList<>(players.size());
+            timer.start();
+            buf.read(read, Player.class, players.size());
+            readRes = timer.stop();
+            buf.rewind();
+
+            if (i < 0) continue;
+            minReflect = Math.min(reflectRes, minReflect);
+            avgReflect = (avgReflect * i + reflectRes) / (i + 1);
+            minRead = Math.min(readRes, minRead);
+            avgRead = (avgRead * i + readRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("reflective construction - min = " + minReflect + ", average = " + avgReflect + ", " + (avgReflect * 1000000 / players.size()) + " ns/element\n" +
+                    "Buffer.read(Collection, Class, int) - min = " + minRead + ", average = " + avgRead + ", " +
+                    ANSI_BLUE + (avgRead * 1000000 / players.size()) + " ns/element, improvement - " + (((avgReflect / avgRead) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    /*
+    Compares writing and reading Player, which implements ISerializable by hand,
+    to PlainPlayer which has the same fields and is written by the codec the buffer generates for plain classes.
+     */
+    private static void benchmarkPlainObjects(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int amount = 1000000;
+        Player[] players = new Player[amount];
+        PlainPlayer[] plain = new PlainPlayer[amount];
+        for (int i = 0; i < amount; i++) {
+            int num = r.nextInt(Integer.MAX_VALUE);
+            players[i] = new Player(num);
+            plain[i] = new PlainPlayer(num);
+        }
+
+        int warmup = 20, iterations = 100;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + amount + " Player/PlainPlayer objects" + ANSI_RESET + " (" + iterations + " iterations)...");
+        double avgWrite = 0, avgPlainWrite = 0, avgRead = 0, avgPlainRead = 0;
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, amount * 16);
+        Buffer plainBuf = new Buffer(Buffer.TYPE.DYNAMIC, amount * 16);
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+            double writeRes, plainWriteRes, readRes, plainReadRes;
+
+            buf.clear();
+            timer.start();
+            for (Player player : players) buf.write(player);
+            writeRes = timer.stop();
+
+            plainBuf.clear();
+            timer.start();
+            for (PlainPlayer player : plain) plainBuf.write(player);
+            plainWriteRes = timer.stop();
+
+            buf.setRead();
+            timer.start();
+            for (Player player : players) buf.read(player);
+            readRes = timer.stop();
+
+            plainBuf.setRead();
+            timer.start();
+            for (PlainPlayer player : plain) plainBuf.read(player);
+            plainReadRes = timer.stop();
+
+            if (i < 0) continue;
+            avgWrite = (avgWrite * i + writeRes) / (i + 1);
+            avgPlainWrite = (avgPlainWrite * i + plainWriteRes) / (i + 1);
+            avgRead = (avgRead * i + readRes) / (i + 1);
+            avgPlainRead = (avgPlainRead * i + plainReadRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("Player.serialize - write average = " + avgWrite + ", " + (avgWrite * 1000000 / amount) + " ns/object, " +
+                    "read average = " + avgRead + ", " + (avgRead * 1000000 / amount) + " ns/object\n" +
+                    "PlainPlayer - write average = " + avgPlainWrite + ", " + ANSI_BLUE + (avgPlainWrite * 1000000 / amount) + " ns/object" + ANSI_RESET + ", " +
+                    "read average = " + avgPlainRead + ", " + ANSI_BLUE + (avgPlainRead * 1000000 / amount) + " ns/object" + ANSI_RESET + "\n" +
+                    "relative to Player - write " + (((avgPlainWrite / avgWrite) * 100) - 100) + "%, read " + (((avgPlainRead / avgRead) * 100) - 100) + "%");
+    }
+
+    /*
+    Compares writing strings with writeString (UTF-8) to writing them as char arrays with their length,
+    which is how strings had to be written before the buffer supported them, for ASCII strings and for non ASCII strings.
+     */
+    private static void benchmarkStrings(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int amount = 1000000;
+        String[] ascii = new String[amount];
+        String[] unicode = new String[amount];
+        for (int i = 0; i < amount; i++) {
+            char[] a = new char[8 + r.nextInt(24)], u = new char[a.length];
+            for (int j = 0; j < a.length; j++) {
+                a[j] = (char) ('a' + r.nextInt(26));
+                u[j] = (char) (j % 4 == 0 ? 0x400 + r.nextInt(256) : a[j]);
+            }
+            ascii[i] = new String(a);
+            unicode[i] = new String(u);
+        }
+
+        runStrings("1000000 ASCII strings", ascii);
+        runStrings("1000000 strings with non ASCII chars", unicode);
+    }
+
+    private static void runStrings(String description, String[] data) {
+        int warmup = 10, iterations = 50;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + description + ANSI_RESET + " (" + iterations + " iterations)...");
+        double avgChars = 0, avgString = 0, avgCharsRead = 0, avgStringRead = 0;
+        int charsSize = 0, stringSize = 0;
+        char[] chars = new char[64];
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+            double charsRes, stringRes, charsReadRes, stringReadRes;
+
+            Buffer charsBuf = new Buffer(Buffer.TYPE.DYNAMIC);
+            timer.start();
+            for (String s : data) {
+                charsBuf.write(s.length());
+                charsBuf.write(s.toCharArray());
+            }
+            charsRes = timer.stop();
+
+            Buffer stringBuf = new Buffer(Buffer.TYPE.DYNAMIC);
+            timer.start();
+            for (String s : data) stringBuf.writeString(s);
+            stringRes = timer.stop();
+
+            charsBuf.setRead();
+            timer.start();
+            for (int j = 0; j < data.length; j++) {
+                char[] read = new char[charsBuf.readInt()];
+                charsBuf.read(read);
+                chars[0] = new String(read).charAt(0);
+            }
+            charsReadRes = timer.stop();
+
+            stringBuf.setRead();
+            timer.start();
+            for (int j = 0; j < data.length; j++) chars[0] = stringBuf.readString().charAt(0);
+            stringReadRes = timer.stop();
+
+            if (i < 0) continue;
+            charsSize = charsBuf.asByteBuffer().limit();
+            stringSize = stringBuf.asByteBuffer().limit();
+            avgChars = (avgChars * i + charsRes) / (i + 1);
+            avgString = (avgString * i + stringRes) / (i + 1);
+            avgCharsRead = (avgCharsRead * i + charsReadRes) / (i + 1);
+            avgStringRead = (avgStringRead * i + stringReadRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("char[] - size = " + charsSize + "B, write average = " + avgChars + ", read average = " + avgCharsRead + "\n" +
+                    "writeString - size = " + stringSize + "B, write average = " + avgString + ", read average = " + avgStringRead + "\n" +
+                    ANSI_BLUE + "size - " + (((double) stringSize / charsSize) * 100 - 100) + "%, write - " + (((avgChars / avgString) * 100) - 100) +
+                    "% faster, read - " + (((avgCharsRead / avgStringRead) * 100) - 100) + "% faster" + ANSI_RESET);
+    }
+
+    /*
+    Writes and reads events made of two strings, taken from a few hundred distinct strings, and an int,
+    with and without the dictionary.
+     */
+    private static void benchmarkDictionary(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int amount = 1000000;
+        String[] regions = new String[50], tags = new String[250];
+        for (int i = 0; i < regions.length; i++) regions[i] = "region-" + i;
+        for (int i = 0; i < tags.length; i++) tags[i] = "player-tag-" + (1000 + i);
+        String[] eventRegions = new String[amount], eventTags = new String[amount];
+        int[] values = new int[amount];
+        for (int i = 0; i < amount; i++) {
+            // new String instances, like strings that were just parsed.
+            eventRegions[i] = new String(regions[r.nextInt(regions.length)]);
+            eventTags[i] = new String(tags[r.nextInt(tags.length)]);
+            values[i] = r.nextInt();
+        }
+
+        int warmup = 10, iterations = 50;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + amount + " events with repeated strings" + ANSI_RESET + " (" + iterations + " iterations)...");
+        String[] readRegions = new String[amount], readTags = new String[amount];
+        double[] avgWrite = new double[2], avgRead = new double[2];
+        int[] size = new int[2];
+        for (int i = -warmup; i < iterations; i++) {
+            for (int d = 0; d < 2; d++) {
+                Timer timer = new Timer();
+                Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+                buf.setDictionarySize(d == 0 ? 0 : 1024);
+                timer.start();
+                for (int j = 0; j < amount; j++) {
+                    buf.writeString(eventRegions[j]);
+                    buf.writeString(eventTags[j]);
+                    buf.write(values[j]);
+                }
+                double writeRes = timer.stop();
+
+                buf.setRead();
+                timer.start();
+                for (int j = 0; j < amount; j++) {
+                    readRegions[j] = buf.readString();
+                    readTags[j] = buf.readString();
+                    values[j] = buf.readInt();
+                }
+                double readRes = timer.stop();
+
+                if (i < 0) continue;
+                size[d] = buf.asByteBuffer().limit();
+                avgWrite[d] = (avgWrite[d] * i + writeRes) / (i + 1);
+                avgRead[d] = (avgRead[d] * i + readRes) / (i + 1);
+            }
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("without dictionary - size = " + size[0] + "B, write average = " + avgWrite[0] + ", read average = " + avgRead[0] + "\n" +
+                    "with dictionary - size = " + size[1] + "B, write average = " + avgWrite[1] + ", read average = " + avgRead[1] + "\n" +
+                    ANSI_BLUE + "size - " + (((double) size[1] / size[0]) * 100 - 100) + "%, write - " + (((avgWrite[0] / avgWrite[1]) * 100) - 100) +
+                    "% faster, read - " + (((avgRead[0] / avgRead[1]) * 100) - 100) + "% faster" + ANSI_RESET);
+    }
+
+    /*
+    Compares reading a framed Map<Integer, Player> with readMap, which creates the map with the capacity for all
+    the mappings, to reading the same mappings into a new HashMap that grows (and rehashes) as it is filled.
+     */
+    private static void benchmarkFramedRead(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int amount = 1000000;
+        Map<Integer, Player> players = new HashMap<>();
+        while (players.size() < amount) players.put(r.nextInt(), new Player(r.nextInt(Integer.MAX_VALUE)));
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.writeMap(players);
+        buf.setRead();
+
+        int warmup = 10, iterations = 50;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + "Map<Integer, Player> with " + amount + " mappings" + ANSI_RESET + " (" + iterations + " iterations)...");
+        double avgGrowing = 0, avgFramed = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+
+            buf.rewind();
+            System.gc();
+            timer.start();
+            Map<Integer, Player> growing = new HashMap<>();
+            buf.read(growing, Integer.class, Player.class, buf.readVarInt() - 1);
+            double growingRes = timer.stop();
+            if (growing.size() != amount) throw new IllegalStateException("the map was not read correctly.");
+            growing = null;
+
+            buf.rewind();
+            System.gc();
+            timer.start();
+            Map<Integer, Player> framed = buf.readMap(Integer.class, Player.class);
+            double framedRes = timer.stop();
+            if (framed.size() != amount) throw new IllegalStateException("the map was not read correctly.");
+            if (i < 0) continue;
+            avgGrowing = (avgGrowing * i + growingRes) / (i + 1);
+            avgFramed = (avgFramed * i + framedRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("growing HashMap - average = " + avgGrowing + ", " + (avgGrowing * 1000000 / amount) + " ns/mapping\n" +
+                    "readMap - average = " + avgFramed + ", " + ANSI_BLUE + (avgFramed * 1000000 / amount) + " ns/mapping, improvement - " +
+                    (((avgGrowing / avgFramed) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    /*
+    Compares writing and reading back a List<Integer> and a Map<Integer, Integer> (framed, with readList and readMap)
+    to an IntArrayList and an Int2IntHashMap with the same contents.
+     */
+    private static void benchmarkPrimitiveCollections(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        int amount = 1000000;
+        List<Integer> list = new ArrayList<>(amount);
+        IntArrayList intList = new IntArrayList(amount);
+        Map<Integer, Integer> map = new HashMap<>();
+        Int2IntHashMap intMap = new Int2IntHashMap();
+        for (int i = 0; i < amount; i++) {
+            int value = r.nextInt();
+            list.add(value);
+            intList.add(value);
+            map.put(value, i);
+            intMap.put(value, i);
+        }
+
+        runPrimitiveCollection("List<Integer> / IntArrayList with " + amount + " elements", amount,
+                buf -> buf.writeList(list), buf -> buf.readList(Integer.class),
+                buf -> buf.write(intList), buf -> buf.read(new IntArrayList()));
+        runPrimitiveCollection("Map<Integer, Integer> / Int2IntHashMap with " + map.size() + " mappings", map.size(),
+                buf -> buf.writeMap(map), buf -> buf.readMap(Integer.class, Integer.class),
+                buf -> buf.write(intMap), buf -> buf.read(new Int2IntHashMap()));
+    }
+
+    private static void runPrimitiveCollection(String description, int elements,
+                                               bufferAction boxedWrite, bufferAction boxedRead,
+                                               bufferAction primitiveWrite, bufferAction primitiveRead) {
+        int warmup = 10, iterations = 50;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + description + ANSI_RESET + " (" + iterations + " iterations)...");
+        double[] avgWrite = new double[2], avgRead = new double[2];
+        for (int i = -warmup; i < iterations; i++) {
+            for (int p = 0; p < 2; p++) {
+                Timer timer = new Timer();
+                Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+                System.gc();
+                timer.start();
+                (p == 0 ? boxedWrite : primitiveWrite).run(buf);
+                double writeRes = timer.stop();
+                buf.setRead();
+                timer.start();
+                (p == 0 ? boxedRead : primitiveRead).run(buf);
+                double readRes = timer.stop();
+
+                if (i < 0) continue;
+                avgWrite[p] = (avgWrite[p] * i + writeRes) / (i + 1);
+                avgRead[p] = (avgRead[p] * i + readRes) / (i + 1);
+            }
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("boxed - write = " + (avgWrite[0] * 1000000 / elements) + " ns/element, read = " + (avgRead[0] * 1000000 / elements) + " ns/element\n" +
+                    "primitive - write = " + ANSI_BLUE + (avgWrite[1] * 1000000 / elements) + " ns/element" + ANSI_RESET +
+                    ", read = " + ANSI_BLUE + (avgRead[1] * 1000000 / elements) + " ns/element" + ANSI_RESET);
+    }
+
+    /*
+    Writes the same number of players from 1 up to availableProcessors threads in three ways:
+    every thread into its own buffer and the buffers are then merged into one, every thread into a single
+    ConcurrentBuffer, and every thread into a single buffer under a lock.
+     */
+    private static void benchmarkConcurrentWrite(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        int amount = 2000000;
+        Player[] players = new Player[amount];
+        Random r = new Random();
+        for (int i = 0; i < amount; i++) players[i] = new Player(r.nextInt(Integer.MAX_VALUE));
+        int size = amount * players[0].serializedSize();
+        ConcurrentBuffer concurrent = new ConcurrentBuffer(size);
+        Buffer locked = new Buffer(Buffer.TYPE.STATIC, size);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads = threads == maxThreads ? threads + 1 : Math.min(threads * 2, maxThreads)) {
+            int warmup = 5, iterations = 20;
+            System.out.println("running Throughput benchmark on " + ANSI_YELLOW + amount + " players with " + threads + " threads" + ANSI_RESET + " (" + iterations + " iterations)...");
+            int perThread = amount / threads;
+            double avgMerged = 0, avgConcurrent = 0, avgLocked = 0;
+            for (int i = -warmup; i < iterations; i++) {
+                Buffer[] buffers = new Buffer[threads];
+                ByteBuffer merged = ByteBuffer.allocate(size);
+                double mergedRes = runThreads(threads, t -> {
+                    Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+                    for (int j = t * perThread; j < (t + 1) * perThread; j++) buf.write(players[j]);
+                    buffers[t] = buf;
+                }, () -> {
+                    for (Buffer buf : buffers) merged.put(buf.asByteBuffer());
+                });
+
+                concurrent.clear();
+                double concurrentRes = runThreads(threads, t -> {
+                    for (int j = t * perThread; j < (t + 1) * perThread; j++) concurrent.write(players[j]);
+                }, () -> { });
+                if (concurrent.poll().asByteBuffer().remaining() != merged.position())
+                    throw new IllegalStateException("the players were not written correctly.");
+
+                locked.clear(Buffer.TYPE.STATIC);
+                double lockedRes = runThreads(threads, t -> {
+                    for (int j = t * perThread; j < (t + 1) * perThread; j++) {
+                        synchronized (locked) {
+                            locked.write(players[j]);
+                        }
+                    }
+                }, () -> { });
+
+                if (i < 0) continue;
+                avgMerged = (avgMerged * i + mergedRes) / (i + 1);
+                avgConcurrent = (avgConcurrent * i + concurrentRes) / (i + 1);
+                avgLocked = (avgLocked * i + lockedRes) / (i + 1);
+            }
+
+            if (BENCHMARK_OPTION <= 1)
+                System.out.println("per thread buffers and merge - average = " + avgMerged + ", " + (avgMerged * 1000000 / amount) + " ns/player\n" +
+                        "locked buffer - average = " + avgLocked + ", " + (avgLocked * 1000000 / amount) + " ns/player\n" +
+                        "ConcurrentBuffer - average = " + avgConcurrent + ", " + ANSI_BLUE + (avgConcurrent * 1000000 / amount) + " ns/player" + ANSI_RESET);
+        }
+    }
+
+    /*
+    Writes a large Player[] and a large double[] into a ChunkedBuffer with write and with writeParallel.
+     */
+    private static void benchmarkParallelWrite(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        Random r = new Random();
+        Player[] players = new Player[2000000];
+        for (int i = 0; i < players.length; i++) players[i] = new Player(r.nextInt(Integer.MAX_VALUE));
+        double[] doubles = new double[10000000];
+        for (int i = 0; i < doubles.length; i++) doubles[i] = r.nextDouble();
+
+        runParallelWrite("Player[] with " + players.length + " elements", players, players.length);
+        runParallelWrite("double[] with " + doubles.length + " elements", doubles, doubles.length);
+    }
+
+    private static void runParallelWrite(String description, Object data, int elements) {
+        int warmup = 5, iterations = 20;
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + description + ANSI_RESET + " with " +
+                ForkJoinPool.getCommonPoolParallelism() + " worker threads (" + iterations + " iterations)...");
+        double avgSequential = 0, avgParallel = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+
+            ChunkedBuffer sequential = new ChunkedBuffer();
+            System.gc();
+            timer.start();
+            sequential.write(data);
+            double sequentialRes = timer.stop();
+            long size = sequential.getSize();
+            sequential = null;
+
+            ChunkedBuffer parallel = new ChunkedBuffer();
+            System.gc();
+            timer.start();
+            parallel.writeParallel(data);
+            double parallelRes = timer.stop();
+            if (parallel.getSize() != size) throw new IllegalStateException("the data was not written correctly.");
+
+            if (i < 0) continue;
+            avgSequential = (avgSequential * i + sequentialRes) / (i + 1);
+            avgParallel = (avgParallel * i + parallelRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("write - average = " + avgSequential + ", " + (avgSequential * 1000000 / elements) + " ns/element\n" +
+                    "writeParallel - average = " + avgParallel + ", " + ANSI_BLUE + (avgParallel * 1000000 / elements) + " ns/element, improvement - " +
+                    (((avgSequential / avgParallel) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    /*
+    Writes players as indexed records and reads them back with read and with readRecordsParallel.
+     */
+    private static void benchmarkRecordRead(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        int amount = 2000000, warmup = 5, iterations = 20;
+        Random r = new Random();
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (int i = 0; i < amount; i++) buf.writeRecord(new Player(r.nextInt(Integer.MAX_VALUE)));
+        buf.writeRecordIndex();
+        buf.setRead();
+
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + amount + " players" + ANSI_RESET + " with " +
+                ForkJoinPool.getCommonPoolParallelism() + " worker threads (" + iterations + " iterations)...");
+        double avgSequential = 0, avgParallel = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+
+            buf.rewind();
+            System.gc();
+            timer.start();
+            ArrayList<Player> sequential = new ArrayList<>(amount);
+            buf.read(sequential, Player.class, amount);
+            double sequentialRes = timer.stop();
+            sequential = null;
+
+            buf.rewind();
+            System.gc();
+            timer.start();
+            ArrayList<Player> parallel = buf.readRecordsParallel(Player.class);
+            double parallelRes = timer.stop();
+            if (parallel.size() != amount) throw new IllegalStateException("the records were not read correctly.");
+
+            if (i < 0) continue;
+            avgSequential = (avgSequential * i + sequentialRes) / (i + 1);
+            avgParallel = (avgParallel * i + parallelRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("read - average = " + avgSequential + ", " + (avgSequential * 1000000 / amount) + " ns/player\n" +
+                    "readRecordsParallel - average = " + avgParallel + ", " + ANSI_BLUE + (avgParallel * 1000000 / amount) + " ns/player, improvement - " +
+                    (((avgSequential / avgParallel) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    // reads the width of a serialized Game, which is written before anything else.
+    private static class GameView extends Flyweight {
+        int getWidth() { return this.getInt(0); }
+    }
+
+    /*
+    Writes games as indexed records and counts the wide ones, once by deserializing every game
+    and once by reading only the width of every game through a flyweight.
+     */
+    private static void benchmarkFlyweight(String benchTitle) {
+        System.out.println(ANSI_CYAN + "running " + benchTitle + " benchmark..." + ANSI_RESET);
+
+        int amount = 1000000, warmup = 5, iterations = 20;
+        Random r = new Random();
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (int i = 0; i < amount; i++) buf.writeRecord(new Game(r.nextInt(1920), r.nextInt(1080), 5));
+        buf.writeRecordIndex();
+        buf.setRead();
+        int[] positions = buf.getRecordPositions();
+
+        System.out.println("running Throughput benchmark on " + ANSI_YELLOW + amount + " games" + ANSI_RESET + " (" + iterations + " iterations)...");
+        double avgDeserialize = 0, avgFlyweight = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            Timer timer = new Timer();
+
+            buf.rewind();
+            System.gc();
+            timer.start();
+            ArrayList<Game> games = new ArrayList<>(amount);
+            buf.read(games, Game.class, amount);
+            int deserialized = 0;
+            for (Game game : games) if (game.getWidth() > 960) deserialized++;
+            double deserializeRes = timer.stop();
+            games = null;
+
+            System.gc();
+            timer.start();
+            GameView view = new GameView();
+            int flyweight = 0;
+            for (int position : positions) {
+                view.wrap(buf, position);
+                if (view.getWidth() > 960) flyweight++;
+            }
+            double flyweightRes = timer.stop();
+            if (flyweight != deserialized) throw new IllegalStateException("the games were not filtered correctly.");
+
+            if (i < 0) continue;
+            avgDeserialize = (avgDeserialize * i + deserializeRes) / (i + 1);
+            avgFlyweight = (avgFlyweight * i + flyweightRes) / (i + 1);
+        }
+
+        if (BENCHMARK_OPTION <= 1)
+            System.out.println("deserialize - average = " + avgDeserialize + ", " + (avgDeserialize * 1000000 / amount) + " ns/game\n" +
+                    "Flyweight - average = " + avgFlyweight + ", " + ANSI_BLUE + (avgFlyweight * 1000000 / amount) + " ns/game, improvement - " +
+                    (((avgDeserialize / avgFlyweight) * 100) - 100) + "%" + ANSI_RESET);
+    }
+
+    private interface threadBenchmark {
+        void run(int thread);
+    }
+
+    /*
+    Runs the benchmark on the given number of threads at once and then runs 'after' on the calling thread,
+    returns the time from starting the threads until 'after' is done, not including creating the threads.
+     */
+    private static double runThreads(int threads, threadBenchmark benchmark, Runnable after) {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                benchmark.run(id);
+            });
+            workers[t].start();
+        }
+
+        System.gc();
+        Timer timer = new Timer();
+        timer.start();
+        start.countDown();
+        try {
+            for (Thread worker : workers) worker.join();
+        } catch (InterruptedException e) { e.printStackTrace(); }
+        after.run();
+        return timer.stop();
+    }
+
     private static class Timer {
 
         private long startTime = System.nanoTime();
@@ -31,12 +31,21 @@ public class Game  implements ISerializable, Comparable<Game>, Serializable {
         }
     }
 
+    public int getWidth() {
+        return width;
+    }
+
     @Override
     public void serialize(Buffer buffer) {
         buffer.write(width, height, player);
         buffer.write((short) enemies.length, enemies);
     }
 
+    @Override
+    public int serializedSize() {
+        return 4 + 4 + player.serializedSize() + 2 + enemies.length * player.serializedSize();
+    }
+
     @Override
     public void deserialize(Buffer buffer) {
         this.width = buffer.readInt();
@@ -0,0 +1,44 @@
+import java.util.Objects;
+
+/**
+ * The same fields as Player without implementing ISerializable,
+ * it is written by the buffer through the codec the buffer generates for plain classes.
+ */
+public class PlainPlayer {
+
+    public int playerNum;
+
+    private boolean isAlive;
+    private float health;
+    private int strength;
+
+    public PlainPlayer()
+    {
+        this.playerNum = 0;
+        this.isAlive = false;
+        this.health = 0;
+        this.strength = 0;
+    }
+
+    public PlainPlayer(int playerNum)
+    {
+        this.playerNum = playerNum;
+        this.isAlive = true;
+        this.health = 100 * playerNum;
+        this.strength = 10 * playerNum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof PlainPlayer)) return false;
+        return this.playerNum == ((PlainPlayer) o).playerNum
+                && this.isAlive == ((PlainPlayer) o).isAlive
+                && this.health == ((PlainPlayer) o).health
+                && this.strength == ((PlainPlayer) o).strength;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.playerNum, this.isAlive, this.health, this.strength);
+    }
+}
@@ -33,6 +33,11 @@ public class Player implements ISerializable, Comparable<Player>, Serializable {
         buffer.write(playerNum, isAlive, health, strength);
     }
 
+    @Override
+    public int serializedSize() {
+        return 4 + 1 + 4 + 4;
+    }
+
     @Override
     public void deserialize(Buffer buffer) {
         this.playerNum = buffer.readInt();
@@ -0,0 +1,32 @@
+package com.binbuff;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the BinBuff annotation processor (the 'processor' module) generates a serializer
+ * at compile time, the generated class is named [ClassName]BinBuffSerializer, it is placed in the same package
+ * and implements both ISerializer and IDeserializer for the annotated class, for example: <br>
+ *      {@literal @}BinBuff                                              <br>
+ *      public class Player {                                           <br>
+ *          int playerNum;                                              <br>
+ *          private float health; // accessed through getHealth/setHealth. <br>
+ *      }                                                               <br>
+ *      buf.write(PlayerBinBuffSerializer.INSTANCE, player);            <br>
+ *
+ * All the instance fields of the class that are not transient are written in the order they are declared,
+ * a field may be a primitive, a primitive array, a String, an ISerializable or another class annotated with BinBuff.
+ * Private fields are accessed through their getter and setter (getX/isX and setX).
+ * The generated code calls the primitive write and read methods directly, without reflection, boxing or varargs.
+ * When the class starts with primitive fields a [ClassName]BinBuffFlyweight is generated as well, it reads and updates
+ * the primitive fields at fixed offsets of a serialized object without deserializing it, see Flyweight.
+ * note: objects referenced by the fields must not be null when they are written, arrays and strings may be null.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface BinBuff {
+}
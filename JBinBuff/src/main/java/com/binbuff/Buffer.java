@@ -2,23 +2,34 @@ package com.binbuff;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.BufferOverflowException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The buffer stores serialized data,
- * it contains a byte array with all the serialized data that was written to it.
+ * it contains a ByteBuffer with all the serialized data that was written to it,
+ * the Buffer class keeps the data on the java heap while a DirectBuffer keeps it in direct (off-heap) memory.
  * A buffer may be in one of two modes: <br>
  * * WRITE - allows only writes to the buffer. <br>
  * * READ - allows only reads from the buffer. <br>
- * note: switching between WRITE and READ modes is relatively costly
- * thus it is recommended to structure the use of the buffer so that reading and writing do not overlap,
+ * Switching between WRITE and READ modes does not copy the data, the buffer only marks where the data ends,
+ * still it is recommended to structure the use of the buffer so that reading and writing do not overlap,
  * for example the code should look something like:     <br>
  *      Buffer buf = new Buffer();                      <br>
  *      ------some other operations-----                <br>
@@ -33,18 +44,49 @@ import java.util.Map;
  * * DYNAMIC - will allocate new space to the buffer if needed.
  * * STATIC - will not allocate new space, and throw an exception if a write is attempted
  *   when there isn't enough space.
+ *
+ * Primitives are stored in BIG_ENDIAN byte order unless a different ByteOrder is given when the
+ * buffer is constructed, data must be read using the same byte order it was written with.
+ * Using ByteOrder.nativeOrder() avoids swapping bytes on every read and write and allows primitive
+ * arrays to be transferred as a straight memory copy.
  */
 public class Buffer {
 
     public enum TYPE { DYNAMIC, STATIC }
     public enum MODE { READ, WRITE }
 
-    private byte[] data;
+    /**
+     * The largest capacity a buffer can have, some JVMs cannot allocate arrays that are any larger.
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private ByteBuffer storage;
+    private ByteOrder order;
     private int nextPointer;
 
     private TYPE type;
     private MODE mode;
 
+    private IGrowthPolicy growthPolicy = IGrowthPolicy.DOUBLING;
+    private int maxCapacity = MAX_CAPACITY;
+    // the end of the space reserved by the last size hint, writes that start before it are part of the hinted write.
+    private long reservedEnd;
+
+    // the maximal number of strings in the dictionary, 0 if strings are not dictionary encoded.
+    private int dictionarySize;
+    // the index of every string written into the dictionary, and the strings read from it in the order they were read.
+    private HashMap<String, Integer> writtenStrings;
+    private ArrayList<String> readStrings;
+    // set by readStringLength when the string that follows should be added to the dictionary.
+    private boolean indexString;
+
+    // the last int of a buffer that ends with a record index ("BBRI").
+    private static final int RECORD_INDEX_MAGIC = 0x42425249;
+    // the smallest number of records readRecordsParallel reads as a separate range.
+    private static final int MIN_PARALLEL_RECORDS = 1024;
+    // the positions of the records written since the last record index, null if no record was written.
+    private IntArrayList recordPositions;
+
     /**
      * Allocate 'size' free bytes for the buffer.
      * if there are 'size' free bytes then nothing is changed.
@@ -53,15 +95,248 @@ public class Buffer {
      * @throws IllegalStateException if additional allocation is attempted on a STATIC buffer.
      */
     private void alloc_buffer(int size) throws IllegalStateException {
-        if (this.data.length - this.nextPointer < size) {
-            if (this.type == TYPE.STATIC)
-                throw new IllegalStateException("cannot change size of STATIC buffer.");
-            byte[] arr = null;
-            int length;
-            if (size > this.data.length * 2) length = this.nextPointer + size;
-            else length = this.data.length * 2;
-            this.data = Arrays.copyOf(this.data, length);
+        if (this.storage.capacity() - this.nextPointer < size)
+            this.overflow(size);
+    }
+
+    /*
+    The size of an array write is computed in long, an array too large for any buffer
+    fails here instead of overflowing into a small (or negative) size.
+     */
+    private void alloc_buffer(long size) throws IllegalStateException {
+        if (size > MAX_CAPACITY)
+            throw new IllegalStateException("cannot write " + size + " bytes, the maximal capacity is " + MAX_CAPACITY + " bytes.");
+        this.alloc_buffer((int) size);
+    }
+
+    /**
+     * Called when a write needs 'size' bytes but there are fewer free bytes left in the storage.
+     * The Buffer allocates larger storage if it is DYNAMIC, subclasses that move the written data
+     * out of the storage override this method, after it returns at least 'size' bytes must be writable
+     * starting from the read/write pointer.
+     * @param size number of bytes that need to be writable.
+     * @throws IllegalStateException if additional allocation is attempted on a STATIC buffer.
+     */
+    void overflow(int size) throws IllegalStateException {
+        if (this.type == TYPE.STATIC)
+            throw new IllegalStateException("cannot change size of STATIC buffer.");
+        long required = (long) this.nextPointer + size;
+        this.checkCapacity(required);
+        int capacity = this.growthPolicy.newCapacity(this.storage.capacity(), (int) required);
+        this.resize(Math.min(this.maxCapacity, Math.max(capacity, (int) required)));
+    }
+
+    /**
+     * Called before a write of a known size so that the space for all of it is allocated at once,
+     * if the Buffer is DYNAMIC and there is not enough free space it grows to exactly the needed capacity
+     * when the write is at least as large as the current capacity, and by its growth policy otherwise
+     * (so that many small writes do not copy the storage every time),
+     * subclasses that move the written data out of the storage override this method to do nothing.
+     * The size is only a hint, writes still make sure there is enough space on their own.
+     * @param size number of bytes that are about to be written, a negative size means the size is not known.
+     * @throws IllegalStateException if the buffer would grow past its maximal capacity.
+     */
+    void reserve(long size) throws IllegalStateException {
+        if (size <= 0 || this.type == TYPE.STATIC || this.mode == MODE.READ) return;
+        long required = this.nextPointer + size;
+        if (this.storage.capacity() < required) {
+            this.checkCapacity(required);
+            int capacity = this.storage.capacity();
+            if (size < capacity) capacity = Math.min(this.maxCapacity, this.growthPolicy.newCapacity(capacity, (int) required));
+            this.resize(Math.max(capacity, (int) required));
         }
+        this.reservedEnd = required;
+    }
+
+    /*
+    Nested writes (an ISerializable writing its fields, the elements of a collection) are covered by the hint
+    of the write that contains them, so they do not compute hints of their own.
+     */
+    private boolean isReserved() {
+        return this.nextPointer < this.reservedEnd;
+    }
+
+    /*
+    Fails before anything is allocated when the buffer cannot hold 'required' bytes.
+     */
+    private void checkCapacity(long required) throws IllegalStateException {
+        if (required > this.maxCapacity)
+            throw new IllegalStateException("cannot grow the buffer to " + required + " bytes, the maximal capacity is " + this.maxCapacity + " bytes.");
+    }
+
+    /**
+     * Allocates the storage for a buffer of the given capacity.
+     * Buffer allocates its storage on the java heap, subclasses override this method
+     * in order to keep the data elsewhere.
+     * @param capacity the capacity of the storage.
+     * @return a new ByteBuffer with the given capacity.
+     */
+    ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Replaces the storage of the buffer.
+     * The buffer accesses multi-byte primitives through the storage in the buffer's byte order,
+     * this lets the JIT compile each primitive read or write into a single wide memory access
+     * instead of a sequence of single byte accesses.
+     * @param storage the new storage of the buffer.
+     */
+    private void setStorage(ByteBuffer storage) {
+        this.storage = storage.order(this.order);
+    }
+
+    /**
+     * Replaces the storage of the buffer and moves the read/write pointer to the given index in the new storage,
+     * this is used by subclasses that bring data into the buffer on demand.
+     * @param storage the new storage of the buffer.
+     * @param pointer the index of the read/write pointer in the new storage.
+     */
+    void setStorage(ByteBuffer storage, int pointer) {
+        this.setStorage(storage);
+        this.nextPointer = pointer;
+    }
+
+    /**
+     * Get the storage of the buffer, the data of the buffer is the storage's contents up to
+     * the read/write pointer while in WRITE mode and up to the storage's limit while in READ mode.
+     * @return the storage of the buffer.
+     */
+    ByteBuffer getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * Get the index of the read/write pointer in the buffer's storage.
+     * @return the index of the read/write pointer.
+     */
+    int getPointer() {
+        return this.nextPointer;
+    }
+
+    /**
+     * Moves the read/write pointer to the given index in the buffer's storage without any checks.
+     * @param pointer the index of the read/write pointer.
+     */
+    void setPointer(int pointer) {
+        this.nextPointer = pointer;
+    }
+
+    /**
+     * Get the position of the read/write pointer, that is the number of bytes of data before it,
+     * subclasses that move data out of the storage or bring it in on demand override this method.
+     * @return the position of the read/write pointer.
+     */
+    long getPosition() {
+        return this.nextPointer;
+    }
+
+    /**
+     * Moves the read/write pointer to the given position, this is how readers jump between records,
+     * subclasses that cannot move the pointer back and forth override this method to throw UnsupportedOperationException.
+     * @param position the number of bytes of data before the pointer.
+     * @throws BufferOverflowException if the position is past the end of the data.
+     * @throws BufferUnderflowException if the position is negative.
+     */
+    void setPosition(long position) throws BufferOverflowException, BufferUnderflowException {
+        if (position > this.dataLength()) throw new BufferOverflowException();
+        if (position < 0) throw new BufferUnderflowException();
+        this.nextPointer = (int) position;
+    }
+
+    /**
+     * Get the number of bytes of data in the buffer,
+     * subclasses that do not keep all of their data in the storage override this method.
+     * @return the size of the buffer's data.
+     */
+    long getSize() {
+        return this.dataLength();
+    }
+
+    /**
+     * Creates a buffer in READ mode over the same data with a pointer of its own so that several threads
+     * can read the data at once, only called on buffers that support setPosition.
+     * @return a new buffer over the buffer's data.
+     */
+    Buffer readView() {
+        ByteBuffer view = this.storage.duplicate();
+        view.limit(this.dataLength());
+        return new Buffer(view, TYPE.STATIC, MODE.READ, this.order);
+    }
+
+    /**
+     * Makes sure that at least 'size' bytes can be read starting from the read/write pointer.
+     * @param size number of bytes that need to be readable.
+     * @throws BufferUnderflowException if there are not enough bytes left in the buffer.
+     */
+    private void ensureReadable(int size) throws BufferUnderflowException {
+        if (this.storage.limit() - this.nextPointer < size)
+            this.fill(size);
+    }
+
+    /*
+    The size of an array read is computed in long, no buffer holds more than MAX_CAPACITY bytes.
+     */
+    private void ensureReadable(long size) throws BufferUnderflowException {
+        if (size > MAX_CAPACITY) throw new BufferUnderflowException();
+        this.ensureReadable((int) size);
+    }
+
+    /**
+     * Get the number of bytes of data in the buffer, while in WRITE mode this is the number of bytes
+     * up to the read/write pointer, and while in READ mode it is the number of bytes that can be read.
+     * @return the number of bytes of data in the buffer.
+     */
+    private int dataLength() {
+        return this.mode == MODE.WRITE ? this.nextPointer : this.storage.limit();
+    }
+
+    /**
+     * Called when a read needs 'size' bytes but there are fewer bytes left in the storage.
+     * The Buffer keeps all of its data in the storage so there is nothing more to read,
+     * subclasses that bring data into the storage on demand override this method, after it returns
+     * at least 'size' bytes must be readable starting from the read/write pointer.
+     * @param size number of bytes that need to be readable.
+     * @throws BufferUnderflowException if there are not enough bytes left in the buffer.
+     */
+    void fill(int size) throws BufferUnderflowException {
+        throw new BufferUnderflowException();
+    }
+
+    /**
+     * Checks whether 'size' more bytes can be read, used to reject sizes read from corrupt data before
+     * anything is allocated for them. Subclasses that cannot tell how much data is left without reading it
+     * return true, their reads fail with BufferUnderflowException once the data runs out.
+     * @param size number of bytes.
+     * @return false if the data ends before 'size' more bytes.
+     */
+    boolean isReadable(long size) {
+        return this.storage.limit() - this.nextPointer >= size;
+    }
+
+    /**
+     * Replaces the storage of the buffer with newly allocated storage of the given capacity,
+     * the contents of the current storage are copied into the new one (truncated if needed).
+     * @param capacity the capacity of the new storage.
+     */
+    private void resize(int capacity) {
+        ByteBuffer resized = this.allocate(capacity);
+        ByteBuffer current = this.storage.duplicate();
+        current.clear();
+        current.limit(Math.min(capacity, current.capacity()));
+        resized.put(current);
+        this.setStorage(resized);
+    }
+
+    /**
+     * Get the buffer's storage positioned at the given index,
+     * typed views (asIntBuffer, asLongBuffer, ...) created from it start at that index.
+     * @param position the index the storage should be positioned at.
+     * @return the buffer's storage.
+     */
+    private ByteBuffer storageAt(int position) {
+        this.storage.position(position);
+        return this.storage;
     }
 
     /**
@@ -69,27 +344,73 @@ public class Buffer {
      * @param other the Buffer to copy.
      */
     public Buffer(Buffer other) {
+        this.order = other.order;
         this.nextPointer = other.nextPointer;
         this.type = other.type;
         this.mode = other.mode;
-        this.data = new byte[other.data.length];
-        System.arraycopy(other.data, 0, this.data, 0, this.nextPointer);
+        this.growthPolicy = other.growthPolicy;
+        this.maxCapacity = other.maxCapacity;
+        this.dictionarySize = other.dictionarySize;
+        if (other.writtenStrings != null) this.writtenStrings = new HashMap<>(other.writtenStrings);
+        if (other.readStrings != null) this.readStrings = new ArrayList<>(other.readStrings);
+        if (other.recordPositions != null) this.recordPositions = new IntArrayList(other.recordPositions.toArray());
+        this.setStorage(this.allocate(other.storage.capacity()));
+        ByteBuffer src = other.storage.duplicate();
+        src.clear();
+        src.limit(other.dataLength());
+        this.storage.put(src);
+        this.storage.clear();
+        this.storage.limit(other.storage.limit());
+    }
+
+    /**
+     * Constructs a Buffer over the given storage, the storage is used as is and is not copied.
+     * @param storage the storage of the buffer.
+     * @param type the type of the buffer.
+     * @param mode the mode of the buffer.
+     * @param order the byte order of the buffer.
+     */
+    Buffer(ByteBuffer storage, TYPE type, MODE mode, ByteOrder order) {
+        this.order = order;
+        this.setStorage(storage);
+        this.type = type;
+        this.mode = mode;
     }
 
     /**
-     * Constructs a Buffer of a given type and size.
+     * Constructs a Buffer of a given type, size and byte order.
      * @param type the type of the buffer.
      * @param size the size of the buffer.
+     * @param order the byte order primitives will be written in.
      */
-    public Buffer(TYPE type, int size) {
-        this.data = new byte[size];
+    public Buffer(TYPE type, int size, ByteOrder order) {
+        this.order = order;
+        this.setStorage(this.allocate(size));
         this.type = type;
         this.mode = MODE.WRITE;
     }
 
+    /**
+     * Constructs a BIG_ENDIAN Buffer of a given type and size.
+     * @param type the type of the buffer.
+     * @param size the size of the buffer.
+     * @see Buffer#Buffer(TYPE, int, ByteOrder)
+     */
+    public Buffer(TYPE type, int size) {
+        this(type, size, ByteOrder.BIG_ENDIAN);
+    }
+
     /**
      * Constructs Buffer with default size of 32
-     * @see Buffer#Buffer(TYPE, int)
+     * @see Buffer#Buffer(TYPE, int, ByteOrder)
+     */
+    public Buffer(TYPE type, ByteOrder order) {
+        this(type, 32, order);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN Buffer with default size of 32
+     * @see Buffer#Buffer(TYPE, int, ByteOrder)
      */
     public Buffer(TYPE type) {
         this(type, 32);
@@ -100,31 +421,61 @@ public class Buffer {
      * The created buffer will be STATIC and in READ mode (read/write pointer pointing to 0).
      * note: if the number of bytes requested from the stream ('count') is greater than the available
      * bytes in the stream, the stream will be read to its end.
+     * (use InputStreamBuffer to read the stream on demand instead of reading it all up front)
      * @param stream the stream the buffer will be created from.
      * @param count the number of bytes that should be read from the stream.
+     * @param order the byte order the data in the stream was written with.
      * @throws IOException if there is a problem reading from the stream.
      */
-    public Buffer(InputStream stream, int count) throws IOException {
+    public Buffer(InputStream stream, int count, ByteOrder order) throws IOException {
         int actualCount = Math.min(count, stream.available());
-        this.data = new byte[actualCount];
+        this.order = order;
+        this.setStorage(this.allocate(actualCount));
         this.type = TYPE.STATIC;
         this.mode = MODE.READ;
         this.nextPointer = 0;
-        if (stream.read(this.data) != data.length) throw new IOException("problem reading from stream, bytes read and available do not match");
+        this.readStream(stream);
+    }
+
+    /*
+    Fills the storage of the buffer with data from the stream.
+     */
+    private void readStream(InputStream stream) throws IOException {
+        byte[] bytes = this.storage.hasArray() ? this.storage.array() : new byte[this.storage.capacity()];
+        if (stream.read(bytes) != bytes.length) throw new IOException("problem reading from stream, bytes read and available do not match");
+        if (!this.storage.hasArray()) this.storageAt(0).put(bytes);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN Buffer from an InputStream and writes 'count' bytes from the stream to the buffer.
+     * @see Buffer#Buffer(InputStream, int, ByteOrder)
+     */
+    public Buffer(InputStream stream, int count) throws IOException {
+        this(stream, count, ByteOrder.BIG_ENDIAN);
     }
 
     /**
      * Constructs Buffer from an InputStream and writes all the data in the stream into the buffer.
      * The created buffer will be STATIC and in READ mode (read/write pointer pointing to 0).
      * @param stream the stream the buffer will be created from.
+     * @param order the byte order the data in the stream was written with.
      * @throws IOException if there is a problem reading from the stream.
      */
-    public Buffer(InputStream stream) throws IOException {
-        this.data = new byte[stream.available()];
+    public Buffer(InputStream stream, ByteOrder order) throws IOException {
+        this.order = order;
+        this.setStorage(this.allocate(stream.available()));
         this.type = TYPE.STATIC;
         this.mode = MODE.READ;
         this.nextPointer = 0;
-        if (stream.read(this.data) != data.length) throw new IOException("problem reading from stream, bytes read and available do not match");
+        this.readStream(stream);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN Buffer from an InputStream and writes all the data in the stream into the buffer.
+     * @see Buffer#Buffer(InputStream, ByteOrder)
+     */
+    public Buffer(InputStream stream) throws IOException {
+        this(stream, ByteOrder.BIG_ENDIAN);
     }
 
     /**
@@ -133,18 +484,38 @@ public class Buffer {
      * The created buffer will be STATIC and in READ mode (read/write pointer pointing to 0).
      * @param data the data to create the buffer with.
      * @param count the number of bytes to use from the given data.
+     * @param order the byte order the data was written with.
      */
-    public Buffer(byte[] data, int count) {
-        this.data = Arrays.copyOf(data, count);
+    public Buffer(byte[] data, int count, ByteOrder order) {
+        this.order = order;
+        this.setStorage(this.allocate(count));
+        this.storage.put(data, 0, Math.min(count, data.length));
         this.nextPointer = 0;
         this.type = TYPE.STATIC;
         this.mode = MODE.READ;
     }
 
+    /**
+     * Constructs BIG_ENDIAN Buffer from a byte array describing the buffer data.
+     * @see Buffer#Buffer(byte[], int, ByteOrder)
+     */
+    public Buffer(byte[] data, int count) {
+        this(data, count, ByteOrder.BIG_ENDIAN);
+    }
+
     /**
      * Constructs Buffer from a byte array describing the buffer data
      * The created buffer will be STATIC and in READ mode (read/write pointer pointing to 0).
      * @param data the data to create the buffer with.
+     * @param order the byte order the data was written with.
+     */
+    public Buffer(byte[] data, ByteOrder order) {
+        this(data, data.length, order);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN Buffer from a byte array describing the buffer data
+     * @see Buffer#Buffer(byte[], int, ByteOrder)
      */
     public Buffer(byte[] data) {
         this(data, data.length);
@@ -154,28 +525,35 @@ public class Buffer {
      * Sets the Buffer to READ mode, this changes the Buffer's type to STATIC. <br><br>
      * * While in READ mode the buffer wont be able to change its size or its contents. <br><br>
      * * Changing the buffer to READ mode sets its pointer to point to the first byte. <br><br>
-     * * Changing the buffer to READ mode resize's the buffer to fit the data it holds.
+     * * Changing the buffer to READ mode limits the buffer to the data it holds,
+     *   the data is not copied and the storage keeps its capacity.
      */
     public void setRead() {
         if (this.mode == MODE.READ) return;
-        if (nextPointer + 1 !=  this.data.length)
-            this.data = Arrays.copyOf(this.data, this.nextPointer);
+        this.storage.limit(this.nextPointer);
         this.mode = MODE.READ;
         this.type = TYPE.STATIC;
         this.nextPointer = 0;
+        this.clearReadDictionary();
     }
 
     /**
      * Sets the Buffer to WRITE mode, enabling changing the contents of the buffer.
+     * The pointer is moved past the last byte of data so that following writes append to the data,
+     * the storage is only reallocated if it has less than 'extraSize' free bytes.
      * @param type the type of the newly writable Buffer.
-     * @param extraSize additional size to add to the Buffer.
+     * @param extraSize number of free bytes the Buffer should have after the data.
      */
     public void setWrite(TYPE type, int extraSize) {
         if (this.mode == MODE.WRITE) return;
         this.mode = MODE.WRITE;
         this.type = type;
-        this.nextPointer = this.data.length;
-        this.data = Arrays.copyOf(this.data, this.nextPointer + extraSize);
+        this.nextPointer = this.storage.limit();
+        this.storage.limit(this.storage.capacity());
+        if (this.storage.capacity() - this.nextPointer < extraSize) {
+            this.checkCapacity((long) this.nextPointer + extraSize);
+            this.resize(this.nextPointer + extraSize);
+        }
     }
 
     /**
@@ -196,25 +574,179 @@ public class Buffer {
         this.setWrite(TYPE.DYNAMIC, 0);
     }
 
+    /**
+     * Clears the buffer so that it can be reused, the buffer is set to WRITE mode
+     * and its pointer is moved to the first byte.
+     * The buffer keeps its current storage, the data in it is not erased and will be overwritten by following writes.
+     * @param type the type of the cleared Buffer.
+     */
+    public void clear(TYPE type) {
+        this.restart(type);
+        this.clearDictionary();
+    }
+
+    /*
+    Sets the buffer to WRITE mode at the start of its storage, the strings written to the dictionary are kept
+    for subclasses that keep the data that was written somewhere else and append to it.
+     */
+    void restart(TYPE type) {
+        this.storage.limit(this.storage.capacity());
+        this.mode = MODE.WRITE;
+        this.type = type;
+        this.nextPointer = 0;
+        this.reservedEnd = 0;
+        this.recordPositions = null;
+        this.clearReadDictionary();
+    }
+
+    /**
+     * Clears the buffer so that it can be reused.
+     * The TYPE of the buffer will be changed to DYNAMIC.
+     * @see Buffer#clear(TYPE)
+     */
+    public void clear() {
+        this.clear(TYPE.DYNAMIC);
+    }
+
+    /**
+     * Get the number of bytes the buffer's storage can hold.
+     * @return the capacity of the buffer.
+     */
+    int capacity() {
+        return this.storage.capacity();
+    }
+
+    /**
+     * Get the mode of the buffer.
+     * @return the mode of the buffer.
+     */
+    public MODE getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Get the type of the buffer.
+     * @return the type of the buffer.
+     */
+    public TYPE getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the byte order the buffer reads and writes primitives in.
+     * @return the byte order of the buffer.
+     */
+    public ByteOrder getByteOrder() {
+        return this.order;
+    }
+
+    /**
+     * Sets the way the buffer grows when a write needs more space than it has, a DYNAMIC buffer
+     * doubles its capacity by default, a factor closer to 1 or a linear policy wastes less memory
+     * on large buffers at the cost of copying the data more often.
+     * @param growthPolicy the growth policy of the buffer.
+     * @see IGrowthPolicy
+     */
+    public void setGrowthPolicy(IGrowthPolicy growthPolicy) {
+        if (growthPolicy == null) throw new IllegalArgumentException("growth policy cannot be null.");
+        this.growthPolicy = growthPolicy;
+    }
+
+    /**
+     * Get the way the buffer grows when a write needs more space than it has.
+     * @return the growth policy of the buffer.
+     */
+    public IGrowthPolicy getGrowthPolicy() {
+        return this.growthPolicy;
+    }
+
+    /**
+     * Sets the largest capacity the buffer may grow to, a write that needs the buffer to grow
+     * past it fails with an IllegalStateException before anything is allocated.
+     * @param maxCapacity the maximal capacity of the buffer, at most MAX_CAPACITY.
+     * @throws IllegalArgumentException if maxCapacity is negative or greater than MAX_CAPACITY.
+     */
+    public void setMaxCapacity(int maxCapacity) throws IllegalArgumentException {
+        if (maxCapacity < 0 || maxCapacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("maximal capacity must be between 0 and " + MAX_CAPACITY + ".");
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Get the largest capacity the buffer may grow to.
+     * @return the maximal capacity of the buffer.
+     */
+    public int getMaxCapacity() {
+        return this.maxCapacity;
+    }
+
+    /**
+     * Sets the maximal number of distinct strings the buffer keeps in its dictionary, 0 disables the dictionary.
+     * With the dictionary enabled the first occurrence of a string is written in full and every following
+     * occurrence is written as a variable length reference to it (usually 1 or 2 bytes), and when reading
+     * every occurrence of a string is read as the same String instance.
+     * Once the dictionary holds 'size' strings new strings are written in full every time.
+     * note: strings written with the dictionary must be read by a buffer with the dictionary enabled (of any size),
+     * the written strings are forgotten only when the data is discarded (clear, or rewind in WRITE mode) so that strings
+     * appended after setWrite may refer to them, the read strings are forgotten whenever reading starts from the first byte.
+     * @param size the maximal number of strings in the dictionary.
+     * @throws IllegalArgumentException if size is negative.
+     */
+    public void setDictionarySize(int size) throws IllegalArgumentException {
+        if (size < 0) throw new IllegalArgumentException("the dictionary size must not be negative - " + size + ".");
+        this.dictionarySize = size;
+    }
+
+    /**
+     * Get the maximal number of strings in the buffer's dictionary.
+     * @return the size of the dictionary, 0 if the dictionary is disabled.
+     */
+    public int getDictionarySize() {
+        return this.dictionarySize;
+    }
+
+    /**
+     * Forgets the strings that were written into (or read from) the dictionary,
+     * called whenever the data the dictionary refers to is overwritten.
+     */
+    private void clearDictionary() {
+        if (this.writtenStrings != null) this.writtenStrings.clear();
+        this.clearReadDictionary();
+    }
+
+    /**
+     * Forgets the strings that were read from the dictionary, called whenever the data will be read from the start.
+     */
+    void clearReadDictionary() {
+        if (this.readStrings != null) this.readStrings.clear();
+    }
+
     /**
      * Get byte array containing the serialized data contained in the buffer.
      * note: the returned byte array acts as a pointer to the data that the buffer manages,
      * and as such it could be dangerous to modify the returned array.
      * (use cloneSerialized for a safer version)
+     * note: the array may be longer than the data in the buffer, the data ends at the pointer while in WRITE mode
+     * and at asByteBuffer().limit() while in READ mode.
      * @return byte array that the buffer uses to manage the serialized data.
+     * @throws UnsupportedOperationException if the buffer's data is not kept in a byte array (see DirectBuffer).
      */
-    public byte[] getSerialized() {
-        return this.data;
+    public byte[] getSerialized() throws UnsupportedOperationException {
+        return this.storage.array();
     }
 
     /**
      * Get ByteBuffer backed by the buffers serialized data.
      * Note: the returned byte buffer is a read only buffer, it acts as a view of the
-     * buffer's data.
+     * buffer's data, and has the same byte order as the buffer.
+     * The view ends at the last byte of data, that is the last byte that was written while in WRITE mode.
      * @return ByteBuffer backed by the buffers serialized data.
      */
     public ByteBuffer asByteBuffer() {
-        return ByteBuffer.wrap(this.data).asReadOnlyBuffer();
+        ByteBuffer view = this.storage.asReadOnlyBuffer();
+        view.clear();
+        view.limit(this.dataLength());
+        return view.order(this.order);
     }
 
     /**
@@ -225,7 +757,85 @@ public class Buffer {
      * @return byte array containing all the data currently in the buffer.
      */
     public byte[] cloneSerialized() {
-        return Arrays.copyOf(this.data, this.nextPointer);
+        byte[] serialized = new byte[this.dataLength()];
+        ByteBuffer src = this.storage.duplicate();
+        src.clear();
+        src.get(serialized);
+        return serialized;
+    }
+
+    /**
+     * Get views of the buffer's data that can be written to a channel with a single gathering write,
+     * the Buffer keeps its data in a single storage so it has a single view, subclasses that keep
+     * their data in several pieces override this method.
+     * @return read only views of the buffer's data, in order.
+     */
+    ByteBuffer[] dataViews() {
+        return new ByteBuffer[] { this.asByteBuffer() };
+    }
+
+    /**
+     * Writes all the buffer's data to a channel, this is the same data cloneSerialized returns
+     * but it is written straight from the buffer's storage without copying it into an array first,
+     * when the channel supports gathering writes (FileChannel, SocketChannel, ...) data that is kept
+     * in several pieces is written with a single call.
+     * The buffer's mode and pointer do not change.
+     * note: the transfer stops early when the channel does not accept any bytes (a non blocking channel that is full),
+     * the same goes for readFrom when the channel has no bytes ready, in both cases the partial count is returned.
+     * @param channel the channel the data should be written to.
+     * @return the number of bytes that were written.
+     * @throws IOException if there is a problem writing to the channel.
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer[] views = this.dataViews();
+        long total = 0;
+        for (ByteBuffer view : views) total += view.remaining();
+
+        long written = 0;
+        if (channel instanceof GatheringByteChannel && views.length > 1) {
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            int first = 0;
+            while (written < total) {
+                long n = gathering.write(views, first, views.length - first);
+                if (n <= 0) break;
+                written += n;
+                while (first < views.length && !views[first].hasRemaining()) first++;
+            }
+        }
+        else {
+            for (ByteBuffer view : views) {
+                while (view.hasRemaining()) {
+                    int n = channel.write(view);
+                    if (n <= 0) return written;
+                    written += n;
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reads up to 'count' bytes from a channel into the buffer, the bytes are read straight into the buffer's storage
+     * starting at the read/write pointer as if they were written to the buffer, fewer bytes are read if the
+     * channel reaches its end or has no bytes ready (see writeTo).
+     * @param channel the channel the data should be read from.
+     * @param count the number of bytes that should be read.
+     * @return the number of bytes that were read.
+     * @throws IOException if there is a problem reading from the channel.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public int readFrom(ReadableByteChannel channel, int count) throws IOException, IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        this.alloc_buffer(count);
+        ByteBuffer target = this.storage.duplicate();
+        target.limit(nextPointer + count);
+        target.position(nextPointer);
+        while (target.hasRemaining()) {
+            if (channel.read(target) <= 0) break;
+        }
+        int read = target.position() - nextPointer;
+        nextPointer += read;
+        return read;
     }
 
     /**
@@ -239,7 +849,7 @@ public class Buffer {
      * @throws BufferUnderflowException if the pointer is moved to a position smaller than 0.
      */
     public void seekByte(int amount) throws BufferOverflowException, BufferUnderflowException {
-        if (this.data.length < this.nextPointer + amount)
+        if (this.storage.limit() < this.nextPointer + amount)
             throw new BufferOverflowException();
         if (this.nextPointer + amount < 0)
             throw new BufferUnderflowException();
@@ -265,7 +875,30 @@ public class Buffer {
      * Writing after a rewind will overwrite the data in the buffer,
      * this makes the rewind equivalent to clear operation.
      */
-    public void rewind() { this.nextPointer = 0; }
+    public void rewind() {
+        this.nextPointer = 0;
+        this.reservedEnd = 0;
+        this.recordPositions = null;
+        if (this.mode == MODE.WRITE) this.clearDictionary();
+        else this.clearReadDictionary();
+    }
+
+    /**
+     * Registers the serializer and deserializer that the generic write(T) and read(T) methods
+     * (and reading into collections and maps) use for values of exactly the given class,
+     * this lets classes that cannot implement ISerializable be written like any other supported type.
+     * The codec applies to all buffers, register it before values of the class are written or read.
+     * @param type the class the codec is used for, subclasses are not affected.
+     * @param serializer the serializer used to write values of the class.
+     * @param deserializer the deserializer used to read values of the class.
+     * @param <T> the type of the values.
+     * @throws IllegalArgumentException if any of the arguments is null.
+     */
+    public static <T> void registerCodec(Class<T> type, ISerializer<T> serializer, IDeserializer<T> deserializer) throws IllegalArgumentException {
+        if (type == null || serializer == null || deserializer == null)
+            throw new IllegalArgumentException("type, serializer and deserializer cannot be null.");
+        Codec.register(type, new Codec.UserCodec<>(type, serializer, deserializer));
+    }
 
     //region Write
 
@@ -280,6 +913,11 @@ public class Buffer {
      */
     @SafeVarargs
     public final <T> void write(T... data) throws IllegalArgumentException, IllegalStateException {
+        if (!this.isReserved()) {
+            long size = 0;
+            for (T elem : data) size = Codec.addHints(size, Codec.sizeHintOf(elem));
+            this.reserve(size);
+        }
         for (T elem : data) {
             write(elem);
         }
@@ -293,27 +931,7 @@ public class Buffer {
      * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
      */
     public <T> void write(T data) throws IllegalArgumentException, IllegalStateException {
-        if (data instanceof Byte) write((byte)(Byte) data);
-        else if (data instanceof Boolean) write((boolean)(Boolean) data);
-        else if (data instanceof Short) write((short)(Short) data);
-        else if (data instanceof Character) write((char)(Character) data);
-        else if (data instanceof Integer) write((int)(Integer) data);
-        else if (data instanceof Float) write((float)(Float) data);
-        else if (data instanceof Long) write((long)(Long) data);
-        else if (data instanceof Double) write((double)(Double) data);
-        else if (data instanceof byte[]) write((byte[]) data);
-        else if (data instanceof boolean[]) write((boolean[]) data);
-        else if (data instanceof short[]) write((short[]) data);
-        else if (data instanceof char[]) write((char[]) data);
-        else if (data instanceof int[]) write((int[]) data);
-        else if (data instanceof long[]) write((long[]) data);
-        else if (data instanceof float[]) write((float[]) data);
-        else if (data instanceof double[]) write((double[]) data);
-        else if (data instanceof Iterable) writeIterable((Iterable) data);
-        else if (data instanceof Map) writeMap((Map) data);
-        else if (data instanceof ISerializable) write((ISerializable) data);
-        else if (data instanceof ISerializable[]) write((ISerializable[]) data);
-        else throw new IllegalArgumentException("trying to write an unsupported type - " + data.getClass().getSimpleName() + ".");
+        Codec.of(data.getClass()).write(this, data);
     }
 
     /**
@@ -325,6 +943,7 @@ public class Buffer {
      */
     public void write(ISerializable... data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) this.reserve(Codec.sizeHintOf(data));
         for (ISerializable serializable : data) {
             serializable.serialize(this);
         }
@@ -337,6 +956,7 @@ public class Buffer {
      */
     public void write(ISerializable data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) this.reserve(data.serializedSize());
         data.serialize(this);
     }
 
@@ -352,6 +972,11 @@ public class Buffer {
     @SafeVarargs
     public final <T> void write(ISerializer<T> serializer, T... data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) {
+            long size = 0;
+            for (T elem : data) size = Codec.addHints(size, serializer.serializedSize(elem));
+            this.reserve(size);
+        }
         for (T elem : data) {
             serializer.serialize(elem, this);
         }
@@ -366,23 +991,48 @@ public class Buffer {
      */
     public <T> void write(ISerializer<T> serializer, T data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) this.reserve(serializer.serializedSize(data));
         serializer.serialize(data, this);
     }
 
     /*
-    These two functions are used internally to deconstruct Iterable and Map types into their elements,
-    and then return the elements to be written through the generic write method.
+    These two functions are used by the codecs to deconstruct Iterable and Map types into their elements,
+    and then write each element with the codec of its class, the codec is only looked up again
+    when the class of the elements changes.
      */
-    private void writeIterable(Iterable data) throws IllegalStateException {
-        for (Object itr : data) {
-            write(itr);
+    void writeIterable(Iterable<?> data) throws IllegalStateException {
+        if (!this.isReserved()) this.reserve(Codec.sizeHintOf(data));
+        Class<?> type = null;
+        Codec codec = null;
+        for (Object elem : data) {
+            if (elem.getClass() != type) {
+                type = elem.getClass();
+                codec = Codec.of(type);
+            }
+            codec.write(this, elem);
         }
     }
 
-    private void writeMap(Map data) throws IllegalStateException {
-        for (Object entry : data.entrySet()) {
-            write(((Map.Entry)entry).getKey());
-            write(((Map.Entry)entry).getValue());
+    void writeEntries(Map<?, ?> data) throws IllegalStateException {
+        if (!this.isReserved()) this.reserve(Codec.sizeHintOf(data));
+        this.writeEntries(data.entrySet());
+    }
+
+    void writeEntries(Iterable<? extends Map.Entry<?, ?>> entries) throws IllegalStateException {
+        Class<?> keyType = null, valueType = null;
+        Codec keyCodec = null, valueCodec = null;
+        for (Map.Entry<?, ?> entry : entries) {
+            Object key = entry.getKey(), value = entry.getValue();
+            if (key.getClass() != keyType) {
+                keyType = key.getClass();
+                keyCodec = Codec.of(keyType);
+            }
+            if (value.getClass() != valueType) {
+                valueType = value.getClass();
+                valueCodec = Codec.of(valueType);
+            }
+            keyCodec.write(this, key);
+            valueCodec.write(this, value);
         }
     }
 
@@ -399,6 +1049,11 @@ public class Buffer {
     @SafeVarargs
     public final <T> void write(ISerializer<T> serializer, Iterable<T>... data) throws IllegalStateException{
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) {
+            long size = 0;
+            for (Iterable<T> iterable : data) size = Codec.addHints(size, sizeHint(serializer, iterable));
+            this.reserve(size);
+        }
         for (Iterable<T> iterable : data) {
             for (T itr : iterable) {
                 serializer.serialize(itr, this);
@@ -419,6 +1074,14 @@ public class Buffer {
     @SafeVarargs
     public final <K, V> void write(ISerializer<K> keySer, ISerializer<V> valueSer, Map<K, V>... data) {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (!this.isReserved()) {
+            long size = 0;
+            for (Map<K, V> map : data) {
+                size = Codec.addHints(size, sizeHint(keySer, map.keySet()));
+                size = Codec.addHints(size, sizeHint(valueSer, map.values()));
+            }
+            this.reserve(size);
+        }
         for (Map<K, V> map : data) {
             for (Map.Entry<K, V> entry : map.entrySet()) {
                 keySer.serialize(entry.getKey(), this);
@@ -427,171 +1090,611 @@ public class Buffer {
         }
     }
 
-    //region Write Primitive
+    //region Write Framed
 
-    public void write(byte data) throws IllegalStateException {
-        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(1);
-        this.data[nextPointer++] = data;
-    }
+    /*
+    The methods in this region write collections and maps framed by their size, the number of elements
+    (or mappings) plus one is written first as a variable length int (0 marks a null collection),
+    so that they can be read back with readList and readMap without knowing their size in advance.
+     */
 
-    public void write(boolean data) throws IllegalStateException {
-        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        alloc_buffer(1);
-        if (data) this.data[nextPointer++] = 1;
-        else this.data[nextPointer++] = 0;
+    private void writeSize(Object data, int size) {
+        this.writeVarInt(data == null ? 0 : size + 1);
     }
 
-    public void write(short data) throws IllegalStateException {
+    /**
+     * Writes the size of the collection followed by its elements, the collection should be read with readList.
+     * @param data the collection to write, may be null.
+     * @throws IllegalArgumentException if the collection contains elements of an unsupported type.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeList(Collection<?> data) throws IllegalArgumentException, IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(2);
-        this.data[nextPointer++] = (byte) (data >> 8);
-        this.data[nextPointer++] = (byte) (data & 0xff);
+        if (data == null) {
+            this.writeSize(null, 0);
+            return;
+        }
+        if (!this.isReserved()) this.reserve(Codec.addHints(varIntSize(data.size() + 1), Codec.sizeHintOf(data)));
+        this.writeSize(data, data.size());
+        this.writeIterable(data);
     }
 
-    public void write(char data) throws IllegalStateException {
+    /**
+     * Writes the size of the collection followed by its elements using the given serializer,
+     * the collection should be read with readList.
+     * @param serializer the serializer that should be used to write the elements.
+     * @param data the collection to write, may be null.
+     * @param <T> the type of the elements.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public <T> void writeList(ISerializer<T> serializer, Collection<T> data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (data == null) {
+            this.writeSize(null, 0);
+            return;
+        }
+        if (!this.isReserved()) this.reserve(Codec.addHints(varIntSize(data.size() + 1), sizeHint(serializer, data)));
+        this.writeSize(data, data.size());
+        for (T elem : data) serializer.serialize(elem, this);
+    }
+
+    /**
+     * Writes the size of the map followed by its mappings (each key followed by its value),
+     * the map should be read with readMap.
+     * @param data the map to write, may be null.
+     * @throws IllegalArgumentException if the map contains keys or values of an unsupported type.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeMap(Map<?, ?> data) throws IllegalArgumentException, IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (data == null) {
+            this.writeSize(null, 0);
+            return;
+        }
+        if (!this.isReserved()) this.reserve(Codec.addHints(varIntSize(data.size() + 1), Codec.sizeHintOf(data)));
+        this.writeSize(data, data.size());
+        this.writeEntries(data);
+    }
+
+    /**
+     * Writes the size of the map followed by its mappings using the given serializers,
+     * the map should be read with readMap.
+     * @param keySer the serializer that should be used for the keys.
+     * @param valueSer the serializer that should be used for the values.
+     * @param data the map to write, may be null.
+     * @param <K> the key type of the map.
+     * @param <V> the value type of the map.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public <K, V> void writeMap(ISerializer<K> keySer, ISerializer<V> valueSer, Map<K, V> data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (data == null) {
+            this.writeSize(null, 0);
+            return;
+        }
+        if (!this.isReserved()) {
+            long size = varIntSize(data.size() + 1);
+            size = Codec.addHints(size, sizeHint(keySer, data.keySet()));
+            size = Codec.addHints(size, sizeHint(valueSer, data.values()));
+            this.reserve(size);
+        }
+        this.writeSize(data, data.size());
+        for (Map.Entry<K, V> entry : data.entrySet()) {
+            keySer.serialize(entry.getKey(), this);
+            valueSer.serialize(entry.getValue(), this);
+        }
+    }
+
+    //endregion
+
+    /*
+    Size hints are used to reserve the space for a whole write at once, a hint is the number of bytes
+    the data is written into or -1 if it is not known, computing a hint stops at the first element of unknown size.
+     */
+    private static <T> long sizeHint(ISerializer<T> serializer, Iterable<T> data) {
+        long total = 0;
+        for (T elem : data) {
+            total = Codec.addHints(total, serializer.serializedSize(elem));
+            if (total < 0) return -1;
+        }
+        return total;
+    }
+
+    //region Write Records
+
+    /*
+    The methods in this region write records, a record is any value written with writeRecord and its position
+    is kept until writeRecordIndex writes the positions of all the records after the last one.
+    The index lets a reader jump straight to any record (seekRecord) or split the records between threads
+    (readRecordsParallel), it is an int position for every record followed by the number of records
+    and a magic int, so it is found by reading the last 8 bytes of the buffer.
+    A record must be readable on its own, so records cannot be written while strings are dictionary encoded.
+     */
+
+    private void addRecord() throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (this.dictionarySize > 0)
+            throw new IllegalStateException("Records cannot be written while strings are dictionary encoded.");
+        long position = this.getPosition();
+        if (position > Integer.MAX_VALUE)
+            throw new IllegalStateException("Records can only be indexed in the first 2GB of the buffer - " + position + ".");
+        if (this.recordPositions == null) this.recordPositions = new IntArrayList();
+        this.recordPositions.add((int) position);
+    }
+
+    /**
+     * Writes the data as a record, the position of the record is written by the next call to writeRecordIndex.
+     * @param record the data to write.
+     * @param <T> the type of the data that will be written.
+     * @throws IllegalArgumentException if T is not a supported type.
+     * @throws IllegalStateException if the buffer is in READ mode, strings are dictionary encoded
+     *                               or it is STATIC and there is not enough space.
+     * @throws UnsupportedOperationException if the buffer cannot tell the position of the record.
+     */
+    public <T> void writeRecord(T record) throws IllegalArgumentException, IllegalStateException, UnsupportedOperationException {
+        this.addRecord();
+        this.write(record);
+    }
+
+    /**
+     * Writes the data as a record using the given serializer.
+     * @param serializer the serializer that should be used to write the data.
+     * @param record the data to write.
+     * @param <T> the type of the data that will be written.
+     * @see Buffer#writeRecord(Object)
+     */
+    public <T> void writeRecord(ISerializer<T> serializer, T record) throws IllegalStateException, UnsupportedOperationException {
+        this.addRecord();
+        this.write(serializer, record);
+    }
+
+    /**
+     * Writes the index of the records that were written since the last index, the index must be the last
+     * data in the buffer for the records to be found when the buffer is read.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeRecordIndex() throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int[] positions = this.recordPositions == null ? new int[0] : this.recordPositions.toArray();
+        if (!this.isReserved()) this.reserve(4L * positions.length + 8);
+        this.write(positions);
+        this.write(positions.length);
+        this.write(RECORD_INDEX_MAGIC);
+        this.recordPositions = null;
+    }
+
+    //endregion
+
+    //region Write Primitive
+
+    public void write(byte data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        this.alloc_buffer(1);
+        this.storage.put(nextPointer++, data);
+    }
+
+    public void write(boolean data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        alloc_buffer(1);
+        this.storage.put(nextPointer++, data ? (byte) 1 : (byte) 0);
+    }
+
+    public void write(short data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        this.alloc_buffer(2);
+        this.storage.putShort(nextPointer, data);
+        nextPointer += 2;
+    }
+
+    public void write(char data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         this.alloc_buffer(2);
-        this.data[nextPointer++] = (byte) (data >> 8);
-        this.data[nextPointer++] = (byte) (data & 0xff);
+        this.storage.putChar(nextPointer, data);
+        nextPointer += 2;
     }
 
     public void write(int data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         this.alloc_buffer(4);
-        this.data[nextPointer++] = (byte) (data >> 24);
-        this.data[nextPointer++] = (byte) (data >> 16);
-        this.data[nextPointer++] = (byte) (data >> 8);
-        this.data[nextPointer++] = (byte) (data & 0xff);
+        this.storage.putInt(nextPointer, data);
+        nextPointer += 4;
     }
 
     public void write(long data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         this.alloc_buffer(8);
-        this.data[nextPointer++] = (byte) (data >> 56);
-        this.data[nextPointer++] = (byte) (data >> 48);
-        this.data[nextPointer++] = (byte) (data >> 40);
-        this.data[nextPointer++] = (byte) (data >> 32);
-        this.data[nextPointer++] = (byte) (data >> 24);
-        this.data[nextPointer++] = (byte) (data >> 16);
-        this.data[nextPointer++] = (byte) (data >> 8);
-        this.data[nextPointer++] = (byte) (data & 0xff);
+        this.storage.putLong(nextPointer, data);
+        nextPointer += 8;
     }
 
     public void write(float data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         this.alloc_buffer(4);
-        int intVal = Float.floatToIntBits(data);
-        this.data[nextPointer++] = (byte) (intVal >> 24);
-        this.data[nextPointer++] = (byte) (intVal >> 16);
-        this.data[nextPointer++] = (byte) (intVal >> 8);
-        this.data[nextPointer++] = (byte) (intVal & 0xff);
+        this.storage.putInt(nextPointer, Float.floatToIntBits(data));
+        nextPointer += 4;
     }
 
     public void write(double data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         this.alloc_buffer(8);
-        long longVal = Double.doubleToLongBits(data);
-        this.data[nextPointer++] = (byte) (longVal >> 56);
-        this.data[nextPointer++] = (byte) (longVal >> 48);
-        this.data[nextPointer++] = (byte) (longVal >> 40);
-        this.data[nextPointer++] = (byte) (longVal >> 32);
-        this.data[nextPointer++] = (byte) (longVal >> 24);
-        this.data[nextPointer++] = (byte) (longVal >> 16);
-        this.data[nextPointer++] = (byte) (longVal >> 8);
-        this.data[nextPointer++] = (byte) (longVal & 0xff);
+        this.storage.putLong(nextPointer, Double.doubleToLongBits(data));
+        nextPointer += 8;
     }
 
 
     //region Write Primitive Array
 
+    /*
+    The array methods in this region and in the matching read region transfer the whole array at once,
+    bytes are copied directly and wider types through a typed view of the buffer's storage,
+    which the JDK implements as a bulk (byte swapping if needed) memory copy instead of a per element loop.
+     */
+
     public void write(byte[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         alloc_buffer(data.length);
-        for (byte b : data) {
-            this.data[nextPointer++] = b;
-        }
+        this.storageAt(nextPointer).put(data);
+        nextPointer += data.length;
     }
 
     public void write(boolean[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
         alloc_buffer(data.length);
         for(boolean b: data) {
-            if (b) this.data[nextPointer++] = 1;
-            else this.data[nextPointer++] = 0;
+            this.storage.put(nextPointer++, b ? (byte) 1 : (byte) 0);
         }
     }
 
     public void write(short[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(2 * data.length);
-        for (short s : data) {
-            this.data[nextPointer++] = (byte) (s >> 8);
-            this.data[nextPointer++] = (byte) (s & 0xff);
-        }
+        this.alloc_buffer(2L * data.length);
+        this.storageAt(nextPointer).asShortBuffer().put(data);
+        nextPointer += 2 * data.length;
     }
 
     public void write(char[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(2 * data.length);
-        for (char c : data) {
-            this.data[nextPointer++] = (byte) (c >> 8);
-            this.data[nextPointer++] = (byte) (c & 0xff);
-        }
+        this.alloc_buffer(2L * data.length);
+        this.storageAt(nextPointer).asCharBuffer().put(data);
+        nextPointer += 2 * data.length;
     }
 
     public void write(int[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(4 * data.length);
-        for (int i : data) {
-            this.data[nextPointer++] = (byte) (i >> 24);
-            this.data[nextPointer++] = (byte) (i >> 16);
-            this.data[nextPointer++] = (byte) (i >> 8);
-            this.data[nextPointer++] = (byte) (i & 0xff);
-        }
+        this.alloc_buffer(4L * data.length);
+        this.storageAt(nextPointer).asIntBuffer().put(data);
+        nextPointer += 4 * data.length;
     }
 
     public void write(long[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(8 * data.length);
-        for (long l : data) {
-            this.data[nextPointer++] = (byte) (l >> 56);
-            this.data[nextPointer++] = (byte) (l >> 48);
-            this.data[nextPointer++] = (byte) (l >> 40);
-            this.data[nextPointer++] = (byte) (l >> 32);
-            this.data[nextPointer++] = (byte) (l >> 24);
-            this.data[nextPointer++] = (byte) (l >> 16);
-            this.data[nextPointer++] = (byte) (l >> 8);
-            this.data[nextPointer++] = (byte) (l & 0xff);
-        }
+        this.alloc_buffer(8L * data.length);
+        this.storageAt(nextPointer).asLongBuffer().put(data);
+        nextPointer += 8 * data.length;
+    }
+
+    /**
+     * Writes 'length' ints of the array starting from index 'offset'.
+     * @param data the array to write from.
+     * @param offset the index of the first int that should be written.
+     * @param length the number of ints that should be written.
+     * @throws IndexOutOfBoundsException if the range is not inside the array.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void write(int[] data, int offset, int length) throws IndexOutOfBoundsException, IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if ((offset | length) < 0 || offset > data.length - length) throw new IndexOutOfBoundsException();
+        this.alloc_buffer(4L * length);
+        this.storageAt(nextPointer).asIntBuffer().put(data, offset, length);
+        nextPointer += 4 * length;
+    }
+
+    /**
+     * Writes 'length' longs of the array starting from index 'offset'.
+     * @param data the array to write from.
+     * @param offset the index of the first long that should be written.
+     * @param length the number of longs that should be written.
+     * @throws IndexOutOfBoundsException if the range is not inside the array.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void write(long[] data, int offset, int length) throws IndexOutOfBoundsException, IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if ((offset | length) < 0 || offset > data.length - length) throw new IndexOutOfBoundsException();
+        this.alloc_buffer(8L * length);
+        this.storageAt(nextPointer).asLongBuffer().put(data, offset, length);
+        nextPointer += 8 * length;
     }
 
     public void write(float[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(4 * data.length);
-        for (float f : data) {
-            int intVal = Float.floatToIntBits(f);
-            this.data[nextPointer++] = (byte) (intVal >> 24);
-            this.data[nextPointer++] = (byte) (intVal >> 16);
-            this.data[nextPointer++] = (byte) (intVal >> 8);
-            this.data[nextPointer++] = (byte) (intVal & 0xff);
-        }
+        this.alloc_buffer(4L * data.length);
+        this.storageAt(nextPointer).asFloatBuffer().put(data);
+        nextPointer += 4 * data.length;
     }
 
     public void write(double[] data) throws IllegalStateException {
         if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
-        this.alloc_buffer(8 * data.length);
-        for (double d : data) {
-            long longVal = Double.doubleToLongBits(d);
-            this.data[nextPointer++] = (byte) (longVal >> 56);
-            this.data[nextPointer++] = (byte) (longVal >> 48);
-            this.data[nextPointer++] = (byte) (longVal >> 40);
-            this.data[nextPointer++] = (byte) (longVal >> 32);
-            this.data[nextPointer++] = (byte) (longVal >> 24);
-            this.data[nextPointer++] = (byte) (longVal >> 16);
-            this.data[nextPointer++] = (byte) (longVal >> 8);
-            this.data[nextPointer++] = (byte) (longVal & 0xff);
+        this.alloc_buffer(8L * data.length);
+        this.storageAt(nextPointer).asDoubleBuffer().put(data);
+        nextPointer += 8 * data.length;
+    }
+
+    //endregion
+
+    //region Write VarInt
+
+    /*
+    The methods in this region write integers in a variable length encoding (the same encoding protobuf uses),
+    every byte holds 7 bits of the value starting from the least significant bits,
+    and the most significant bit of the byte is set if more bytes follow.
+    Values smaller than 128 take a single byte, an int takes at most 5 bytes and a long at most 10,
+    negative values always take the maximal number of bytes, so the signed methods first map the value
+    with ZigZag encoding (0 -> 0, -1 -> 1, 1 -> 2, -2 -> 3, ...) so that values close to 0 take few bytes.
+    Values written with these methods must be read with the matching readVar methods.
+     */
+
+    /**
+     * Get the number of bytes writeVarInt will use to write the given value.
+     * @param value the value that should be written.
+     * @return the size of the encoded value in bytes (1 to 5).
+     */
+    public static int varIntSize(int value) {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * Get the number of bytes writeVarLong will use to write the given value.
+     * @param value the value that should be written.
+     * @return the size of the encoded value in bytes (1 to 10).
+     */
+    public static int varLongSize(long value) {
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /*
+    Encodes the value at index 'p' of the storage and returns the index after the last byte,
+    the space for the value must already be allocated.
+     */
+    private int putVarInt(int p, int value) {
+        while ((value & ~0x7F) != 0) {
+            this.storage.put(p++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.storage.put(p++, (byte) value);
+        return p;
+    }
+
+    private int putVarLong(int p, long value) {
+        while ((value & ~0x7FL) != 0) {
+            this.storage.put(p++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.storage.put(p++, (byte) value);
+        return p;
+    }
+
+    /**
+     * Writes an int using 1 to 5 bytes, small positive values take less space than with write(int).
+     * @param data the value to write.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeVarInt(int data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        this.alloc_buffer(varIntSize(data));
+        nextPointer = this.putVarInt(nextPointer, data);
+    }
+
+    /**
+     * Writes a long using 1 to 10 bytes, small positive values take less space than with write(long).
+     * @param data the value to write.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeVarLong(long data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        this.alloc_buffer(varLongSize(data));
+        nextPointer = this.putVarLong(nextPointer, data);
+    }
+
+    /**
+     * Writes a ZigZag encoded int using 1 to 5 bytes, values close to 0 (positive or negative) take less space.
+     * @param data the value to write.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeSignedVarInt(int data) throws IllegalStateException {
+        this.writeVarInt(zigZag(data));
+    }
+
+    /**
+     * Writes a ZigZag encoded long using 1 to 10 bytes, values close to 0 (positive or negative) take less space.
+     * @param data the value to write.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeSignedVarLong(long data) throws IllegalStateException {
+        this.writeVarLong(zigZag(data));
+    }
+
+    public void writeVarInt(int[] data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int size = 0;
+        for (int value : data) size += varIntSize(value);
+        this.alloc_buffer(size);
+        int p = nextPointer;
+        for (int value : data) p = this.putVarInt(p, value);
+        nextPointer = p;
+    }
+
+    public void writeVarLong(long[] data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int size = 0;
+        for (long value : data) size += varLongSize(value);
+        this.alloc_buffer(size);
+        int p = nextPointer;
+        for (long value : data) p = this.putVarLong(p, value);
+        nextPointer = p;
+    }
+
+    public void writeSignedVarInt(int[] data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int size = 0;
+        for (int value : data) size += varIntSize(zigZag(value));
+        this.alloc_buffer(size);
+        int p = nextPointer;
+        for (int value : data) p = this.putVarInt(p, zigZag(value));
+        nextPointer = p;
+    }
+
+    public void writeSignedVarLong(long[] data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int size = 0;
+        for (long value : data) size += varLongSize(zigZag(value));
+        this.alloc_buffer(size);
+        int p = nextPointer;
+        for (long value : data) p = this.putVarLong(p, zigZag(value));
+        nextPointer = p;
+    }
+
+    //endregion
+
+    //region Write String
+
+    /*
+    Strings are written as their length in UTF-8 bytes plus one (0 marks a null string) as a variable length int,
+    followed by the UTF-8 bytes, so ASCII text takes a byte per char instead of the two bytes of write(char[]).
+    The bytes are encoded straight into the storage, the ASCII chars at the start of the string (usually all of them)
+    are copied with String.getBytes(int, int, byte[], int) which does not allocate an intermediate array,
+    and only the chars after the first non-ASCII char are encoded one at a time.
+    Unpaired surrogates are written as '?', like String.getBytes does.
+    When the dictionary is enabled (see setDictionarySize) strings that were already written are written as references instead.
+     */
+
+    /**
+     * Get the number of bytes writeString will use to write the given string without the dictionary.
+     * @param value the string that should be written, may be null.
+     * @return the size of the encoded string in bytes, including its length.
+     */
+    public static int stringSize(String value) {
+        if (value == null) return 1;
+        int length = utf8Length(value, asciiPrefix(value));
+        return varIntSize(length + 1) + length;
+    }
+
+    /*
+    The number of chars at the start of the string that are ASCII.
+     */
+    private static int asciiPrefix(String value) {
+        int chars = value.length();
+        for (int i = 0; i < chars; i++)
+            if (value.charAt(i) >= 0x80) return i;
+        return chars;
+    }
+
+    /*
+    The number of UTF-8 bytes the string is encoded into, the chars before 'from' are ASCII.
+     */
+    private static int utf8Length(String value, int from) {
+        int chars = value.length();
+        int length = chars;
+        for (int i = from; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) continue;
+            if (c < 0x800) length += 1;
+            else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 2;
+                i++;
+            }
+            else if (!Character.isSurrogate(c)) length += 2;
         }
+        return length;
+    }
+
+    /**
+     * Writes a string in UTF-8 with its length, the string should be read with readString.
+     * @param data the string to write, may be null.
+     * @throws IllegalStateException if the buffer is in READ mode or it is STATIC and there is not enough space.
+     */
+    public void writeString(String data) throws IllegalStateException {
+        if (this.mode == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (data == null) {
+            this.writeVarInt(0);
+            return;
+        }
+        if (this.dictionarySize > 0) {
+            this.writeDictionaryString(data);
+            return;
+        }
+        int ascii = asciiPrefix(data);
+        int length = utf8Length(data, ascii);
+        this.alloc_buffer(varIntSize(length + 1) + length);
+        this.putUtf8(this.putVarInt(nextPointer, length + 1), data, ascii);
+    }
+
+    /*
+    In dictionary mode every string starts with a variable length tag: 0 is a null string,
+    an odd tag (index << 1 | 1) refers to the string with the given index in the dictionary,
+    and an even tag ((length + 1) << 2 | indexed << 1) is followed by the UTF-8 bytes of a new string,
+    which is added to the dictionary of the reader if the indexed bit is set.
+     */
+    private void writeDictionaryString(String data) {
+        if (this.writtenStrings == null) this.writtenStrings = new HashMap<>();
+        Integer index = this.writtenStrings.get(data);
+        if (index != null) {
+            this.writeVarLong(((long) index << 1) | 1);
+            return;
+        }
+        boolean indexed = this.writtenStrings.size() < this.dictionarySize;
+        int ascii = asciiPrefix(data);
+        int length = utf8Length(data, ascii);
+        long tag = ((length + 1L) << 2) | (indexed ? 2 : 0);
+        this.alloc_buffer(varLongSize(tag) + length);
+        this.putUtf8(this.putVarLong(nextPointer, tag), data, ascii);
+        if (indexed) this.writtenStrings.put(data, this.writtenStrings.size());
+    }
+
+    /*
+    Encodes the string into the storage starting from p, the first 'ascii' chars of the string are ASCII.
+     */
+    @SuppressWarnings("deprecation")
+    private void putUtf8(int p, String data, int ascii) {
+        int chars = data.length();
+        ByteBuffer s = this.storage;
+        if (s.hasArray()) data.getBytes(0, ascii, s.array(), s.arrayOffset() + p);
+        else for (int i = 0; i < ascii; i++) s.put(p + i, (byte) data.charAt(i));
+        p += ascii;
+
+        for (int i = ascii; i < chars; i++) {
+            char c = data.charAt(i);
+            if (c < 0x80) s.put(p++, (byte) c);
+            else if (c < 0x800) {
+                s.put(p++, (byte) (0xC0 | (c >> 6)));
+                s.put(p++, (byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(data.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, data.charAt(++i));
+                s.put(p++, (byte) (0xF0 | (codePoint >> 18)));
+                s.put(p++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                s.put(p++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                s.put(p++, (byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if (Character.isSurrogate(c)) s.put(p++, (byte) '?');
+            else {
+                s.put(p++, (byte) (0xE0 | (c >> 12)));
+                s.put(p++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                s.put(p++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        nextPointer = p;
+    }
+
+    public void writeString(String... data) throws IllegalStateException {
+        for (String value : data) this.writeString(value);
     }
 
     //endregion
@@ -600,29 +1703,100 @@ public class Buffer {
 
     //endregion
 
-    //region Read
+    //region Absolute Access
 
     /*
-    This method and the hash set it uses are simply utilities in order to have a simple way
-    to know if an object is a Boxed Primitive type i.e Integer, Double, Byte,...
-    This is useful in order to decide how to treat objects inside collections (and maps),
-    if the object is of a "primitive type" (Boxed types being the closest you can get inside collections)
-    we do not need to initialize the object and then read into it, we can simply read the primitive from the buffer
-    and then box it.
+    The methods in this region read and update primitives at a given index of the buffer's data, in either mode
+    and without moving the read/write pointer, so a single field of serialized data can be read (or a fixed width
+    field updated in place) without deserializing the object around it, see Flyweight.
+    in order to read or update a primitive of type T at some index use:
+    T myPrim = getT(index);
+    putT(index, myPrim);
+    The index is the number of bytes of data before the primitive, an update can only overwrite data that was written.
+    These methods are only supported by buffers that keep all of their data in their storage.
      */
-    private static boolean isBoxedPrimitive(Class<?> c) {
-        return primitiveClasses.contains(c);
+
+    /**
+     * Get the storage of the buffer for reading or updating 'size' bytes at the given index of the data,
+     * subclasses that do not keep all of their data in the storage override this method to throw UnsupportedOperationException.
+     * @param index the index of the first byte.
+     * @param size the number of bytes that will be read or updated.
+     * @return the storage of the buffer.
+     * @throws IndexOutOfBoundsException if the bytes are not all within the buffer's data.
+     */
+    ByteBuffer absoluteStorage(int index, int size) throws IndexOutOfBoundsException {
+        if (index < 0 || index > this.dataLength() - size)
+            throw new IndexOutOfBoundsException("index " + index + " with " + size + " bytes, the data has " + this.dataLength() + " bytes.");
+        return this.storage;
+    }
+
+    public byte getByte(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 1).get(index);
+    }
+
+    public boolean getBoolean(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 1).get(index) == 1;
+    }
+
+    public short getShort(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 2).getShort(index);
+    }
+
+    public char getChar(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 2).getChar(index);
     }
 
-    private static HashSet<Class<?>> primitiveClasses = new HashSet<>(Arrays.asList(
-            Byte.class,
-            Short.class,
-            Character.class,
-            Integer.class,
-            Float.class,
-            Long.class,
-            Double.class));
+    public int getInt(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 4).getInt(index);
+    }
+
+    public long getLong(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 8).getLong(index);
+    }
+
+    public float getFloat(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 4).getFloat(index);
+    }
+
+    public double getDouble(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        return this.absoluteStorage(index, 8).getDouble(index);
+    }
+
+    public void putByte(int index, byte value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 1).put(index, value);
+    }
+
+    public void putBoolean(int index, boolean value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 1).put(index, value ? (byte) 1 : (byte) 0);
+    }
+
+    public void putShort(int index, short value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 2).putShort(index, value);
+    }
+
+    public void putChar(int index, char value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 2).putChar(index, value);
+    }
 
+    public void putInt(int index, int value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 4).putInt(index, value);
+    }
+
+    public void putLong(int index, long value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 8).putLong(index, value);
+    }
+
+    public void putFloat(int index, float value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 4).putFloat(index, value);
+    }
+
+    public void putDouble(int index, double value) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        this.absoluteStorage(index, 8).putDouble(index, value);
+    }
+
+    //endregion
+
+    //region Read
 
     /**
      * Reads data form the buffer into the provided objects.
@@ -648,17 +1822,7 @@ public class Buffer {
      * @throws IllegalStateException if the buffer is in write mode.
      */
     public <T> void read(T dest) throws IllegalArgumentException, IllegalStateException {
-        if (dest instanceof byte[])             read((byte[])   dest);
-        else if (dest instanceof boolean[])     read((boolean[])dest);
-        else if (dest instanceof short[])       read((short[])  dest);
-        else if (dest instanceof char[])        read((char[])   dest);
-        else if (dest instanceof int[])         read((int[])    dest);
-        else if (dest instanceof long[])        read((long[])   dest);
-        else if (dest instanceof float[])       read((float[])  dest);
-        else if (dest instanceof double[])      read((double[]) dest);
-        else if (dest instanceof ISerializable) read((ISerializable) dest);
-        else if (dest instanceof ISerializable[]) read((ISerializable[]) dest);
-        else throw new IllegalArgumentException("trying to read an unsupported type - " + dest.getClass().getSimpleName() + ".");
+        Codec.of(dest.getClass()).read(this, dest);
     }
 
     /**
@@ -677,11 +1841,13 @@ public class Buffer {
      */
     public void read(ISerializable... dest) throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        Supplier<?> supplier = null;
         for (int i = 0; i < dest.length; i++) {
             if (dest[i] == null) {
+                if (supplier == null) supplier = Instantiator.of(dest.getClass().getComponentType());
                 try {
-                    dest[i] = (ISerializable) dest.getClass().getComponentType().getConstructor().newInstance();
-                } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+                    dest[i] = (ISerializable) supplier.get();
+                } catch (IllegalArgumentException e) {
                     throw new IllegalArgumentException("The " + i + " argument provided was null and did not define an empty constructor, " +
                             "all readable types must define an empty constructor.");
                 }
@@ -754,20 +1920,16 @@ public class Buffer {
      * @throws IllegalArgumentException if the type provided is not supported for reading. (all readable types must have empty constructor)
      */
     public <T> void read(Collection<T> dest, Class<T> type, int amount) throws IllegalStateException, IllegalArgumentException {
-        for (int i = 0; i < amount; i++) {
-            T elem;
-            if (isBoxedPrimitive(type)) elem = readPrimitive(type);
-            else {
-                try { elem = type.getDeclaredConstructor().newInstance(); }
-                catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-                    throw new IllegalArgumentException("Cannot read object of type - " + type.getSimpleName() +
-                            ", all readable classes must have an empty constructor");
-                }
-                read(elem);
-            }
+        Codec codec = Codec.of(type);
+        Supplier<T> supplier = Instantiator.of(type);
+        for (int i = 0; i < amount; i++) dest.add(this.readElement(codec, supplier, type));
+    }
 
-            dest.add(elem);
-        }
+    private <T> T readElement(Codec codec, Supplier<T> supplier, Class<T> type) {
+        if (codec.isValue()) return type.cast(codec.readValue(this));
+        T elem = supplier.get();
+        codec.read(this, elem);
+        return elem;
     }
 
     /**
@@ -784,23 +1946,21 @@ public class Buffer {
      * @throws IllegalStateException if the buffer is in write mode.
      */
     public <K, V> void read(Map<K, V> dest, Class<K> keyType, Class<V> valueType, int amount) throws IllegalStateException {
+        Codec keyCodec = Codec.of(keyType), valueCodec = Codec.of(valueType);
+        Supplier<K> keySupplier = Instantiator.of(keyType);
+        Supplier<V> valueSupplier = Instantiator.of(valueType);
         for (int i = 0; i < amount; i++) {
             K key;
             V value;
-            try {
-                if (isBoxedPrimitive(keyType)) key = readPrimitive(keyType);
-                else {
-                    key = keyType.getDeclaredConstructor().newInstance();
-                    read(key);
-                }
-                if (isBoxedPrimitive(valueType)) value = readPrimitive(valueType);
-                else {
-                    value = valueType.getDeclaredConstructor().newInstance();
-                    read(value);
-                }
-            } catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-                throw new IllegalArgumentException("Cannot read object of type - Map<" + keyType.getSimpleName() +
-                        ", " + valueType + "> , all readable classes must have an empty constructor");
+            if (keyCodec.isValue()) key = keyType.cast(keyCodec.readValue(this));
+            else {
+                key = keySupplier.get();
+                keyCodec.read(this, key);
+            }
+            if (valueCodec.isValue()) value = valueType.cast(valueCodec.readValue(this));
+            else {
+                value = valueSupplier.get();
+                valueCodec.read(this, value);
             }
 
             dest.put(key, value);
@@ -820,15 +1980,10 @@ public class Buffer {
      */
     public <T> void read(Collection<T> dest, IDeserializer<T> deserializer, int amount) throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        Supplier<T> supplier = Instantiator.of(deserializer.getTypeClass());
         for (int i = 0; i < amount; i++) {
-            T elem;
-            Class<T> type = deserializer.getTypeClass();
-            try { elem = type.getDeclaredConstructor().newInstance(); }
-            catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-                throw new IllegalArgumentException("Cannot read object of type - " + type.getSimpleName() +
-                        ", all readable classes must have an empty constructor");
-            }
-            read(elem);
+            T elem = supplier.get();
+            deserializer.deserialize(elem, this);
             dest.add(elem);
         }
     }
@@ -845,43 +2000,270 @@ public class Buffer {
      */
     public <K, V> void read(Map<K, V> dest, IDeserializer<K> keyDe, IDeserializer<V> valueDe, int amount) throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        K key;
-        V value;
-        Class<K> keyType = keyDe.getTypeClass();
-        Class<V> valueType = valueDe.getTypeClass();
-        try {
-            key = keyType.getDeclaredConstructor().newInstance();
-            value = valueType.getDeclaredConstructor().newInstance();
-        } catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-            throw new IllegalArgumentException("Cannot read object of type - Map<" + keyType.getSimpleName() +
-                    ", " + valueType + "> , all readable classes must have an empty constructor");
+        Supplier<K> keySupplier = Instantiator.of(keyDe.getTypeClass());
+        Supplier<V> valueSupplier = Instantiator.of(valueDe.getTypeClass());
+        for (int i = 0; i < amount; i++) {
+            K key = keySupplier.get();
+            V value = valueSupplier.get();
+            keyDe.deserialize(key, this);
+            valueDe.deserialize(value, this);
+            dest.put(key, value);
         }
-        keyDe.deserialize(key, this);
-        valueDe.deserialize(value, this);
-        dest.put(key, value);
     }
 
-    //region Read Primitive
+    //region Read Framed
 
     /*
-    This method is used internally in order to read primitive types into their boxed form,
-    it can be thought of as a generic wrapper to all the other primitive read methods,
-    and in order to decide which one to invoke we receive a Class object and decide according
-    to it for example if the Class represents an Integer we use readInt.
-     */
-    @SuppressWarnings("unchecked")
-    private <T> T readPrimitive(Class<T> c) {
-        if (c.equals(Byte.class)) return (T) Byte.valueOf(readByte());
-        else if (c.equals(Boolean.class)) return (T) Boolean.valueOf(readBoolean());
-        else if (c.equals(Short.class)) return (T) Short.valueOf(readShort());
-        else if (c.equals(Character.class)) return (T) Character.valueOf(readChar());
-        else if (c.equals(Integer.class)) return (T) Integer.valueOf(readInt());
-        else if (c.equals(Float.class)) return (T) Float.valueOf(readFloat());
-        else if (c.equals(Long.class)) return (T) Long.valueOf(readLong());
-        else if (c.equals(Double.class)) return (T) Double.valueOf(readDouble());
-        throw new IllegalArgumentException("The Class - " + c.getSimpleName() + " is not primitive!");
+    The methods in this region read collections and maps that were written with writeList and writeMap,
+    the size is read first so the returned ArrayList or HashMap is created with the capacity for all the elements
+    and never grows (or rehashes) while it is being filled.
+    The size comes from the data, so the capacity is capped at MAX_PRESIZE elements and larger collections grow past it,
+    a corrupt size fails when the elements run out instead of allocating a huge array up front.
+     */
+
+    private static final int MAX_PRESIZE = 1 << 16;
+
+    /**
+     * Reads the size of a framed collection or map.
+     * @return the number of elements, or -1 if a null collection was written.
+     */
+    private int readSize() throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        int size = this.decodeVarInt() - 1;
+        if (size < -1) throw new IllegalStateException("Malformed collection size in buffer.");
+        return size;
     }
 
+    /*
+    The capacity a HashMap needs to hold 'size' mappings without rehashing (with the default load factor).
+     */
+    private static int mapCapacity(int size) {
+        size = Math.min(size, MAX_PRESIZE);
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1);
+    }
+
+    /**
+     * Reads a collection that was written with writeList.
+     * @param type the type of the elements.
+     * @param <T> the type of the elements.
+     * @return a list with the elements that were read, or null if a null collection was written.
+     * @throws IllegalStateException if the buffer is in write mode.
+     * @throws IllegalArgumentException if the type provided is not supported for reading. (all readable types must have empty constructor)
+     */
+    public <T> ArrayList<T> readList(Class<T> type) throws IllegalStateException, IllegalArgumentException {
+        int size = this.readSize();
+        if (size < 0) return null;
+        ArrayList<T> dest = new ArrayList<>(Math.min(size, MAX_PRESIZE));
+        this.read(dest, type, size);
+        return dest;
+    }
+
+    /**
+     * Reads a collection that was written with writeList using the provided 'deserializer'.
+     * @param deserializer the deserializer that should be used to read the elements.
+     * @param <T> the type of the elements.
+     * @return a list with the elements that were read, or null if a null collection was written.
+     * @throws IllegalStateException if the buffer is in write mode.
+     */
+    public <T> ArrayList<T> readList(IDeserializer<T> deserializer) throws IllegalStateException {
+        int size = this.readSize();
+        if (size < 0) return null;
+        ArrayList<T> dest = new ArrayList<>(Math.min(size, MAX_PRESIZE));
+        this.read(dest, deserializer, size);
+        return dest;
+    }
+
+    /**
+     * Reads a map that was written with writeMap.
+     * @param keyType the Class of the keys in the map.
+     * @param valueType the Class of the values in the map.
+     * @param <K> the type of the keys in the map.
+     * @param <V> the type of the values in the map.
+     * @return a map with the mappings that were read, or null if a null map was written.
+     * @throws IllegalStateException if the buffer is in write mode.
+     */
+    public <K, V> HashMap<K, V> readMap(Class<K> keyType, Class<V> valueType) throws IllegalStateException {
+        int size = this.readSize();
+        if (size < 0) return null;
+        HashMap<K, V> dest = new HashMap<>(mapCapacity(size));
+        this.read(dest, keyType, valueType, size);
+        return dest;
+    }
+
+    /**
+     * Reads a map that was written with writeMap using the provided deserializers.
+     * @param keyDe the deserializer that should be used to read keys.
+     * @param valueDe the deserializer that should be used to read values.
+     * @param <K> the type of the keys in the map.
+     * @param <V> the type of the values in the map.
+     * @return a map with the mappings that were read, or null if a null map was written.
+     * @throws IllegalStateException if the buffer is in write mode.
+     */
+    public <K, V> HashMap<K, V> readMap(IDeserializer<K> keyDe, IDeserializer<V> valueDe) throws IllegalStateException {
+        int size = this.readSize();
+        if (size < 0) return null;
+        HashMap<K, V> dest = new HashMap<>(mapCapacity(size));
+        this.read(dest, keyDe, valueDe, size);
+        return dest;
+    }
+
+    //endregion
+
+    //region Read Records
+
+    /*
+    The methods in this region read records that were written with writeRecord, they need the record index
+    at the end of the buffer and a buffer that can move its pointer to any position.
+    Reading a record moves the pointer straight to the record's position, so any other data
+    that was written between the records is skipped.
+     */
+
+    /**
+     * Reads the number of records in the index at the end of the buffer's data, the pointer is left after the index.
+     * @param size the size of the buffer's data.
+     * @return the number of records.
+     */
+    private int recordCount(long size) throws IllegalStateException {
+        if (size < 8) throw new IllegalStateException("The buffer does not end with a record index.");
+        this.setPosition(size - 8);
+        int count = this.readInt();
+        if (this.readInt() != RECORD_INDEX_MAGIC || count < 0 || 4L * count > size - 8)
+            throw new IllegalStateException("The buffer does not end with a record index.");
+        return count;
+    }
+
+    /**
+     * Get the number of records in the record index at the end of the buffer, the pointer is not moved.
+     * @return the number of records.
+     * @throws IllegalStateException if the buffer is in WRITE mode or it does not end with a record index.
+     * @throws UnsupportedOperationException if the buffer cannot move its pointer to any position.
+     */
+    public int getRecordCount() throws IllegalStateException, UnsupportedOperationException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        long position = this.getPosition();
+        try {
+            return this.recordCount(this.getSize());
+        } finally {
+            this.setPosition(position);
+        }
+    }
+
+    /**
+     * Reads the positions of all the records from the record index at the end of the buffer, the pointer is not moved.
+     * A record can be read at its position without moving the pointer through a Flyweight or the absolute get methods.
+     * @return the positions of the records, in the order they were written.
+     * @throws IllegalStateException if the buffer is in WRITE mode or it does not end with a record index.
+     * @throws UnsupportedOperationException if the buffer cannot move its pointer to any position.
+     */
+    public int[] getRecordPositions() throws IllegalStateException, UnsupportedOperationException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        long position = this.getPosition();
+        try {
+            return this.recordPositions(this.getSize());
+        } finally {
+            this.setPosition(position);
+        }
+    }
+
+    private int[] recordPositions(long size) throws IllegalStateException {
+        int count = this.recordCount(size);
+        int[] positions = new int[count];
+        this.setPosition(size - 8 - 4L * count);
+        this.read(positions);
+        return positions;
+    }
+
+    /**
+     * Moves the read pointer to the start of the record with the given index, the record (and anything after it)
+     * can then be read like any other data.
+     * @param index the index of the record, records are numbered in the order they were written.
+     * @throws IndexOutOfBoundsException if there is no record with the given index.
+     * @throws IllegalStateException if the buffer is in WRITE mode or it does not end with a record index.
+     * @throws UnsupportedOperationException if the buffer cannot move its pointer to any position.
+     */
+    public void seekRecord(int index) throws IndexOutOfBoundsException, IllegalStateException, UnsupportedOperationException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        long size = this.getSize();
+        int count = this.recordCount(size);
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("record " + index + " of " + count + " records.");
+        this.setPosition(size - 8 - 4L * (count - index));
+        this.setPosition(this.readInt());
+    }
+
+    /**
+     * Reads all the records in the buffer, the records are split into ranges that are read at the same time
+     * on the common ForkJoinPool, each range with a pointer of its own.
+     * When there are only a few records (or a single thread) they are all read on the calling thread.
+     * The pointer is left at the end of the buffer's data.
+     * note: reading the records in parallel is only safe when the deserialization of a record does not touch
+     * shared state.
+     * @param type the type of the records.
+     * @param <T> the type of the records.
+     * @return a list with the records in the order they were written.
+     * @throws IllegalStateException if the buffer is in WRITE mode or it does not end with a record index.
+     * @throws IllegalArgumentException if the type provided is not supported for reading. (all readable types must have empty constructor)
+     * @throws UnsupportedOperationException if the buffer cannot move its pointer to any position.
+     */
+    public <T> ArrayList<T> readRecordsParallel(Class<T> type) throws IllegalStateException, IllegalArgumentException, UnsupportedOperationException {
+        Codec codec = Codec.of(type);
+        Supplier<T> supplier = Instantiator.of(type);
+        return this.readRecordsParallel(buffer -> buffer.readElement(codec, supplier, type));
+    }
+
+    /**
+     * Reads all the records in the buffer using the provided 'deserializer'.
+     * @param deserializer the deserializer that should be used to read the records.
+     * @param <T> the type of the records.
+     * @return a list with the records in the order they were written.
+     * @see Buffer#readRecordsParallel(Class)
+     */
+    public <T> ArrayList<T> readRecordsParallel(IDeserializer<T> deserializer) throws IllegalStateException, UnsupportedOperationException {
+        Supplier<T> supplier = Instantiator.of(deserializer.getTypeClass());
+        return this.readRecordsParallel(buffer -> {
+            T record = supplier.get();
+            deserializer.deserialize(record, buffer);
+            return record;
+        });
+    }
+
+    private <T> ArrayList<T> readRecordsParallel(Function<Buffer, T> reader) throws IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        long size = this.getSize();
+        int[] positions = this.recordPositions(size);
+        int count = positions.length;
+
+        int ranges = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, count / MIN_PARALLEL_RECORDS);
+        ArrayList<T> records;
+        if (ranges < 2) records = readRecords(this, positions, 0, count, reader);
+        else {
+            List<ForkJoinTask<ArrayList<T>>> tasks = new ArrayList<>(ranges);
+            for (int i = 0; i < ranges; i++) {
+                Buffer view = this.readView();
+                int from = (int) ((long) count * i / ranges), to = (int) ((long) count * (i + 1) / ranges);
+                tasks.add(ForkJoinTask.adapt(() -> readRecords(view, positions, from, to, reader)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            records = new ArrayList<>(count);
+            for (ForkJoinTask<ArrayList<T>> task : tasks) records.addAll(task.join());
+        }
+        this.setPosition(size);
+        return records;
+    }
+
+    private static <T> ArrayList<T> readRecords(Buffer buffer, int[] positions, int from, int to, Function<Buffer, T> reader) {
+        ArrayList<T> records = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            buffer.setPosition(positions[i]);
+            records.add(reader.apply(buffer));
+        }
+        return records;
+    }
+
+    //endregion
+
+    //region Read Primitive
+
 	/*
 	The methods in this section read primitive types,
 	in order to read type T (assuming T is primitive) use:
@@ -894,53 +2276,46 @@ public class Buffer {
 
     public byte readByte() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        return this.data[nextPointer++];
+        this.ensureReadable(1);
+        return this.storage.get(nextPointer++);
     }
 
     public boolean readBoolean() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        return this.data[nextPointer++] == 1;
+        this.ensureReadable(1);
+        return this.storage.get(nextPointer++) == 1;
     }
 
     public short readShort() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        byte b1 = data[nextPointer++];
-        byte b0 = data[nextPointer++];
-
-        return (short) (((b1 & 0xff) << 8) | (b0 & 0xff));
+        this.ensureReadable(2);
+        short value = this.storage.getShort(nextPointer);
+        nextPointer += 2;
+        return value;
     }
 
     public char readChar() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        byte b1 = data[nextPointer++];
-        byte b0 = data[nextPointer++];
-
-        return (char) (((b1 & 0xff) << 8) | (b0 & 0xff));
+        this.ensureReadable(2);
+        char value = this.storage.getChar(nextPointer);
+        nextPointer += 2;
+        return value;
     }
 
     public int readInt() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        byte b3 = data[nextPointer++];
-        byte b2 = data[nextPointer++];
-        byte b1 = data[nextPointer++];
-        byte b0 = data[nextPointer++];
-
-        return (((b3 & 0xff) << 24) | ((b2 & 0xff) << 16) |((b1 & 0xff) << 8) | (b0 & 0xff));
+        this.ensureReadable(4);
+        int value = this.storage.getInt(nextPointer);
+        nextPointer += 4;
+        return value;
     }
 
     public long readLong() throws IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        byte b7 = data[nextPointer++];
-        byte b6 = data[nextPointer++];
-        byte b5 = data[nextPointer++];
-        byte b4 = data[nextPointer++];
-        byte b3 = data[nextPointer++];
-        byte b2 = data[nextPointer++];
-        byte b1 = data[nextPointer++];
-        byte b0 = data[nextPointer++];
-
-        return  (((b7 & 0xffL) << 56) | ((b6 & 0xffL) << 48) | ((b5 & 0xffL) << 40) | ((b4 & 0xffL) << 32)
-                | ((b3 & 0xffL) << 24) | ((b2 & 0xffL) << 16) | ((b1 & 0xffL) << 8) | (b0 & 0xffL));
+        this.ensureReadable(8);
+        long value = this.storage.getLong(nextPointer);
+        nextPointer += 8;
+        return value;
     }
 
     public float readFloat() throws IllegalStateException {
@@ -953,105 +2328,498 @@ public class Buffer {
 
     //region Read Primitive Array
 
-    public void read(byte[] dest) throws BufferOverflowException, IllegalStateException {
+    /**
+     * Reads the length of an array that was written before its elements, a negative length marks a null array.
+     * Serializers read lengths with it so that a length read from corrupt data is rejected before the array is allocated.
+     * @param elementSize the number of bytes every element of the array is written into.
+     * @return the length of the array, or -1 if a null array was written.
+     * @throws BufferUnderflowException if there are not enough bytes left in the buffer for the length.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data ends before all the elements.
+     */
+    public int readArrayLength(int elementSize) throws BufferUnderflowException, IllegalStateException {
+        int length = this.readInt();
+        if (length < 0) return -1;
+        if (!this.isReadable((long) elementSize * length)) throw new IllegalStateException("Malformed array length in buffer.");
+        return length;
+    }
+
+    public void read(byte[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        for (int i = 0; i < dest.length; i++) {
-            dest[i] = this.data[nextPointer++];
-        }
+        this.ensureReadable(dest.length);
+        this.storageAt(nextPointer).get(dest);
+        nextPointer += dest.length;
     }
 
-    public void read(boolean[] dest) throws BufferOverflowException, IllegalStateException {
+    public void read(boolean[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if(this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
+        this.ensureReadable(dest.length);
         for (int i = 0; i < dest.length; i++) {
-            dest[i] = this.data[nextPointer++] == 1;
+            dest[i] = this.storage.get(nextPointer++) == 1;
         }
     }
 
-    public void read(short[] dest) throws BufferOverflowException, IllegalStateException {
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b1, b0;
-        for (int i = 0; i < dest.length; i++) {
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            dest[i] = (short) (((b1 & 0xff) << 8) | (b0 & 0xff));
-        }
+    public void read(short[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        this.ensureReadable(2L * dest.length);
+        this.storageAt(nextPointer).asShortBuffer().get(dest);
+        nextPointer += 2 * dest.length;
     }
 
-    public void read(char[] dest) throws BufferOverflowException, IllegalStateException {
+    public void read(char[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b1, b0;
-        for (int i = 0; i < dest.length; i++) {
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            dest[i] = (char) (((b1 & 0xff) << 8) | (b0 & 0xff));
-        }
+        this.ensureReadable(2L * dest.length);
+        this.storageAt(nextPointer).asCharBuffer().get(dest);
+        nextPointer += 2 * dest.length;
     }
 
-    public void read(int[] dest) throws BufferOverflowException, IllegalStateException {
+    public void read(int[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b3, b2, b1, b0;
-        for (int i = 0; i < dest.length; i++) {
-            b3 = data[nextPointer++];
-            b2 = data[nextPointer++];
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            dest[i] = (((b3 & 0xff) << 24) | ((b2 & 0xff) << 16) |((b1 & 0xff) << 8) | (b0 & 0xff));
+        this.ensureReadable(4L * dest.length);
+        this.storageAt(nextPointer).asIntBuffer().get(dest);
+        nextPointer += 4 * dest.length;
+    }
+
+    public void read(long[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        this.ensureReadable(8L * dest.length);
+        this.storageAt(nextPointer).asLongBuffer().get(dest);
+        nextPointer += 8 * dest.length;
+    }
+
+    /**
+     * Reads 'length' ints into the array starting from index 'offset'.
+     * @param dest the array to read into.
+     * @param offset the index the first int is read into.
+     * @param length the number of ints that should be read.
+     * @throws IndexOutOfBoundsException if the range is not inside the array.
+     * @throws BufferUnderflowException if the buffer ends before all the ints were read.
+     * @throws IllegalStateException if the buffer is in WRITE mode.
+     */
+    public void read(int[] dest, int offset, int length) throws IndexOutOfBoundsException, BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        if ((offset | length) < 0 || offset > dest.length - length) throw new IndexOutOfBoundsException();
+        this.ensureReadable(4L * length);
+        this.storageAt(nextPointer).asIntBuffer().get(dest, offset, length);
+        nextPointer += 4 * length;
+    }
+
+    /**
+     * Reads 'length' longs into the array starting from index 'offset'.
+     * @param dest the array to read into.
+     * @param offset the index the first long is read into.
+     * @param length the number of longs that should be read.
+     * @throws IndexOutOfBoundsException if the range is not inside the array.
+     * @throws BufferUnderflowException if the buffer ends before all the longs were read.
+     * @throws IllegalStateException if the buffer is in WRITE mode.
+     */
+    public void read(long[] dest, int offset, int length) throws IndexOutOfBoundsException, BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        if ((offset | length) < 0 || offset > dest.length - length) throw new IndexOutOfBoundsException();
+        this.ensureReadable(8L * length);
+        this.storageAt(nextPointer).asLongBuffer().get(dest, offset, length);
+        nextPointer += 8 * length;
+    }
+
+    public void read(float[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        this.ensureReadable(4L * dest.length);
+        this.storageAt(nextPointer).asFloatBuffer().get(dest);
+        nextPointer += 4 * dest.length;
+    }
+
+    public void read(double[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        this.ensureReadable(8L * dest.length);
+        this.storageAt(nextPointer).asDoubleBuffer().get(dest);
+        nextPointer += 8 * dest.length;
+    }
+
+    //endregion
+
+    //region Read VarInt
+
+    /*
+    When the maximal length of the encoded value is known to be readable the value is decoded
+    with the unrolled methods below, which do not check the bounds of every byte and do not loop,
+    each byte is xor-ed into the result and the continuation bits are cleared once the last byte is found.
+    Near the end of the buffer (or of the data that was brought into it) the value is decoded
+    one byte at a time instead.
+     */
+
+    private static IllegalStateException malformedVarInt() {
+        return new IllegalStateException("Malformed variable length integer in buffer.");
+    }
+
+    private int decodeVarInt() throws BufferUnderflowException, IllegalStateException {
+        if (this.storage.limit() - nextPointer < 5) return (int) this.decodeVarSlow(5);
+        ByteBuffer s = this.storage;
+        int p = nextPointer;
+        int x;
+        if ((x = s.get(p++)) >= 0) {
+            nextPointer = p;
+            return x;
+        }
+        if ((x ^= (s.get(p++) << 7)) < 0) {
+            x ^= (~0 << 7);
+        } else if ((x ^= (s.get(p++) << 14)) >= 0) {
+            x ^= (~0 << 7) ^ (~0 << 14);
+        } else if ((x ^= (s.get(p++) << 21)) < 0) {
+            x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21);
+        } else {
+            int y = s.get(p++);
+            if (y < 0 || y > 0x0F) throw malformedVarInt();
+            x ^= y << 28;
+            x ^= (~0 << 7) ^ (~0 << 14) ^ (~0 << 21) ^ (~0 << 28);
+        }
+        nextPointer = p;
+        return x;
+    }
+
+    private long decodeVarLong() throws BufferUnderflowException, IllegalStateException {
+        if (this.storage.limit() - nextPointer < 10) return this.decodeVarSlow(10);
+        ByteBuffer s = this.storage;
+        int p = nextPointer;
+        long x;
+        int y;
+        if ((y = s.get(p++)) >= 0) {
+            nextPointer = p;
+            return y;
         }
+        if ((y ^= (s.get(p++) << 7)) < 0) {
+            x = y ^ (~0 << 7);
+        } else if ((y ^= (s.get(p++) << 14)) >= 0) {
+            x = y ^ ((~0 << 7) ^ (~0 << 14));
+        } else if ((y ^= (s.get(p++) << 21)) < 0) {
+            x = y ^ ((~0 << 7) ^ (~0 << 14) ^ (~0 << 21));
+        } else if ((x = y ^ ((long) s.get(p++) << 28)) >= 0L) {
+            x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28);
+        } else if ((x ^= ((long) s.get(p++) << 35)) < 0L) {
+            x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35);
+        } else if ((x ^= ((long) s.get(p++) << 42)) >= 0L) {
+            x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35) ^ (~0L << 42);
+        } else if ((x ^= ((long) s.get(p++) << 49)) < 0L) {
+            x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35) ^ (~0L << 42)
+                    ^ (~0L << 49);
+        } else {
+            x ^= ((long) s.get(p++) << 56);
+            x ^= (~0L << 7) ^ (~0L << 14) ^ (~0L << 21) ^ (~0L << 28) ^ (~0L << 35) ^ (~0L << 42)
+                    ^ (~0L << 49) ^ (~0L << 56);
+            if (x < 0L) {
+                int last = s.get(p++);
+                if (last != 1) throw malformedVarInt();
+            }
+        }
+        nextPointer = p;
+        return x;
+    }
+
+    private long decodeVarSlow(int maxBytes) throws BufferUnderflowException, IllegalStateException {
+        long result = 0;
+        for (int shift = 0; shift < 7 * maxBytes; shift += 7) {
+            this.ensureReadable(1);
+            byte b = this.storage.get(nextPointer++);
+            // the last byte only holds the top bits of the value, the same bytes are rejected by the fast paths.
+            if (shift == 7 * (maxBytes - 1) && (maxBytes == 5 ? b < 0 || b > 0x0F : b != 1)) throw malformedVarInt();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+        throw malformedVarInt();
+    }
+
+    /**
+     * Reads an int that was written with writeVarInt.
+     * @return the int that was read.
+     * @throws BufferUnderflowException if the buffer ends before the end of the value.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid variable length int.
+     */
+    public int readVarInt() throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        return this.decodeVarInt();
+    }
+
+    /**
+     * Reads a long that was written with writeVarLong.
+     * @return the long that was read.
+     * @throws BufferUnderflowException if the buffer ends before the end of the value.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid variable length long.
+     */
+    public long readVarLong() throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        return this.decodeVarLong();
+    }
+
+    /**
+     * Reads an int that was written with writeSignedVarInt.
+     * @return the int that was read.
+     * @throws BufferUnderflowException if the buffer ends before the end of the value.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid variable length int.
+     */
+    public int readSignedVarInt() throws BufferUnderflowException, IllegalStateException {
+        int value = this.readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a long that was written with writeSignedVarLong.
+     * @return the long that was read.
+     * @throws BufferUnderflowException if the buffer ends before the end of the value.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid variable length long.
+     */
+    public long readSignedVarLong() throws BufferUnderflowException, IllegalStateException {
+        long value = this.readVarLong();
+        return (value >>> 1) ^ -(value & 1);
     }
 
-    public void read(long[] dest) throws BufferOverflowException, IllegalStateException {
+    public void readVarInt(int[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        for (int i = 0; i < dest.length; i++) dest[i] = this.decodeVarInt();
+    }
+
+    public void readVarLong(long[] dest) throws BufferUnderflowException, IllegalStateException {
+        if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
+        for (int i = 0; i < dest.length; i++) dest[i] = this.decodeVarLong();
+    }
+
+    public void readSignedVarInt(int[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b7, b6, b5, b4, b3, b2, b1, b0;
         for (int i = 0; i < dest.length; i++) {
-            b7 = data[nextPointer++];
-            b6 = data[nextPointer++];
-            b5 = data[nextPointer++];
-            b4 = data[nextPointer++];
-            b3 = data[nextPointer++];
-            b2 = data[nextPointer++];
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            dest[i] = (((b7 & 0xffL) << 56) | ((b6 & 0xffL) << 48) | ((b5 & 0xffL) << 40) | ((b4 & 0xffL) << 32)
-                    | ((b3 & 0xffL) << 24) | ((b2 & 0xffL) << 16) | ((b1 & 0xffL) << 8) | (b0 & 0xffL));
+            int value = this.decodeVarInt();
+            dest[i] = (value >>> 1) ^ -(value & 1);
         }
     }
 
-    public void read(float[] dest) throws BufferOverflowException, IllegalStateException {
+    public void readSignedVarLong(long[] dest) throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b3, b2, b1, b0;
         for (int i = 0; i < dest.length; i++) {
-            b3 = data[nextPointer++];
-            b2 = data[nextPointer++];
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            int intVal = (((b3 & 0xff) << 24) | ((b2 & 0xff) << 16) |((b1 & 0xff) << 8) | (b0 & 0xff));
-            dest[i] = Float.intBitsToFloat(intVal);
+            long value = this.decodeVarLong();
+            dest[i] = (value >>> 1) ^ -(value & 1);
         }
     }
 
-    public void read(double[] dest) throws BufferOverflowException, IllegalStateException {
+    //endregion
+
+    //region Read String
+
+    /*
+    readString creates the string from the UTF-8 bytes in the storage without copying them first
+    (when the storage is on the heap), the JDK decodes ASCII bytes in bulk. The JDK replaces malformed bytes with U+FFFD,
+    so the bytes of a string that contains it are validated again to reject malformed data like the other methods do.
+    The methods that read into a char[] or a StringBuilder decode the bytes themselves so that
+    repeatedly read strings do not allocate, ASCII bytes are copied as they are and only the other bytes go through the decoder.
+     */
+
+    private static IllegalStateException malformedString() {
+        return new IllegalStateException("Malformed UTF-8 string in buffer.");
+    }
+
+    /**
+     * Reads the length of the next string and makes all of its bytes readable,
+     * in dictionary mode the string may instead be a reference to a string that was already read.
+     * @return the length of the string in bytes, -1 if a null string was written,
+     * or (-2 - index) if the string is the string with the given index in the dictionary.
+     */
+    private int readStringLength() throws BufferUnderflowException, IllegalStateException {
         if (this.mode == MODE.WRITE) throw new IllegalStateException("Cannot read from buffer while in WRITE mode.");
-        if (this.data.length < this.nextPointer + dest.length) throw new BufferOverflowException();
-        byte b7, b6, b5, b4, b3, b2, b1, b0;
-        for (int i = 0; i < dest.length; i++) {
-            b7 = data[nextPointer++];
-            b6 = data[nextPointer++];
-            b5 = data[nextPointer++];
-            b4 = data[nextPointer++];
-            b3 = data[nextPointer++];
-            b2 = data[nextPointer++];
-            b1 = data[nextPointer++];
-            b0 = data[nextPointer++];
-            long longVal = (((b7 & 0xffL) << 56) | ((b6 & 0xffL) << 48) | ((b5 & 0xffL) << 40) | ((b4 & 0xffL) << 32)
-                    | ((b3 & 0xffL) << 24) | ((b2 & 0xffL) << 16) | ((b1 & 0xffL) << 8) | (b0 & 0xffL));
-            dest[i] = Double.longBitsToDouble(longVal);
+        int length;
+        if (this.dictionarySize > 0) {
+            long tag = this.decodeVarLong();
+            if ((tag & 1) != 0) {
+                long index = tag >>> 1;
+                if (index > MAX_CAPACITY) throw malformedString();
+                return (int) (-2 - index);
+            }
+            if ((tag != 0 && (tag >>> 2) == 0) || (tag >>> 2) - 1 > MAX_CAPACITY) throw malformedString();
+            this.indexString = (tag & 2) != 0;
+            length = (int) ((tag >>> 2) - 1);
+        }
+        else {
+            this.indexString = false;
+            length = this.decodeVarInt() - 1;
+            if (length < -1) throw malformedString();
+        }
+        if (length > 0) this.ensureReadable(length);
+        return length;
+    }
+
+    /*
+    The string a dictionary reference returned by readStringLength refers to.
+     */
+    private String dictionaryString(int reference) throws IllegalStateException {
+        int index = -2 - reference;
+        if (this.readStrings == null || index >= this.readStrings.size()) throw malformedString();
+        return this.readStrings.get(index);
+    }
+
+    /*
+    Decodes the 'length' bytes at the pointer into a new string, without moving the pointer.
+     */
+    private String decodeString(int length) throws IllegalStateException {
+        String value;
+        if (this.storage.hasArray())
+            value = new String(this.storage.array(), this.storage.arrayOffset() + nextPointer, length, StandardCharsets.UTF_8);
+        else {
+            byte[] bytes = new byte[length];
+            this.storageAt(nextPointer).get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (value.indexOf('\uFFFD') >= 0) {
+            for (int p = nextPointer, end = p + length; p < end; ) {
+                int b = this.storage.get(p);
+                if (b >= 0) p++;
+                else {
+                    this.decodeUtf8(p, end);
+                    p += utf8SequenceLength(b);
+                }
+            }
+        }
+        return value;
+    }
+
+    /*
+    Adds a string that was just read to the dictionary, if the writer added it to its dictionary.
+     */
+    private void indexString(String value) {
+        if (!this.indexString) return;
+        if (this.readStrings == null) this.readStrings = new ArrayList<>();
+        this.readStrings.add(value);
+    }
+
+    /**
+     * Reads a string that was written with writeString.
+     * @return the string that was read, may be null.
+     * @throws BufferUnderflowException if the buffer ends before the end of the string.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid string.
+     */
+    public String readString() throws BufferUnderflowException, IllegalStateException {
+        int length = this.readStringLength();
+        if (length < -1) return this.dictionaryString(length);
+        if (length < 0) return null;
+        String value = this.decodeString(length);
+        nextPointer += length;
+        this.indexString(value);
+        return value;
+    }
+
+    /**
+     * Reads a string that was written with writeString into the given array, starting from its first index.
+     * @param dest the array the chars of the string are read into.
+     * @return the number of chars that were read, or -1 if a null string was written.
+     * @throws BufferUnderflowException if the buffer ends before the end of the string.
+     * @throws IllegalArgumentException if the string does not fit in the array, the string is skipped in this case.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid string.
+     */
+    public int readString(char[] dest) throws BufferUnderflowException, IllegalArgumentException, IllegalStateException {
+        int length = this.readStringLength();
+        if (length < -1) {
+            String value = this.dictionaryString(length);
+            if (value.length() > dest.length)
+                throw new IllegalArgumentException("the string does not fit in an array of " + dest.length + " chars.");
+            value.getChars(0, value.length(), dest, 0);
+            return value.length();
+        }
+        if (length < 0) return -1;
+        ByteBuffer s = this.storage;
+        int p = nextPointer, end = p + length, n = 0;
+        // a string never has more chars than bytes, the chars are only counted when the array may be too short.
+        if (length > dest.length && this.utf16Length(p, end) > dest.length) {
+            // later references to the skipped string must still find it in the dictionary.
+            if (this.indexString) this.indexString(this.decodeString(length));
+            nextPointer = end;
+            throw new IllegalArgumentException("the string does not fit in an array of " + dest.length + " chars.");
+        }
+        while (p < end) {
+            int b = s.get(p);
+            if (b >= 0) {
+                dest[n++] = (char) b;
+                p++;
+                continue;
+            }
+            int codePoint = this.decodeUtf8(p, end);
+            p += utf8SequenceLength(b);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) dest[n++] = (char) codePoint;
+            else {
+                dest[n++] = Character.highSurrogate(codePoint);
+                dest[n++] = Character.lowSurrogate(codePoint);
+            }
+        }
+        nextPointer = end;
+        if (this.indexString) this.indexString(new String(dest, 0, n));
+        return n;
+    }
+
+    /*
+    The number of chars the UTF-8 bytes between p and end decode into, every byte that is not a continuation byte
+    starts a char, and the four byte sequences decode into two chars.
+     */
+    private int utf16Length(int p, int end) {
+        int chars = 0;
+        for (; p < end; p++) {
+            int b = this.storage.get(p);
+            if ((b & 0xC0) != 0x80) chars++;
+            if ((b & 0xF8) == 0xF0) chars++;
+        }
+        return chars;
+    }
+
+    /**
+     * Reads a string that was written with writeString and appends it to the given StringBuilder.
+     * @param dest the StringBuilder the string is appended to.
+     * @return the number of chars that were appended, or -1 if a null string was written.
+     * @throws BufferUnderflowException if the buffer ends before the end of the string.
+     * @throws IllegalStateException if the buffer is in WRITE mode or the data is not a valid string.
+     */
+    public int readString(StringBuilder dest) throws BufferUnderflowException, IllegalStateException {
+        int length = this.readStringLength();
+        if (length < -1) {
+            String value = this.dictionaryString(length);
+            dest.append(value);
+            return value.length();
+        }
+        if (length < 0) return -1;
+        int before = dest.length();
+        dest.ensureCapacity(before + length);
+        ByteBuffer s = this.storage;
+        int p = nextPointer, end = p + length;
+        while (p < end) {
+            int b = s.get(p);
+            if (b >= 0) {
+                dest.append((char) b);
+                p++;
+                continue;
+            }
+            dest.appendCodePoint(this.decodeUtf8(p, end));
+            p += utf8SequenceLength(b);
+        }
+        nextPointer = end;
+        if (this.indexString) this.indexString(dest.substring(before));
+        return dest.length() - before;
+    }
+
+    private static int utf8SequenceLength(int first) {
+        if ((first & 0xE0) == 0xC0) return 2;
+        if ((first & 0xF0) == 0xE0) return 3;
+        return 4;
+    }
+
+    /*
+    Decodes the multi-byte sequence that starts at p, the sequence must end before 'end'.
+    Overlong sequences and surrogates are rejected like the JDK's decoder rejects them.
+     */
+    private int decodeUtf8(int p, int end) throws IllegalStateException {
+        ByteBuffer s = this.storage;
+        int b = s.get(p);
+        int length = utf8SequenceLength(b);
+        if (p + length > end || (b & 0xC0) == 0x80 || (b & 0xF8) == 0xF8) throw malformedString();
+        int codePoint = length == 2 ? b & 0x1F : length == 3 ? b & 0x0F : b & 0x07;
+        for (int i = 1; i < length; i++) {
+            int c = s.get(p + i);
+            if ((c & 0xC0) != 0x80) throw malformedString();
+            codePoint = (codePoint << 6) | (c & 0x3F);
         }
+        int min = length == 2 ? 0x80 : length == 3 ? 0x800 : Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE))
+            throw malformedString();
+        return codePoint;
     }
 
     //endregion
@@ -0,0 +1,295 @@
+package com.binbuff;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of DYNAMIC buffers that can be reused instead of allocating a new buffer for every use.
+ * A released buffer keeps the capacity it grew to, so the next user of the buffer
+ * does not need to grow it again, for example:             <br>
+ *      BufferPool pool = new BufferPool();                 <br>
+ *      ------for every request------                       <br>
+ *      try (PooledBuffer buf = pool.acquire()) {           <br>
+ *          buf.write(response);                            <br>
+ *          out.write(buf.cloneSerialized());               <br>
+ *      }                                                   <br>
+ *
+ * The pool is thread safe, every thread keeps a small cache of buffers that only it uses,
+ * and the rest of the buffers are kept in lock free stacks that are shared by all the threads,
+ * the shared buffers are split between several stacks (stripes) in order to reduce contention.
+ * The pool never retains more than a given number of bytes (the sum of the capacities of the buffers it holds),
+ * buffers that are released when the pool is full are simply left to the garbage collector.
+ * @see PooledBuffer
+ */
+public class BufferPool {
+
+    /**
+     * The default initial size of buffers created by the pool - 4KB.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024;
+
+    /**
+     * The default maximal number of bytes retained by the pool - 64MB.
+     */
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * The default number of buffers every thread keeps in its own cache.
+     */
+    public static final int DEFAULT_THREAD_CACHE_SIZE = 4;
+
+    private static final class Node {
+        final PooledBuffer buffer;
+        Node next;
+
+        Node(PooledBuffer buffer) { this.buffer = buffer; }
+    }
+
+    /*
+    The thread caches are registered with the pool so that the buffers cached by threads that
+    have terminated can be reclaimed, a cache is only ever used by its owner thread
+    (or by the thread that reclaims it after the owner has terminated).
+     */
+    private static final class ThreadCache {
+        final Thread owner;
+        final PooledBuffer[] buffers;
+        int size;
+
+        ThreadCache(int capacity) {
+            this.owner = Thread.currentThread();
+            this.buffers = new PooledBuffer[capacity];
+        }
+    }
+
+    private final int bufferSize;
+    private final long maxRetainedBytes;
+    private final ByteOrder order;
+
+    private final AtomicReference<Node>[] stripes;
+    private final ThreadLocal<ThreadCache> threadCache;
+    private final ConcurrentLinkedQueue<ThreadCache> threadCaches;
+    private final AtomicLong retainedBytes;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs a BufferPool.
+     * @param bufferSize the initial size of new buffers created by the pool.
+     * @param maxRetainedBytes the maximal number of bytes the pool will retain.
+     * @param threadCacheSize the number of buffers every thread keeps in its own cache, 0 disables the thread caches.
+     * @param order the byte order of the buffers created by the pool.
+     */
+    public BufferPool(int bufferSize, long maxRetainedBytes, int threadCacheSize, ByteOrder order) {
+        if (bufferSize < 0 || maxRetainedBytes < 0 || threadCacheSize < 0)
+            throw new IllegalArgumentException("pool sizes must not be negative.");
+        this.bufferSize = bufferSize;
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.order = order;
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = newStripes(stripeCount);
+        for (int i = 0; i < stripeCount; i++) this.stripes[i] = new AtomicReference<>();
+
+        this.threadCaches = new ConcurrentLinkedQueue<>();
+        this.threadCache = ThreadLocal.withInitial(() -> {
+            // a new thread is a good time to clean up after threads that have terminated.
+            this.reclaimTerminatedCaches();
+            ThreadCache cache = new ThreadCache(threadCacheSize);
+            this.threadCaches.add(cache);
+            return cache;
+        });
+        this.retainedBytes = new AtomicLong();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Constructs a BufferPool of BIG_ENDIAN buffers.
+     * @param bufferSize the initial size of new buffers created by the pool.
+     * @param maxRetainedBytes the maximal number of bytes the pool will retain.
+     * @see BufferPool#BufferPool(int, long, int, ByteOrder)
+     */
+    public BufferPool(int bufferSize, long maxRetainedBytes) {
+        this(bufferSize, maxRetainedBytes, DEFAULT_THREAD_CACHE_SIZE, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs a BufferPool of BIG_ENDIAN buffers with the default sizes.
+     * @see BufferPool#BufferPool(int, long, int, ByteOrder)
+     */
+    public BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * Get a cleared DYNAMIC buffer in WRITE mode from the pool,
+     * if the pool has no free buffers a new buffer will be created.
+     * @return a buffer that is ready to be written to.
+     */
+    public PooledBuffer acquire() {
+        PooledBuffer buffer = this.pollThreadCache();
+        if (buffer == null) buffer = this.pollStripes();
+        if (buffer == null) {
+            this.misses.increment();
+            buffer = new PooledBuffer(this, this.bufferSize, this.order);
+        }
+        else {
+            this.hits.increment();
+            this.retainedBytes.addAndGet(-buffer.capacity());
+        }
+
+        buffer.acquired();
+        return buffer;
+    }
+
+    /*
+    Returns a buffer to the pool, called by PooledBuffer.release.
+     */
+    void release(PooledBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!this.reserve(capacity)) return;
+
+        // the next caller gets the buffer as if it was just created.
+        buffer.clear();
+        buffer.setDictionarySize(0);
+        buffer.setMaxCapacity(Buffer.MAX_CAPACITY);
+        buffer.setGrowthPolicy(IGrowthPolicy.DOUBLING);
+        if (this.offerThreadCache(buffer)) return;
+        this.push(this.stripes[this.homeStripe()], new Node(buffer));
+    }
+
+    /**
+     * Removes all the free buffers from the pool, leaving them to the garbage collector.
+     * note: only the calling thread's cache is emptied, the caches of other live threads are kept.
+     */
+    public void trim() {
+        this.reclaimTerminatedCaches();
+        ThreadCache cache = this.threadCache.get();
+        while (cache.size > 0) {
+            PooledBuffer buffer = cache.buffers[--cache.size];
+            cache.buffers[cache.size] = null;
+            this.retainedBytes.addAndGet(-buffer.capacity());
+        }
+        for (AtomicReference<Node> stripe : this.stripes) {
+            Node node;
+            while ((node = this.pop(stripe)) != null)
+                this.retainedBytes.addAndGet(-node.buffer.capacity());
+        }
+    }
+
+    /**
+     * Get the number of times acquire was served with a buffer from the pool.
+     * @return the number of pool hits.
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Get the number of times acquire had to create a new buffer.
+     * @return the number of pool misses.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Get the number of bytes currently retained by the pool,
+     * that is the sum of the capacities of the free buffers in the pool.
+     * @return the number of retained bytes.
+     */
+    public long getRetainedBytes() {
+        return this.retainedBytes.get();
+    }
+
+    /*
+    Accounts for 'capacity' more retained bytes if that does not exceed the maximum,
+    when the pool is full the caches of terminated threads are reclaimed and the reservation is retried once.
+     */
+    private boolean reserve(int capacity) {
+        if (this.tryReserve(capacity)) return true;
+        return this.reclaimTerminatedCaches() && this.tryReserve(capacity);
+    }
+
+    private boolean tryReserve(int capacity) {
+        long current;
+        do {
+            current = this.retainedBytes.get();
+            if (current + capacity > this.maxRetainedBytes) return false;
+        } while (!this.retainedBytes.compareAndSet(current, current + capacity));
+        return true;
+    }
+
+    /*
+    Moves the buffers cached by threads that have terminated into the shared stacks,
+    returns true if any cache was reclaimed.
+     */
+    private boolean reclaimTerminatedCaches() {
+        boolean reclaimed = false;
+        for (ThreadCache cache : this.threadCaches) {
+            if (cache.owner.isAlive() || !this.threadCaches.remove(cache)) continue;
+            for (int i = 0; i < cache.size; i++)
+                this.push(this.stripes[i & (this.stripes.length - 1)], new Node(cache.buffers[i]));
+            reclaimed = true;
+        }
+        return reclaimed;
+    }
+
+    private PooledBuffer pollThreadCache() {
+        ThreadCache cache = this.threadCache.get();
+        if (cache.size == 0) return null;
+        PooledBuffer buffer = cache.buffers[--cache.size];
+        cache.buffers[cache.size] = null;
+        return buffer;
+    }
+
+    private boolean offerThreadCache(PooledBuffer buffer) {
+        ThreadCache cache = this.threadCache.get();
+        if (cache.size == cache.buffers.length) return false;
+        cache.buffers[cache.size++] = buffer;
+        return true;
+    }
+
+    private PooledBuffer pollStripes() {
+        int home = this.homeStripe();
+        for (int i = 0; i < this.stripes.length; i++) {
+            Node node = this.pop(this.stripes[(home + i) & (this.stripes.length - 1)]);
+            if (node != null) return node.buffer;
+        }
+        return null;
+    }
+
+    private int homeStripe() {
+        return (int) Thread.currentThread().getId() & (this.stripes.length - 1);
+    }
+
+    /*
+    The shared stacks are Treiber stacks, a node is never pushed twice so the stack
+    does not suffer from the ABA problem.
+     */
+    @SuppressWarnings("unchecked")
+    private static AtomicReference<Node>[] newStripes(int count) {
+        return (AtomicReference<Node>[]) new AtomicReference<?>[count];
+    }
+
+    private void push(AtomicReference<Node> stack, Node node) {
+        Node head;
+        do {
+            head = stack.get();
+            node.next = head;
+        } while (!stack.compareAndSet(head, node));
+    }
+
+    private Node pop(AtomicReference<Node> stack) {
+        Node head;
+        do {
+            head = stack.get();
+            if (head == null) return null;
+        } while (!stack.compareAndSet(head, head.next));
+        return head;
+    }
+}
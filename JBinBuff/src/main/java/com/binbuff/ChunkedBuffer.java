@@ -0,0 +1,502 @@
+package com.binbuff;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A DYNAMIC Buffer that keeps its data in a list of fixed size chunks instead of a single storage.
+ * When a write does not fit in the current chunk a new chunk is appended, the data that was already written
+ * is never copied, unlike a Buffer which doubles its storage and copies all of its data every time it grows.
+ * This avoids the copying and the memory peak of growing a very large buffer, and allows the buffer to hold
+ * more than 2GB of data. The chunks can be written to a channel with a single gathering write using writeTo,
+ * or accessed directly with getChunks, for example:                   <br>
+ *      ChunkedBuffer buf = new ChunkedBuffer();                      <br>
+ *      buf.write(games);                                             <br>
+ *      buf.writeTo(channel);                                         <br>
+ *
+ * The buffer supports all the write and read operations of the Buffer.
+ * note: values never span two chunks, a write that does not fit in the rest of the chunk starts a new chunk,
+ * and a write that is larger than a whole chunk gets a larger chunk of its own.
+ * note: the data is not kept in a single array, thus getSerialized is not supported, and asByteBuffer
+ * copies the data when it is kept in more than one chunk.
+ * note: the pointer can only be moved backwards within the current chunk, and cannot be moved in WRITE mode.
+ * @see Buffer
+ */
+public class ChunkedBuffer extends Buffer {
+
+    /**
+     * The default size of a chunk - 64KB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The smallest number of elements writeParallel writes as a separate range.
+     */
+    public static final int MIN_PARALLEL_RANGE = 4096;
+
+    private final int chunkSize;
+
+    /*
+    The chunks that come before the current chunk while writing, and all the chunks while reading,
+    the data of every chunk is between its index 0 and its limit.
+     */
+    private final ArrayList<ByteBuffer> chunks;
+    private long chunkedBytes;
+    // the index of the chunk after the current chunk while reading.
+    private int nextChunk;
+
+    /**
+     * Constructs an empty ChunkedBuffer in WRITE mode.
+     * @param chunkSize the size of a chunk.
+     * @param order the byte order primitives will be written in.
+     */
+    public ChunkedBuffer(int chunkSize, ByteOrder order) {
+        super(TYPE.DYNAMIC, chunkSize, order);
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunk size must be positive.");
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayList<>();
+    }
+
+    /**
+     * Constructs an empty BIG_ENDIAN ChunkedBuffer in WRITE mode.
+     * @see ChunkedBuffer#ChunkedBuffer(int, ByteOrder)
+     */
+    public ChunkedBuffer(int chunkSize) {
+        this(chunkSize, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs an empty BIG_ENDIAN ChunkedBuffer in WRITE mode with the default chunk size.
+     * @see ChunkedBuffer#ChunkedBuffer(int, ByteOrder)
+     */
+    public ChunkedBuffer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /*
+    A segment of a parallel write that holds a single chunk full of data.
+     */
+    private ChunkedBuffer(ChunkedBuffer parent, ByteBuffer chunk) {
+        super(chunk, TYPE.DYNAMIC, MODE.WRITE, parent.getByteOrder());
+        this.chunkSize = parent.chunkSize;
+        this.chunks = new ArrayList<>();
+        this.setPointer(chunk.capacity());
+    }
+
+    /*
+    Appends the data written to the current chunk to the list of chunks.
+     */
+    private void finishChunk() {
+        ByteBuffer chunk = this.getStorage().duplicate();
+        chunk.clear();
+        chunk.limit(this.getPointer());
+        this.chunks.add(chunk);
+        this.chunkedBytes += this.getPointer();
+    }
+
+    @Override
+    void overflow(int size) throws IllegalStateException {
+        if (this.getType() == TYPE.STATIC) super.overflow(size);
+        this.finishChunk();
+        this.setStorage(this.allocate(Math.max(this.chunkSize, size)), 0);
+    }
+
+    /*
+    There is no need to reserve space for a write, a new chunk is allocated when the current one is full.
+     */
+    @Override
+    void reserve(long size) { }
+
+    /*
+    Makes the next chunks the current chunk, when the rest of the current chunk and the next chunk together
+    do not hold 'size' bytes (a value that was written across two chunks is read as a single larger value)
+    they are copied into a single chunk.
+     */
+    @Override
+    void fill(int size) throws BufferUnderflowException {
+        ByteBuffer storage = this.getStorage();
+        int readable = storage.limit() - this.getPointer();
+        while (readable == 0 && this.nextChunk < this.chunks.size()) {
+            ByteBuffer next = this.chunks.get(this.nextChunk++).duplicate();
+            if (next.limit() >= size) {
+                this.setStorage(next, 0);
+                return;
+            }
+            readable = next.limit();
+            storage = next;
+            this.setStorage(next, 0);
+        }
+
+        int last = this.nextChunk;
+        long available = readable;
+        while (available < size && last < this.chunks.size()) available += this.chunks.get(last++).limit();
+        if (available < size) throw new BufferUnderflowException();
+
+        ByteBuffer merged = ByteBuffer.allocate((int) available);
+        ByteBuffer rest = storage.duplicate();
+        rest.position(this.getPointer());
+        merged.put(rest);
+        for (; this.nextChunk < last; this.nextChunk++) merged.put(this.chunks.get(this.nextChunk).duplicate());
+        merged.flip();
+        this.setStorage(merged, 0);
+    }
+
+    /**
+     * Writes the given data exactly like write(T) does, using several threads when the data is large.
+     * Arrays of primitives, arrays of ISerializable, RandomAccess lists and maps are split into ranges
+     * of at least MIN_PARALLEL_RANGE elements, every range is written into chunks of its own on the
+     * common ForkJoinPool, and the chunks of the ranges are then appended to the buffer in order without being copied.
+     * Other data, small data, and any data while the buffer is STATIC or has a string dictionary
+     * (dictionary references depend on the order of the writes) is written on the calling thread.
+     * note: the data must not be changed while it is written, if writing any element fails nothing is written.
+     * @param data the data to be written to the buffer.
+     * @param <T> the type of the data that will be written.
+     * @throws IllegalArgumentException if T (or the type of an element) is not a supported type.
+     * @throws IllegalStateException if the buffer is in READ mode.
+     */
+    public <T> void writeParallel(T data) throws IllegalArgumentException, IllegalStateException {
+        if (this.getMode() == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        int length = -1;
+        if (Codec.writesElements(data.getClass())) {
+            if (data.getClass().isArray()) length = Array.getLength(data);
+            else if (data instanceof List && data instanceof RandomAccess) length = ((List<?>) data).size();
+            else if (data instanceof Map) length = ((Map<?, ?>) data).size();
+        }
+        int ranges = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, length / MIN_PARALLEL_RANGE);
+        if (ranges < 2 || this.getType() == TYPE.STATIC || this.getDictionarySize() > 0) {
+            this.write(data);
+            return;
+        }
+        // a range of primitives is kept in a single chunk, which cannot be larger than MAX_CAPACITY bytes.
+        ranges = (int) Math.max(ranges, 8L * length / MAX_CAPACITY + 1);
+
+        Object[] entries = data instanceof Map ? ((Map<?, ?>) data).entrySet().toArray() : null;
+        List<ForkJoinTask<ChunkedBuffer>> segments = new ArrayList<>(ranges);
+        for (int range = 0; range < ranges; range++) {
+            int from = (int) ((long) length * range / ranges);
+            int to = (int) ((long) length * (range + 1) / ranges);
+            segments.add(ForkJoinTask.adapt(() -> this.writeRange(data, entries, from, to)));
+        }
+        ForkJoinTask.invokeAll(segments);
+        for (ForkJoinTask<ChunkedBuffer> segment : segments) this.append(segment.join());
+    }
+
+    /*
+    Writes the elements of the data between the indices 'from' and 'to' into a new segment,
+    the elements of a map are taken from the array of its entries.
+     */
+    @SuppressWarnings("unchecked")
+    private ChunkedBuffer writeRange(Object data, Object[] entries, int from, int to) {
+        int length = to - from;
+        if (data instanceof short[]) {
+            ByteBuffer chunk = this.allocate(2 * length).order(this.getByteOrder());
+            chunk.asShortBuffer().put((short[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+        if (data instanceof char[]) {
+            ByteBuffer chunk = this.allocate(2 * length).order(this.getByteOrder());
+            chunk.asCharBuffer().put((char[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+        if (data instanceof int[]) {
+            ByteBuffer chunk = this.allocate(4 * length).order(this.getByteOrder());
+            chunk.asIntBuffer().put((int[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+        if (data instanceof long[]) {
+            ByteBuffer chunk = this.allocate(8 * length).order(this.getByteOrder());
+            chunk.asLongBuffer().put((long[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+        if (data instanceof float[]) {
+            ByteBuffer chunk = this.allocate(4 * length).order(this.getByteOrder());
+            chunk.asFloatBuffer().put((float[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+        if (data instanceof double[]) {
+            ByteBuffer chunk = this.allocate(8 * length).order(this.getByteOrder());
+            chunk.asDoubleBuffer().put((double[]) data, from, length);
+            return new ChunkedBuffer(this, chunk);
+        }
+
+        ChunkedBuffer segment = new ChunkedBuffer(this.chunkSize, this.getByteOrder());
+        if (data instanceof ISerializable[]) {
+            ISerializable[] array = (ISerializable[]) data;
+            for (int i = from; i < to; i++) segment.write(array[i]);
+        }
+        else if (entries != null) {
+            List<?> range = Arrays.asList(entries).subList(from, to);
+            segment.writeEntries((List<Map.Entry<?, ?>>) range);
+        }
+        else segment.writeIterable(((List<?>) data).subList(from, to));
+        return segment;
+    }
+
+    /*
+    Appends the chunks of a segment after the data of the buffer, the current chunk of the segment
+    becomes the current chunk of the buffer so that following writes continue after the segment's data.
+     */
+    private void append(ChunkedBuffer segment) {
+        if (this.getPointer() > 0) this.finishChunk();
+        for (ByteBuffer chunk : segment.chunks) {
+            this.chunks.add(chunk);
+            this.chunkedBytes += chunk.limit();
+        }
+        this.setStorage(segment.getStorage(), segment.getPointer());
+    }
+
+    /**
+     * Get the number of bytes of data in the buffer.
+     * @return the size of the buffer's data.
+     */
+    @Override
+    public long getSize() {
+        if (this.getMode() == MODE.WRITE) return this.chunkedBytes + this.getPointer();
+        return this.chunkedBytes;
+    }
+
+    /*
+    While writing the pointer is always at the end of the data, so records can be written into a ChunkedBuffer,
+    but they cannot be read from it since the pointer cannot move between the chunks.
+     */
+    @Override
+    long getPosition() throws UnsupportedOperationException {
+        if (this.getMode() == MODE.WRITE) return this.getSize();
+        throw new UnsupportedOperationException("the position of a ChunkedBuffer is only known while writing.");
+    }
+
+    @Override
+    void setPosition(long position) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("a ChunkedBuffer cannot move to a position.");
+    }
+
+    @Override
+    ByteBuffer absoluteStorage(int index, int size) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of a ChunkedBuffer is not kept in a single storage.");
+    }
+
+    @Override
+    boolean isReadable(long size) {
+        long available = this.getStorage().limit() - this.getPointer();
+        for (int i = this.nextChunk; available < size && i < this.chunks.size(); i++) available += this.chunks.get(i).limit();
+        return available >= size;
+    }
+
+    /**
+     * Get read only views of the chunks of the buffer, in order, every view contains exactly the data
+     * of its chunk. The views share their memory with the buffer.
+     * @return the chunks of the buffer.
+     */
+    public ByteBuffer[] getChunks() {
+        int count = this.chunks.size();
+        boolean current = this.getMode() == MODE.WRITE;
+        ByteBuffer[] views = new ByteBuffer[current ? count + 1 : count];
+        for (int i = 0; i < count; i++) views[i] = this.chunks.get(i).asReadOnlyBuffer().order(this.getByteOrder());
+        if (current) {
+            ByteBuffer view = this.getStorage().asReadOnlyBuffer();
+            view.clear();
+            view.limit(this.getPointer());
+            views[count] = view.order(this.getByteOrder());
+        }
+        return views;
+    }
+
+    @Override
+    ByteBuffer[] dataViews() {
+        return this.getChunks();
+    }
+
+    /**
+     * Sets the Buffer to READ mode, reading starts from the first chunk.
+     */
+    @Override
+    public void setRead() {
+        if (this.getMode() == MODE.READ) return;
+        this.finishChunk();
+        this.setStorage(this.chunks.get(0).duplicate(), this.chunks.get(0).limit());
+        this.nextChunk = 1;
+        super.setRead();
+    }
+
+    /**
+     * Sets the Buffer to WRITE mode, following writes are appended after the data in the last chunk.
+     * @param type the type of the newly writable Buffer, a STATIC buffer will not add chunks.
+     * @param extraSize number of free bytes the Buffer should have after the data.
+     */
+    @Override
+    public void setWrite(TYPE type, int extraSize) {
+        if (this.getMode() == MODE.WRITE) return;
+        ByteBuffer last = this.chunks.remove(this.chunks.size() - 1);
+        this.chunkedBytes -= last.limit();
+        this.setStorage(last.duplicate(), 0);
+        super.setWrite(type, 0);
+        if (this.getStorage().capacity() - this.getPointer() < extraSize) this.overflow(extraSize);
+    }
+
+    /**
+     * Clears the buffer so that it can be reused, the buffer keeps its first chunk and drops the rest.
+     * @param type the type of the cleared Buffer.
+     */
+    @Override
+    public void clear(TYPE type) {
+        if (!this.chunks.isEmpty()) {
+            ByteBuffer first = this.chunks.get(0).duplicate();
+            first.clear();
+            this.setStorage(first, 0);
+        }
+        this.chunks.clear();
+        this.chunkedBytes = 0;
+        this.nextChunk = 0;
+        super.clear(type);
+    }
+
+    /**
+     * Moves the pointer to the start of the buffer, while in READ mode reading starts again from the first chunk,
+     * while in WRITE mode this is equivalent to clear.
+     */
+    @Override
+    public void rewind() {
+        if (this.getMode() == MODE.WRITE) {
+            this.clear(this.getType());
+            return;
+        }
+        this.setStorage(this.chunks.get(0).duplicate(), 0);
+        this.nextChunk = 1;
+        this.clearReadDictionary();
+    }
+
+    /**
+     * Moves the read pointer of the buffer by adding 'amount' to the current pointer,
+     * moving backwards is only possible within the current chunk.
+     * @param amount signed amount of bytes to skip.
+     * @throws BufferOverflowException if the pointer is moved past the end of the buffer.
+     * @throws BufferUnderflowException if the pointer is moved backwards past the start of the current chunk.
+     * @throws UnsupportedOperationException if the buffer is in WRITE mode.
+     */
+    @Override
+    public void seekByte(int amount) throws BufferOverflowException, BufferUnderflowException {
+        if (this.getMode() == MODE.WRITE)
+            throw new UnsupportedOperationException("cannot move the pointer of a ChunkedBuffer in WRITE mode.");
+        if (amount < 0) {
+            if (this.getPointer() + amount < 0) throw new BufferUnderflowException();
+            this.setPointer(this.getPointer() + amount);
+            return;
+        }
+        while (amount > 0) {
+            int step = Math.min(amount, this.getStorage().limit() - this.getPointer());
+            if (step == 0) {
+                try {
+                    this.fill(1);
+                } catch (BufferUnderflowException e) {
+                    throw new BufferOverflowException();
+                }
+                continue;
+            }
+            this.setPointer(this.getPointer() + step);
+            amount -= step;
+        }
+    }
+
+    /**
+     * Reads up to 'count' bytes from a channel into the buffer, the bytes are read into the rest of the
+     * current chunk and into new chunks, when the channel supports scattering reads (FileChannel, SocketChannel, ...)
+     * all the chunks are read with a single call.
+     * @param channel the channel the data should be read from.
+     * @param count the number of bytes that should be read.
+     * @return the number of bytes that were read.
+     * @throws IOException if there is a problem reading from the channel.
+     * @throws IllegalStateException if the buffer is in READ mode.
+     */
+    @Override
+    public int readFrom(ReadableByteChannel channel, int count) throws IOException, IllegalStateException {
+        if (this.getMode() == MODE.READ) throw new IllegalStateException("Cannot write to buffer while in READ mode.");
+        if (this.getType() == TYPE.STATIC) return super.readFrom(channel, count);
+
+        int pointer = this.getPointer();
+        ByteBuffer current = this.getStorage().duplicate();
+        current.limit(pointer + Math.min(count, current.capacity() - pointer));
+        current.position(pointer);
+        int rest = count - current.remaining();
+        ByteBuffer[] targets = new ByteBuffer[1 + (rest + this.chunkSize - 1) / this.chunkSize];
+        targets[0] = current;
+        for (int i = 1; i < targets.length; i++) {
+            targets[i] = this.allocate(this.chunkSize);
+            targets[i].limit(Math.min(this.chunkSize, rest));
+            rest -= targets[i].limit();
+        }
+
+        int first = 0;
+        long read = 0;
+        while (true) {
+            while (first < targets.length && !targets[first].hasRemaining()) first++;
+            if (first == targets.length) break;
+            long n = channel instanceof ScatteringByteChannel
+                    ? ((ScatteringByteChannel) channel).read(targets, first, targets.length - first)
+                    : channel.read(targets[first]);
+            if (n <= 0) break;
+            read += n;
+        }
+
+        this.setPointer(current.position());
+        for (int i = 1; i < targets.length && targets[i].position() > 0; i++) {
+            this.finishChunk();
+            int length = targets[i].position();
+            targets[i].clear();
+            this.setStorage(targets[i], length);
+        }
+        return (int) read;
+    }
+
+    /**
+     * The data of a ChunkedBuffer is not kept in a single array.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] getSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of a ChunkedBuffer is not kept in a single array, use getChunks.");
+    }
+
+    /**
+     * Get a read only ByteBuffer of the buffer's data, when the data is kept in more than one chunk
+     * the data is copied into a single ByteBuffer.
+     * @return ByteBuffer containing the buffer's data.
+     */
+    @Override
+    public ByteBuffer asByteBuffer() {
+        ByteBuffer[] views = this.getChunks();
+        if (views.length == 1) return views[0];
+        return ByteBuffer.wrap(this.cloneSerialized()).asReadOnlyBuffer().order(this.getByteOrder());
+    }
+
+    /**
+     * Creates a byte array containing all the buffers data, the data of all the chunks is copied into the array.
+     * @return byte array containing all the data currently in the buffer.
+     */
+    @Override
+    public byte[] cloneSerialized() {
+        long size = this.getSize();
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("the buffer's data is too large for a single array.");
+        byte[] serialized = new byte[(int) size];
+        int index = 0;
+        for (ByteBuffer view : this.getChunks()) {
+            int length = view.remaining();
+            view.get(serialized, index, length);
+            index += length;
+        }
+        return serialized;
+    }
+}
@@ -0,0 +1,391 @@
+package com.binbuff;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A codec writes and reads the values of a single class, the generic write(T) and read(T) methods
+ * of the Buffer find the codec of a value's class and hand the value to it.
+ * The codec of each class is resolved once and cached in a ClassValue, so writing a value costs
+ * a single lookup and a call to the codec instead of checking the value against every supported type,
+ * and loops over the elements of a collection reuse the codec while the elements are of the same class.
+ * Codecs for classes that do not implement ISerializable can be registered with Buffer.registerCodec,
+ * other plain classes and records are written field by field by an ObjectCodec.
+ */
+abstract class Codec {
+
+    /**
+     * Writes the given value into the buffer.
+     * @param buffer the buffer the value is written into.
+     * @param data the value, an instance of the codec's class.
+     */
+    abstract void write(Buffer buffer, Object data);
+
+    /**
+     * Reads data from the buffer into the given object.
+     * @param buffer the buffer the data is read from.
+     * @param dest the object the data is read into, an instance of the codec's class.
+     * @throws IllegalArgumentException if the codec's class cannot be read into.
+     */
+    void read(Buffer buffer, Object dest) throws IllegalArgumentException {
+        throw new IllegalArgumentException("trying to read an unsupported type - " + dest.getClass().getSimpleName() + ".");
+    }
+
+    /**
+     * Codecs of immutable values (the boxed primitives, strings and records) read new values instead of reading into an existing object.
+     * @return true if values are read with readValue, false if they are read with read.
+     */
+    boolean isValue() {
+        return false;
+    }
+
+    /**
+     * Reads a new value from the buffer, only supported by codecs for which isValue returns true.
+     * @param buffer the buffer the value is read from.
+     * @return the value that was read.
+     */
+    Object readValue(Buffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Get the number of bytes every value of the codec's class is written into.
+     * @return the size of every value, or -1 if values may have different sizes.
+     */
+    int fixedSize() {
+        return -1;
+    }
+
+    /**
+     * Get the number of bytes the given value is written into.
+     * @param data the value, an instance of the codec's class.
+     * @return the size of the value, or -1 if it is not known.
+     */
+    long sizeHint(Object data) {
+        return this.fixedSize();
+    }
+
+    //region Registry
+
+    private static final ConcurrentHashMap<Class<?>, Codec> registered = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Codec> codecs = new ClassValue<Codec>() {
+        @Override
+        protected Codec computeValue(Class<?> type) {
+            Codec codec = registered.get(type);
+            return codec != null ? codec : builtin(type);
+        }
+    };
+
+    /**
+     * Get the codec of the given class.
+     * @param type the class of the values the codec writes and reads.
+     * @return the codec of the class, unsupported classes get a codec that throws IllegalArgumentException.
+     */
+    static Codec of(Class<?> type) {
+        return codecs.get(type);
+    }
+
+    /**
+     * Checks whether values of the given class are written element by element by a builtin codec
+     * (arrays of primitives wider than a byte, arrays of ISerializable, collections and maps),
+     * writing consecutive ranges of their elements one after the other gives the same data as writing the value.
+     * @param type the class of the values.
+     * @return true if the values can be written in ranges.
+     */
+    static boolean writesElements(Class<?> type) {
+        Codec codec = of(type);
+        return codec == SHORT_ARRAY || codec == CHAR_ARRAY || codec == INT_ARRAY || codec == LONG_ARRAY
+                || codec == FLOAT_ARRAY || codec == DOUBLE_ARRAY || codec == SERIALIZABLE_ARRAY
+                || codec == ITERABLE || codec == MAP;
+    }
+
+    /**
+     * Registers a codec for exactly the given class, replacing the codec the class was resolved to before.
+     * @param type the class of the values the codec writes and reads.
+     * @param codec the codec.
+     */
+    static void register(Class<?> type, Codec codec) {
+        registered.put(type, codec);
+        codecs.remove(type);
+    }
+
+    /**
+     * Get the number of bytes the given value is written into.
+     * @param data the value.
+     * @return the size of the value, or -1 if it is not known.
+     */
+    static long sizeHintOf(Object data) {
+        return data == null ? -1 : of(data.getClass()).sizeHint(data);
+    }
+
+    static long addHints(long a, long b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    /*
+    The order of the checks is the order in which the generic write method used to check the type of its data,
+    so a class that is both Iterable and ISerializable is still written as an Iterable.
+     */
+    private static Codec builtin(Class<?> type) {
+        if (type == Byte.class) return BYTE;
+        if (type == Boolean.class) return BOOLEAN;
+        if (type == Short.class) return SHORT;
+        if (type == Character.class) return CHAR;
+        if (type == Integer.class) return INT;
+        if (type == Float.class) return FLOAT;
+        if (type == Long.class) return LONG;
+        if (type == Double.class) return DOUBLE;
+        if (type == byte[].class) return BYTE_ARRAY;
+        if (type == boolean[].class) return BOOLEAN_ARRAY;
+        if (type == short[].class) return SHORT_ARRAY;
+        if (type == char[].class) return CHAR_ARRAY;
+        if (type == int[].class) return INT_ARRAY;
+        if (type == long[].class) return LONG_ARRAY;
+        if (type == float[].class) return FLOAT_ARRAY;
+        if (type == double[].class) return DOUBLE_ARRAY;
+        if (type == String.class) return STRING;
+        if (Iterable.class.isAssignableFrom(type)) return ITERABLE;
+        if (Map.class.isAssignableFrom(type)) return MAP;
+        if (ISerializable.class.isAssignableFrom(type)) return SERIALIZABLE;
+        if (ISerializable[].class.isAssignableFrom(type)) return SERIALIZABLE_ARRAY;
+        Codec object = ObjectCodec.create(type);
+        return object != null ? object : UNSUPPORTED;
+    }
+
+    //endregion
+
+    //region Builtin Codecs
+
+    private static final Codec UNSUPPORTED = new Codec() {
+        @Override
+        void write(Buffer buffer, Object data) {
+            throw new IllegalArgumentException("trying to write an unsupported type - " + data.getClass().getSimpleName() + ".");
+        }
+    };
+
+    private static final Codec STRING = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.writeString((String) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readString(); }
+        @Override long sizeHint(Object data) { return Buffer.stringSize((String) data); }
+    };
+
+    private static final Codec BYTE = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((byte) (Byte) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readByte(); }
+        @Override int fixedSize() { return 1; }
+    };
+
+    private static final Codec BOOLEAN = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((boolean) (Boolean) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readBoolean(); }
+        @Override int fixedSize() { return 1; }
+    };
+
+    private static final Codec SHORT = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((short) (Short) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readShort(); }
+        @Override int fixedSize() { return 2; }
+    };
+
+    private static final Codec CHAR = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((char) (Character) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readChar(); }
+        @Override int fixedSize() { return 2; }
+    };
+
+    private static final Codec INT = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((int) (Integer) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readInt(); }
+        @Override int fixedSize() { return 4; }
+    };
+
+    private static final Codec FLOAT = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((float) (Float) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readFloat(); }
+        @Override int fixedSize() { return 4; }
+    };
+
+    private static final Codec LONG = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((long) (Long) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readLong(); }
+        @Override int fixedSize() { return 8; }
+    };
+
+    private static final Codec DOUBLE = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((double) (Double) data); }
+        @Override boolean isValue() { return true; }
+        @Override Object readValue(Buffer buffer) { return buffer.readDouble(); }
+        @Override int fixedSize() { return 8; }
+    };
+
+    private static final Codec BYTE_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((byte[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((byte[]) dest); }
+        @Override long sizeHint(Object data) { return ((byte[]) data).length; }
+    };
+
+    private static final Codec BOOLEAN_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((boolean[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((boolean[]) dest); }
+        @Override long sizeHint(Object data) { return ((boolean[]) data).length; }
+    };
+
+    private static final Codec SHORT_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((short[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((short[]) dest); }
+        @Override long sizeHint(Object data) { return 2L * ((short[]) data).length; }
+    };
+
+    private static final Codec CHAR_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((char[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((char[]) dest); }
+        @Override long sizeHint(Object data) { return 2L * ((char[]) data).length; }
+    };
+
+    private static final Codec INT_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((int[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((int[]) dest); }
+        @Override long sizeHint(Object data) { return 4L * ((int[]) data).length; }
+    };
+
+    private static final Codec LONG_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((long[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((long[]) dest); }
+        @Override long sizeHint(Object data) { return 8L * ((long[]) data).length; }
+    };
+
+    private static final Codec FLOAT_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((float[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((float[]) dest); }
+        @Override long sizeHint(Object data) { return 4L * ((float[]) data).length; }
+    };
+
+    private static final Codec DOUBLE_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((double[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((double[]) dest); }
+        @Override long sizeHint(Object data) { return 8L * ((double[]) data).length; }
+    };
+
+    private static final Codec SERIALIZABLE = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((ISerializable) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((ISerializable) dest); }
+        @Override long sizeHint(Object data) { return ((ISerializable) data).serializedSize(); }
+    };
+
+    private static final Codec SERIALIZABLE_ARRAY = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.write((ISerializable[]) data); }
+        @Override void read(Buffer buffer, Object dest) { buffer.read((ISerializable[]) dest); }
+
+        @Override
+        long sizeHint(Object data) {
+            long total = 0;
+            for (ISerializable elem : (ISerializable[]) data) {
+                total = addHints(total, elem.serializedSize());
+                if (total < 0) return -1;
+            }
+            return total;
+        }
+    };
+
+    /*
+    Collections and maps are only written by the generic write method, a class that is also ISerializable
+    is read as an ISerializable (like the generic read method always did).
+     */
+    private static final Codec ITERABLE = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.writeIterable((Iterable<?>) data); }
+
+        @Override
+        void read(Buffer buffer, Object dest) {
+            if (dest instanceof ISerializable) buffer.read((ISerializable) dest);
+            else super.read(buffer, dest);
+        }
+
+        @Override
+        long sizeHint(Object data) {
+            // collections of boxed primitives are assumed to hold a single type, so they are not iterated.
+            if (data instanceof Collection) {
+                Collection<?> collection = (Collection<?>) data;
+                if (collection.isEmpty()) return 0;
+                Object first = collection.iterator().next();
+                int size = first == null ? -1 : of(first.getClass()).fixedSize();
+                if (size >= 0) return (long) size * collection.size();
+            }
+            return sumHints((Iterable<?>) data);
+        }
+    };
+
+    private static final Codec MAP = new Codec() {
+        @Override void write(Buffer buffer, Object data) { buffer.writeEntries((Map<?, ?>) data); }
+
+        @Override
+        void read(Buffer buffer, Object dest) {
+            if (dest instanceof ISerializable) buffer.read((ISerializable) dest);
+            else super.read(buffer, dest);
+        }
+
+        @Override
+        long sizeHint(Object data) {
+            Map<?, ?> map = (Map<?, ?>) data;
+            return addHints(ITERABLE.sizeHint(map.keySet()), ITERABLE.sizeHint(map.values()));
+        }
+    };
+
+    private static long sumHints(Iterable<?> data) {
+        long total = 0;
+        Class<?> type = null;
+        Codec codec = null;
+        for (Object elem : data) {
+            if (elem == null) return -1;
+            if (elem.getClass() != type) {
+                type = elem.getClass();
+                codec = of(type);
+            }
+            total = addHints(total, codec.sizeHint(elem));
+            if (total < 0) return -1;
+        }
+        return total;
+    }
+
+    //endregion
+
+    /**
+     * A codec that writes and reads values with a user provided serializer and deserializer.
+     */
+    static final class UserCodec<T> extends Codec {
+
+        private final Class<T> type;
+        private final ISerializer<T> serializer;
+        private final IDeserializer<T> deserializer;
+
+        UserCodec(Class<T> type, ISerializer<T> serializer, IDeserializer<T> deserializer) {
+            this.type = type;
+            this.serializer = serializer;
+            this.deserializer = deserializer;
+        }
+
+        @Override
+        void write(Buffer buffer, Object data) {
+            buffer.write(this.serializer, this.type.cast(data));
+        }
+
+        @Override
+        void read(Buffer buffer, Object dest) {
+            buffer.read(this.deserializer, this.type.cast(dest));
+        }
+
+        @Override
+        long sizeHint(Object data) {
+            return this.serializer.serializedSize(this.type.cast(data));
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.binbuff;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A Buffer that compresses its data in fixed size blocks with a given ICompressor.
+ * Data is written into a block of 'blockSize' bytes like in any other buffer, once the block is full
+ * it is compressed and appended to the buffer's compressed data, so that only a single block is ever
+ * kept uncompressed while writing. Reading works the other way around, blocks are decompressed one at a time
+ * when a read reaches the end of the previous block. For example:            <br>
+ *      CompressedBuffer buf = new CompressedBuffer(new LZCompressor());     <br>
+ *      buf.write(games);                                                    <br>
+ *      out.write(buf.cloneSerialized());                                    <br>
+ *      ------later------                                                    <br>
+ *      CompressedBuffer in = new CompressedBuffer(new LZCompressor(), bytes, bytes.length); <br>
+ *      in.read(games);                                                      <br>
+ *
+ * The serialized data of the buffer (getSerialized, cloneSerialized and asByteBuffer) is the compressed data,
+ * a sequence of frames each made of the uncompressed length of the block (int), the compressed length
+ * of the block (int) and the compressed block, a block that does not compress is stored as is
+ * (its two lengths are equal). Getting the serialized data while in WRITE mode compresses the current block
+ * even if it is not full.
+ * note: values never span two blocks, a write that does not fit in the rest of the block starts a new block,
+ * and a write that is larger than a whole block gets a larger block of its own.
+ * note: while in READ mode the pointer can only be moved backwards within the current block.
+ * @see ICompressor
+ */
+public class CompressedBuffer extends Buffer {
+
+    /**
+     * The default number of bytes in an uncompressed block - 64KB.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final ICompressor compressor;
+    private final int blockSize;
+
+    // the compressed frames, and the index of the next frame that should be decompressed while reading.
+    private byte[] frames;
+    private int framesLength;
+    private int frameCursor;
+
+    /**
+     * Constructs an empty CompressedBuffer in WRITE mode.
+     * @param compressor the compressor used to compress the blocks.
+     * @param blockSize the number of bytes in an uncompressed block.
+     * @param order the byte order primitives will be written in.
+     */
+    public CompressedBuffer(ICompressor compressor, int blockSize, ByteOrder order) {
+        super(TYPE.DYNAMIC, blockSize, order);
+        if (blockSize <= 0) throw new IllegalArgumentException("block size must be positive.");
+        this.compressor = compressor;
+        this.blockSize = blockSize;
+        this.frames = new byte[0];
+    }
+
+    /**
+     * Constructs an empty BIG_ENDIAN CompressedBuffer in WRITE mode with the default block size.
+     * @see CompressedBuffer#CompressedBuffer(ICompressor, int, ByteOrder)
+     */
+    public CompressedBuffer(ICompressor compressor) {
+        this(compressor, DEFAULT_BLOCK_SIZE, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs a CompressedBuffer in READ mode from compressed data, the data must have been written
+     * by a CompressedBuffer with the same kind of compressor.
+     * The buffer data will be the array from index 0 to count - 1, the data is copied and decompressed
+     * one block at a time as it is read.
+     * @param compressor the compressor used to decompress the blocks.
+     * @param compressed the compressed data.
+     * @param count the number of bytes to use from the given data.
+     * @param order the byte order the data was written with.
+     */
+    public CompressedBuffer(ICompressor compressor, byte[] compressed, int count, ByteOrder order) {
+        super(emptyStorage(DEFAULT_BLOCK_SIZE), TYPE.STATIC, MODE.READ, order);
+        this.compressor = compressor;
+        this.blockSize = DEFAULT_BLOCK_SIZE;
+        this.frames = Arrays.copyOf(compressed, count);
+        this.framesLength = count;
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN CompressedBuffer in READ mode from compressed data.
+     * @see CompressedBuffer#CompressedBuffer(ICompressor, byte[], int, ByteOrder)
+     */
+    public CompressedBuffer(ICompressor compressor, byte[] compressed, int count) {
+        this(compressor, compressed, count, ByteOrder.BIG_ENDIAN);
+    }
+
+    private static ByteBuffer emptyStorage(int capacity) {
+        ByteBuffer storage = ByteBuffer.allocate(capacity);
+        storage.limit(0);
+        return storage;
+    }
+
+    private static void putFrameInt(byte[] frames, int index, int value) {
+        frames[index] = (byte) (value >>> 24);
+        frames[index + 1] = (byte) (value >>> 16);
+        frames[index + 2] = (byte) (value >>> 8);
+        frames[index + 3] = (byte) value;
+    }
+
+    private static int getFrameInt(byte[] frames, int index) {
+        return (frames[index] & 0xFF) << 24 | (frames[index + 1] & 0xFF) << 16
+                | (frames[index + 2] & 0xFF) << 8 | (frames[index + 3] & 0xFF);
+    }
+
+    /**
+     * Get the compressor the buffer uses.
+     * @return the compressor of the buffer.
+     */
+    public ICompressor getCompressor() {
+        return this.compressor;
+    }
+
+    /*
+    Compresses the data written to the current block and appends it as a new frame,
+    the buffer then continues writing at the start of a block of 'blockSize' bytes.
+     */
+    private void flushBlock() {
+        int length = this.getPointer();
+        if (length == 0) return;
+        byte[] block = this.getStorage().array();
+
+        int bound = this.framesLength + FRAME_HEADER_SIZE + Math.max(length, this.compressor.maxCompressedLength(length));
+        if (this.frames.length < bound)
+            this.frames = Arrays.copyOf(this.frames, Math.max(bound, this.frames.length * 2));
+        int header = this.framesLength;
+        int data = header + FRAME_HEADER_SIZE;
+        int stored = this.compressor.compress(block, 0, length, this.frames, data);
+        if (stored >= length) {
+            System.arraycopy(block, 0, this.frames, data, length);
+            stored = length;
+        }
+        putFrameInt(this.frames, header, length);
+        putFrameInt(this.frames, header + 4, stored);
+        this.framesLength = data + stored;
+
+        if (block.length != this.blockSize) this.setStorage(this.allocate(this.blockSize), 0);
+        else this.setPointer(0);
+    }
+
+    @Override
+    void overflow(int size) throws IllegalStateException {
+        this.flushBlock();
+        if (this.getStorage().capacity() < size) super.overflow(size);
+    }
+
+    /*
+    There is no need to reserve space for a write, the written data is compressed block by block.
+     */
+    @Override
+    void reserve(long size) { }
+
+    /*
+    Positions in the uncompressed data cannot be reached without decompressing everything before them,
+    so records are not supported.
+     */
+    @Override
+    long getPosition() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("a CompressedBuffer does not support positions.");
+    }
+
+    @Override
+    void setPosition(long position) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("a CompressedBuffer does not support positions.");
+    }
+
+    @Override
+    ByteBuffer absoluteStorage(int index, int size) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("a CompressedBuffer does not support positions.");
+    }
+
+    /*
+    The length of the data is only known after decompressing all of it.
+     */
+    @Override
+    boolean isReadable(long size) {
+        return true;
+    }
+
+    /*
+    Moves the bytes that were not read yet to the start of the storage and decompresses
+    frames after them until at least 'size' bytes are readable.
+     */
+    @Override
+    void fill(int size) throws BufferUnderflowException {
+        ByteBuffer storage = this.getStorage();
+        int pointer = this.getPointer();
+        int readable = storage.limit() - pointer;
+        byte[] block = storage.array();
+        while (readable < size) {
+            if (this.frameCursor == this.framesLength) throw new BufferUnderflowException();
+            if (this.framesLength - this.frameCursor < FRAME_HEADER_SIZE) throw malformed();
+            int length = getFrameInt(this.frames, this.frameCursor);
+            int stored = getFrameInt(this.frames, this.frameCursor + 4);
+            int data = this.frameCursor + FRAME_HEADER_SIZE;
+            if (length < 0 || stored < 0 || stored > length || stored > this.framesLength - data) throw malformed();
+            // no writer produces a frame that does not fit in a buffer along with the unread bytes.
+            if ((long) readable + length > MAX_CAPACITY) throw malformed();
+            if (stored != length && length > this.compressor.maxDecompressedLength(stored)) throw malformed();
+
+            if (block.length - readable < length) {
+                byte[] larger = new byte[Math.max(this.blockSize, readable + length)];
+                System.arraycopy(block, pointer, larger, 0, readable);
+                storage = ByteBuffer.wrap(larger);
+                block = larger;
+            }
+            else System.arraycopy(block, pointer, block, 0, readable);
+            pointer = 0;
+
+            if (stored == length) System.arraycopy(this.frames, data, block, readable, length);
+            else this.compressor.decompress(this.frames, data, stored, block, readable, length);
+            readable += length;
+            this.frameCursor = data + stored;
+        }
+        storage.limit(readable);
+        this.setStorage(storage, 0);
+    }
+
+    private static IllegalStateException malformed() {
+        return new IllegalStateException("Malformed compressed data in buffer.");
+    }
+
+    /**
+     * Sets the Buffer to READ mode, the current block is compressed and reading starts from the first block.
+     */
+    @Override
+    public void setRead() {
+        if (this.getMode() == MODE.READ) return;
+        this.flushBlock();
+        super.setRead();
+        this.frameCursor = 0;
+    }
+
+    /**
+     * Sets the Buffer to WRITE mode, following writes are appended after the compressed data.
+     * @param type the type of the newly writable Buffer, a STATIC buffer cannot hold writes larger than a block.
+     * @param extraSize ignored, the buffer always writes into a block of 'blockSize' bytes.
+     */
+    @Override
+    public void setWrite(TYPE type, int extraSize) {
+        if (this.getMode() == MODE.WRITE) return;
+        this.restart(type);
+    }
+
+    /**
+     * Clears the buffer so that it can be reused, all the compressed data is discarded.
+     * @param type the type of the cleared Buffer.
+     */
+    @Override
+    public void clear(TYPE type) {
+        super.clear(type);
+        this.framesLength = 0;
+        this.frameCursor = 0;
+    }
+
+    /**
+     * Moves the pointer to the start of the buffer, while in READ mode reading starts again from the first block,
+     * while in WRITE mode this is equivalent to clear.
+     */
+    @Override
+    public void rewind() {
+        if (this.getMode() == MODE.WRITE) {
+            this.clear(this.getType());
+            return;
+        }
+        this.frameCursor = 0;
+        this.getStorage().limit(0);
+        this.setPointer(0);
+        this.clearReadDictionary();
+    }
+
+    /**
+     * Moves the read pointer of the buffer by adding 'amount' to the current pointer,
+     * moving forward decompresses blocks as needed, moving backwards is only possible within the current block.
+     * @param amount signed amount of bytes to skip.
+     * @throws BufferOverflowException if the pointer is moved past the end of the buffer.
+     * @throws BufferUnderflowException if the pointer is moved backwards past the start of the current block.
+     * @throws UnsupportedOperationException if the buffer is in WRITE mode.
+     */
+    @Override
+    public void seekByte(int amount) throws BufferOverflowException, BufferUnderflowException {
+        if (this.getMode() == MODE.WRITE)
+            throw new UnsupportedOperationException("cannot move the pointer of a CompressedBuffer in WRITE mode.");
+        if (amount < 0) {
+            if (this.getPointer() + amount < 0) throw new BufferUnderflowException();
+            this.setPointer(this.getPointer() + amount);
+            return;
+        }
+        while (amount > 0) {
+            int step = Math.min(amount, this.getStorage().limit() - this.getPointer());
+            if (step == 0) {
+                try {
+                    this.fill(1);
+                } catch (BufferUnderflowException e) {
+                    throw new BufferOverflowException();
+                }
+                continue;
+            }
+            this.setPointer(this.getPointer() + step);
+            amount -= step;
+        }
+    }
+
+    /**
+     * Get the array holding the compressed data of the buffer.
+     * note: the array may be longer than the compressed data, use asByteBuffer or cloneSerialized
+     * to get the exact data.
+     * @return byte array that the buffer uses to manage the compressed data.
+     */
+    @Override
+    public byte[] getSerialized() {
+        if (this.getMode() == MODE.WRITE) this.flushBlock();
+        return this.frames;
+    }
+
+    /**
+     * Get a read only ByteBuffer view of the compressed data of the buffer.
+     * @return ByteBuffer backed by the buffers compressed data.
+     */
+    @Override
+    public ByteBuffer asByteBuffer() {
+        if (this.getMode() == MODE.WRITE) this.flushBlock();
+        return ByteBuffer.wrap(this.frames, 0, this.framesLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a byte array containing exactly the compressed data of the buffer.
+     * @return byte array containing all the compressed data currently in the buffer.
+     */
+    @Override
+    public byte[] cloneSerialized() {
+        if (this.getMode() == MODE.WRITE) this.flushBlock();
+        return Arrays.copyOf(this.frames, this.framesLength);
+    }
+}
@@ -0,0 +1,264 @@
+package com.binbuff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A buffer that many threads can write into at the same time, and a single thread consumes what they wrote.
+ * A writer claims a range of bytes (a region) by moving the write position forward with a compare and swap,
+ * fills the region without any locking and then commits it, for example:      <br>
+ *      ConcurrentBuffer log = new ConcurrentBuffer(1024 * 1024);                 <br>
+ *      ------on any thread------                                                 <br>
+ *      log.write(event);                                                         <br>
+ *      ------or when the size of the data is known------                         <br>
+ *      ConcurrentBuffer.Region region = log.claim(8);                            <br>
+ *      region.write(time);                                                       <br>
+ *      region.commit();                                                          <br>
+ *      ------on the consumer thread------                                        <br>
+ *      Buffer events = log.poll();  // null if nothing new was published.        <br>
+ *
+ * Committed regions are published in the order they were claimed, the consumer only sees a region once it and
+ * all the regions that were claimed before it are committed, so the data it reads is never partly written.
+ * The committing thread publishes its region along with any following regions that were committed before it,
+ * so no thread waits for another thread to commit.
+ *
+ * The buffer does not grow, a claim that does not fit in the remaining space throws an IllegalStateException,
+ * once the writers are done the buffer can be cleared and reused.
+ * note: every claimed region must be committed, the regions that were claimed after it are not published until it is.
+ */
+public class ConcurrentBuffer {
+
+    /**
+     * The default maximal number of regions that may be claimed but not yet published.
+     */
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    private final ByteBuffer storage;
+    private final byte[] data;
+    private final ByteOrder order;
+
+    // the number of claimed regions (the high 32 bits) and the end of the last claimed region (the low 32 bits),
+    // both are kept in one long so that a region is claimed with a single compare and swap.
+    private final AtomicLong claimed;
+    // the number of published regions and the end of the published data, in the same layout.
+    private final AtomicLong published;
+    // the number of every pending region plus one (the high 32 bits) and its end (the low 32 bits) once it is committed,
+    // a region is kept at the index of its number modulo the length of the array.
+    private final AtomicLongArray committed;
+    private final int mask;
+
+    // every thread serializes into its own buffer and copies the result into a region of the exact size.
+    private final ThreadLocal<Buffer> scratch;
+    // the end of the data returned by the last poll, only used by the consumer.
+    private int consumed;
+
+    /**
+     * Constructs a ConcurrentBuffer.
+     * @param capacity the number of bytes the buffer can hold.
+     * @param maxPending the maximal number of regions that may be claimed but not yet published
+     *                   (rounded up to a power of two), a claim waits while there are more.
+     * @param order the byte order primitives will be written in.
+     * @throws IllegalArgumentException if the capacity is negative or maxPending is not positive.
+     */
+    public ConcurrentBuffer(int capacity, int maxPending, ByteOrder order) throws IllegalArgumentException {
+        if (capacity < 0) throw new IllegalArgumentException("the capacity must not be negative - " + capacity + ".");
+        if (maxPending <= 0 || maxPending > 1 << 30)
+            throw new IllegalArgumentException("the maximal number of pending regions must be positive - " + maxPending + ".");
+        this.storage = ByteBuffer.allocate(capacity);
+        this.data = this.storage.array();
+        this.order = order;
+        this.claimed = new AtomicLong();
+        this.published = new AtomicLong();
+        int slots = maxPending == 1 ? 1 : Integer.highestOneBit(maxPending - 1) << 1;
+        this.committed = new AtomicLongArray(slots);
+        this.mask = slots - 1;
+        this.scratch = ThreadLocal.withInitial(() -> new Buffer(Buffer.TYPE.DYNAMIC, order));
+    }
+
+    /**
+     * Constructs a ConcurrentBuffer that allows DEFAULT_MAX_PENDING pending regions.
+     * @see ConcurrentBuffer#ConcurrentBuffer(int, int, ByteOrder)
+     */
+    public ConcurrentBuffer(int capacity, ByteOrder order) {
+        this(capacity, DEFAULT_MAX_PENDING, order);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN ConcurrentBuffer that allows DEFAULT_MAX_PENDING pending regions.
+     * @see ConcurrentBuffer#ConcurrentBuffer(int, int, ByteOrder)
+     */
+    public ConcurrentBuffer(int capacity) {
+        this(capacity, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * A range of bytes claimed in a ConcurrentBuffer, the region is a STATIC buffer in WRITE mode that
+     * holds exactly the claimed number of bytes, it must be filled and then committed.
+     * A region belongs to the thread that claimed it and must not be used after it was committed.
+     */
+    public static final class Region extends Buffer {
+
+        private final ConcurrentBuffer owner;
+        private final ByteBuffer region;
+        private final int sequence;
+        private final int end;
+        private boolean committed;
+
+        private Region(ConcurrentBuffer owner, ByteBuffer region, int sequence, int end) {
+            super(region, TYPE.STATIC, MODE.WRITE, owner.order);
+            this.owner = owner;
+            this.region = region;
+            this.sequence = sequence;
+            this.end = end;
+        }
+
+        /**
+         * Publishes the region to the consumer once all the regions that were claimed before it are committed.
+         * @throws IllegalStateException if the region was not filled or was already committed.
+         */
+        public void commit() throws IllegalStateException {
+            if (this.committed) throw new IllegalStateException("the region was already committed.");
+            if (this.getStorage() != this.region || this.getPointer() != this.region.capacity())
+                throw new IllegalStateException("the region must be filled before it is committed, " +
+                        this.getPointer() + " of " + this.region.capacity() + " bytes were written.");
+            this.committed = true;
+            this.owner.commit(this.sequence, this.end);
+        }
+    }
+
+    /**
+     * Claims a region of the given size, the region is written to like any other buffer and then committed.
+     * @param size the number of bytes in the region.
+     * @return the claimed region.
+     * @throws IllegalArgumentException if the size is not positive.
+     * @throws IllegalStateException if there is not enough space left in the buffer.
+     */
+    public Region claim(int size) throws IllegalArgumentException, IllegalStateException {
+        if (size <= 0) throw new IllegalArgumentException("the size of a region must be positive - " + size + ".");
+        long claim = this.claimRange(size);
+        int start = (int) claim;
+        ByteBuffer region = this.storage.duplicate();
+        region.position(start);
+        region.limit(start + size);
+        return new Region(this, region.slice(), (int) (claim >>> 32), start + size);
+    }
+
+    /**
+     * Writes the serializable object as one region,
+     * the object is serialized into a buffer that belongs to the calling thread and then copied into the region.
+     * @param data the object to write.
+     * @throws IllegalStateException if there is not enough space left in the buffer.
+     */
+    public void write(ISerializable data) throws IllegalStateException {
+        Buffer scratch = this.scratch.get();
+        scratch.clear();
+        scratch.write(data);
+        this.write(scratch);
+    }
+
+    /**
+     * Writes the data with the serializer as one region.
+     * @param serializer the serializer of the data.
+     * @param data the data to write.
+     * @throws IllegalStateException if there is not enough space left in the buffer.
+     * @see ConcurrentBuffer#write(ISerializable)
+     */
+    public <T> void write(ISerializer<T> serializer, T data) throws IllegalStateException {
+        Buffer scratch = this.scratch.get();
+        scratch.clear();
+        scratch.write(serializer, data);
+        this.write(scratch);
+    }
+
+    /*
+    Copies the data of a scratch buffer into a region of the same size and commits it.
+     */
+    private void write(Buffer scratch) {
+        int length = scratch.getPointer();
+        if (length == 0) return;
+        long claim = this.claimRange(length);
+        int start = (int) claim;
+        System.arraycopy(scratch.getStorage().array(), scratch.getStorage().arrayOffset(), this.data, start, length);
+        this.commit((int) (claim >>> 32), start + length);
+    }
+
+    /*
+    Moves the claimed position forward by 'size' bytes, returns the number of the claimed region (the high 32 bits)
+    and its start (the low 32 bits). While too many regions are pending the claim yields until some are published.
+     */
+    private long claimRange(int size) throws IllegalStateException {
+        for (;;) {
+            long current = this.claimed.get();
+            int sequence = (int) (current >>> 32);
+            int start = (int) current;
+            if (size > this.data.length - start)
+                throw new IllegalStateException("not enough space in the buffer for " + size + " more bytes, "
+                        + (this.data.length - start) + " bytes are left.");
+            if (sequence - (int) (this.published.get() >>> 32) > this.mask) {
+                Thread.yield();
+                continue;
+            }
+            if (this.claimed.compareAndSet(current, current + (1L << 32) + size)) return current;
+        }
+    }
+
+    /*
+    Marks the region as committed and publishes every committed region that follows the published data.
+    A thread that commits a region out of order publishes nothing, in that case the thread that commits
+    the missing region will see its commit (or it sees the missing region published and publishes its own).
+     */
+    private void commit(int sequence, int end) {
+        this.committed.set(sequence & this.mask, ((long) (sequence + 1) << 32) | end);
+        for (;;) {
+            long current = this.published.get();
+            int next = (int) (current >>> 32);
+            long region = this.committed.get(next & this.mask);
+            if ((int) (region >>> 32) != next + 1) return;
+            this.published.compareAndSet(current, region);
+        }
+    }
+
+    /**
+     * Get the data that was published since the last poll, the data is not copied.
+     * note: poll must only be called by a single consumer thread.
+     * @return a STATIC buffer in READ mode over the newly published data, or null if nothing new was published.
+     */
+    public Buffer poll() {
+        int end = (int) this.published.get();
+        if (end == this.consumed) return null;
+        ByteBuffer view = this.storage.duplicate();
+        view.position(this.consumed);
+        view.limit(end);
+        this.consumed = end;
+        return new Buffer(view.slice(), Buffer.TYPE.STATIC, Buffer.MODE.READ, this.order);
+    }
+
+    /**
+     * Get the number of bytes of data that were published.
+     * @return the length of the published data.
+     */
+    public int getPublishedLength() {
+        return (int) this.published.get();
+    }
+
+    /**
+     * Get the number of bytes the buffer can hold.
+     * @return the capacity of the buffer.
+     */
+    public int getCapacity() {
+        return this.data.length;
+    }
+
+    /**
+     * Clears the buffer so that it can be written again from the start.
+     * note: clear must only be called once every claimed region was committed and no thread is writing into the buffer.
+     */
+    public void clear() {
+        for (int i = 0; i < this.committed.length(); i++) this.committed.set(i, 0);
+        this.published.set(0);
+        this.claimed.set(0);
+        this.consumed = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.binbuff;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An ICompressor that uses the JDK's Deflater and Inflater (the zlib format).
+ * Deflate achieves good compression ratios but is considerably slower than the LZCompressor,
+ * the compression level can be used to trade speed for compression ratio.
+ * @see ICompressor
+ */
+public class DeflateCompressor implements ICompressor {
+
+    private final int level;
+
+    /**
+     * Constructs a DeflateCompressor with the given compression level.
+     * @param level the compression level (0-9), or Deflater.DEFAULT_COMPRESSION.
+     */
+    public DeflateCompressor(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level " + level + ".");
+        this.level = level;
+    }
+
+    /**
+     * Constructs a DeflateCompressor that compresses with Deflater.BEST_SPEED.
+     * @see DeflateCompressor#DeflateCompressor(int)
+     */
+    public DeflateCompressor() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    @Override
+    public int maxCompressedLength(int length) {
+        // zlib's compressBound with some extra room for the stream header.
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 32;
+    }
+
+    @Override
+    public long maxDecompressedLength(int length) {
+        // deflate can not compress better than 1032:1.
+        return (long) length * 1032 + 32;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+        Deflater deflater = new Deflater(this.level);
+        try {
+            deflater.setInput(src, srcOffset, length);
+            deflater.finish();
+            int written = 0;
+            int capacity = this.maxCompressedLength(length);
+            while (!deflater.finished()) {
+                if (written == capacity) throw new IllegalStateException("compressed data is larger than its bound.");
+                written += deflater.deflate(dest, destOffset + written, capacity - written);
+            }
+            return written;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength)
+            throws IllegalStateException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src, srcOffset, length);
+            int read = 0;
+            while (read < originalLength) {
+                int n = inflater.inflate(dest, destOffset + read, originalLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalStateException("Malformed compressed data in buffer.");
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Malformed compressed data in buffer.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.binbuff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A Buffer that keeps its data in direct (off-heap) memory allocated with ByteBuffer.allocateDirect.
+ * The direct buffer supports the exact same write and read operations as the Buffer and can be used anywhere
+ * a Buffer is accepted, for example as the argument of ISerializable.serialize.
+ * Keeping the data off the java heap means it is not copied around by the garbage collector,
+ * and that it can be handed to NIO channels without being copied into direct memory first,
+ * (use asByteBuffer to get a view of the data that can be written to a channel)
+ * for example:                                                 <br>
+ *      DirectBuffer buf = new DirectBuffer(Buffer.TYPE.DYNAMIC);  <br>
+ *      buf.write(some_data);                                   <br>
+ *      channel.write(buf.asByteBuffer());                      <br>
+ *
+ * note: the data of a direct buffer is not kept in a byte array, thus getSerialized is not supported,
+ * use cloneSerialized or asByteBuffer instead.
+ * note: direct memory is more costly to allocate than heap memory, so direct buffers are best suited
+ * for large buffers that are reused or that live for a long time.
+ * @see Buffer
+ */
+public class DirectBuffer extends Buffer {
+
+    @Override
+    ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Constructs a copy of a given Buffer, the copy keeps its data in direct memory.
+     * @param other the Buffer to copy.
+     */
+    public DirectBuffer(Buffer other) {
+        super(other);
+    }
+
+    /**
+     * Constructs a DirectBuffer of a given type, size and byte order.
+     * @param type the type of the buffer.
+     * @param size the size of the buffer.
+     * @param order the byte order primitives will be written in.
+     */
+    public DirectBuffer(TYPE type, int size, ByteOrder order) {
+        super(type, size, order);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN DirectBuffer of a given type and size.
+     * @see DirectBuffer#DirectBuffer(TYPE, int, ByteOrder)
+     */
+    public DirectBuffer(TYPE type, int size) {
+        super(type, size);
+    }
+
+    /**
+     * Constructs DirectBuffer with default size of 32
+     * @see DirectBuffer#DirectBuffer(TYPE, int, ByteOrder)
+     */
+    public DirectBuffer(TYPE type, ByteOrder order) {
+        super(type, order);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN DirectBuffer with default size of 32
+     * @see DirectBuffer#DirectBuffer(TYPE, int, ByteOrder)
+     */
+    public DirectBuffer(TYPE type) {
+        super(type);
+    }
+
+    /**
+     * Constructs DirectBuffer from a ByteBuffer describing the buffer data,
+     * the buffer data will be the bytes between the position and the limit of the given ByteBuffer.
+     * If the given ByteBuffer is direct its memory is shared with the created buffer and no data is copied,
+     * (for example a ByteBuffer that data was read into from a channel)
+     * otherwise the data will be copied into direct memory.
+     * The created buffer will be STATIC and in READ mode (read/write pointer pointing to 0).
+     * @param data the data to create the buffer with.
+     * @param order the byte order the data was written with.
+     */
+    public DirectBuffer(ByteBuffer data, ByteOrder order) {
+        super(data.isDirect() ? data.slice() : ByteBuffer.allocateDirect(data.remaining()).put(data.duplicate()),
+                TYPE.STATIC, MODE.READ, order);
+    }
+
+    /**
+     * Constructs BIG_ENDIAN DirectBuffer from a ByteBuffer describing the buffer data.
+     * @see DirectBuffer#DirectBuffer(ByteBuffer, ByteOrder)
+     */
+    public DirectBuffer(ByteBuffer data) {
+        this(data, ByteOrder.BIG_ENDIAN);
+    }
+}
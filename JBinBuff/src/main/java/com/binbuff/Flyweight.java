@@ -0,0 +1,134 @@
+package com.binbuff;
+
+/**
+ * A view over an object that was serialized into a buffer, the fields of the object are read (and fixed width
+ * fields updated) straight from the buffer's data at their offset from the start of the object, without
+ * deserializing the object and without allocating anything, a single flyweight can be moved from object to object.
+ * A flyweight is declared by extending this class with accessors for the fields at fixed offsets, for example
+ * for a Game that writes its width and height (ints) before anything else:      <br>
+ *      class GameView extends Flyweight {                                       <br>
+ *          int getWidth() { return this.getInt(0); }                            <br>
+ *          void setHeight(int height) { this.putInt(4, height); }               <br>
+ *      }                                                                        <br>
+ *      GameView view = new GameView();                                          <br>
+ *      for (int position : buf.getRecordPositions()) {                          <br>
+ *          view.wrap(buf, position);                                            <br>
+ *          if (view.getWidth() > 1000) ...                                      <br>
+ *      }                                                                        <br>
+ *
+ * The BinBuff annotation processor generates a flyweight ([ClassName]BinBuffFlyweight) for every annotated class
+ * with accessors for all the primitive fields that come before the first field of variable size,
+ * a field whose accessor would be one of the methods of this class (a field named buffer or offset) is a compile error.
+ * note: flyweights work on buffers that keep all of their data in their storage (see Buffer#getInt(int)),
+ * accessing a field that is not within the buffer's data throws an IndexOutOfBoundsException.
+ * @see BinBuff
+ */
+public abstract class Flyweight {
+
+    private Buffer buffer;
+    private int offset;
+
+    /**
+     * Moves the flyweight to the object that starts at the given offset of the buffer's data.
+     * Subclasses override this method to return their own type.
+     * @param buffer the buffer the object was serialized into.
+     * @param offset the index of the first byte of the object in the buffer's data.
+     * @return this flyweight.
+     * @throws IllegalArgumentException if the buffer is null or the offset is negative.
+     */
+    public Flyweight wrap(Buffer buffer, int offset) throws IllegalArgumentException {
+        if (buffer == null) throw new IllegalArgumentException("the buffer cannot be null.");
+        if (offset < 0) throw new IllegalArgumentException("the offset must not be negative - " + offset + ".");
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Get the buffer the flyweight reads from.
+     * @return the buffer of the flyweight, or null if it was not wrapped yet.
+     */
+    public Buffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Get the index of the first byte of the current object in the buffer's data.
+     * @return the offset of the flyweight.
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    //region Fields
+
+    /*
+    The methods in this region read and update the field at the given offset from the start of the object.
+     */
+
+    protected final byte getByte(int field) {
+        return this.buffer.getByte(this.offset + field);
+    }
+
+    protected final boolean getBoolean(int field) {
+        return this.buffer.getBoolean(this.offset + field);
+    }
+
+    protected final short getShort(int field) {
+        return this.buffer.getShort(this.offset + field);
+    }
+
+    protected final char getChar(int field) {
+        return this.buffer.getChar(this.offset + field);
+    }
+
+    protected final int getInt(int field) {
+        return this.buffer.getInt(this.offset + field);
+    }
+
+    protected final long getLong(int field) {
+        return this.buffer.getLong(this.offset + field);
+    }
+
+    protected final float getFloat(int field) {
+        return this.buffer.getFloat(this.offset + field);
+    }
+
+    protected final double getDouble(int field) {
+        return this.buffer.getDouble(this.offset + field);
+    }
+
+    protected final void putByte(int field, byte value) {
+        this.buffer.putByte(this.offset + field, value);
+    }
+
+    protected final void putBoolean(int field, boolean value) {
+        this.buffer.putBoolean(this.offset + field, value);
+    }
+
+    protected final void putShort(int field, short value) {
+        this.buffer.putShort(this.offset + field, value);
+    }
+
+    protected final void putChar(int field, char value) {
+        this.buffer.putChar(this.offset + field, value);
+    }
+
+    protected final void putInt(int field, int value) {
+        this.buffer.putInt(this.offset + field, value);
+    }
+
+    protected final void putLong(int field, long value) {
+        this.buffer.putLong(this.offset + field, value);
+    }
+
+    protected final void putFloat(int field, float value) {
+        this.buffer.putFloat(this.offset + field, value);
+    }
+
+    protected final void putDouble(int field, double value) {
+        this.buffer.putDouble(this.offset + field, value);
+    }
+
+    //endregion
+}
@@ -0,0 +1,52 @@
+package com.binbuff;
+
+/**
+ * Represents a compression algorithm that is used by a CompressedBuffer to compress blocks of serialized data.
+ * Implementations must be safe to use from several threads at once, since a single compressor
+ * may be shared by many buffers.
+ * @see CompressedBuffer
+ * @see DeflateCompressor
+ * @see LZCompressor
+ */
+public interface ICompressor {
+
+    /**
+     * Get the maximal number of bytes compress may produce for 'length' bytes of input.
+     * @param length the number of bytes that will be compressed.
+     * @return the maximal size of the compressed data.
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * Get the maximal number of bytes 'length' bytes of compressed data may decompress into,
+     * used to reject malformed data before anything is allocated for it.
+     * @param length the number of bytes of compressed data.
+     * @return the maximal size of the decompressed data.
+     */
+    long maxDecompressedLength(int length);
+
+    /**
+     * Compresses 'length' bytes of src starting at srcOffset into dest starting at destOffset.
+     * @param src the data that should be compressed.
+     * @param srcOffset the index of the first byte that should be compressed.
+     * @param length the number of bytes that should be compressed.
+     * @param dest the array the compressed data is written to, it must have at least
+     *             maxCompressedLength(length) bytes starting at destOffset.
+     * @param destOffset the index the compressed data should be written at.
+     * @return the number of bytes of compressed data that were written to dest.
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset);
+
+    /**
+     * Decompresses 'length' bytes of compressed data from src starting at srcOffset into dest starting at destOffset.
+     * @param src the compressed data.
+     * @param srcOffset the index of the first byte of the compressed data.
+     * @param length the number of bytes of compressed data.
+     * @param dest the array the data is decompressed into.
+     * @param destOffset the index the data should be decompressed to.
+     * @param originalLength the number of bytes the data had before it was compressed.
+     * @throws IllegalStateException if the compressed data is malformed.
+     */
+    void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength)
+            throws IllegalStateException;
+}
@@ -0,0 +1,42 @@
+package com.binbuff;
+
+/**
+ * Represents the way a DYNAMIC buffer grows when it runs out of space.
+ * The buffer never grows past its maximal capacity (see Buffer.setMaxCapacity) whatever the policy returns.
+ * @see Buffer#setGrowthPolicy(IGrowthPolicy)
+ */
+public interface IGrowthPolicy {
+
+    /**
+     * Doubles the capacity of the buffer, this is the default policy.
+     */
+    IGrowthPolicy DOUBLING = factor(2);
+
+    /**
+     * Get the new capacity of a buffer that needs to grow.
+     * @param capacity the current capacity of the buffer.
+     * @param required the minimal capacity the buffer needs.
+     * @return the new capacity of the buffer, values smaller than 'required' are treated as 'required'.
+     */
+    int newCapacity(int capacity, int required);
+
+    /**
+     * Get a policy that multiplies the capacity of the buffer by a given factor.
+     * @param factor the factor the capacity is multiplied by, must be greater than 1.
+     * @return the growth policy.
+     */
+    static IGrowthPolicy factor(double factor) {
+        if (!(factor > 1)) throw new IllegalArgumentException("growth factor must be greater than 1.");
+        return (capacity, required) -> (int) Math.min(Integer.MAX_VALUE, Math.max(required, (long) (capacity * factor)));
+    }
+
+    /**
+     * Get a policy that adds a fixed number of bytes to the capacity of the buffer.
+     * @param increment the number of bytes added to the capacity, must be positive.
+     * @return the growth policy.
+     */
+    static IGrowthPolicy linear(int increment) {
+        if (increment <= 0) throw new IllegalArgumentException("growth increment must be positive.");
+        return (capacity, required) -> (int) Math.min(Integer.MAX_VALUE, Math.max(required, (long) capacity + increment));
+    }
+}
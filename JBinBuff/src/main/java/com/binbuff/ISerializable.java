@@ -11,4 +11,14 @@ public interface ISerializable {
     void serialize(Buffer buffer);
 
     void deserialize(Buffer buffer);
+
+    /**
+     * Get the number of bytes serialize writes, the buffer uses it in order to reserve space
+     * for the data at once instead of growing while it is written.
+     * The size is only a hint, an inaccurate size does not affect the written data.
+     * @return the number of bytes serialize writes, or a negative value if it is not known.
+     */
+    default int serializedSize() {
+        return -1;
+    }
 }
\ No newline at end of file
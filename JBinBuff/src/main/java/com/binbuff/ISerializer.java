@@ -7,4 +7,15 @@ package com.binbuff;
 public interface ISerializer<T> {
 
     void serialize(T data, Buffer buffer);
+
+    /**
+     * Get the number of bytes serialize writes for the given data, the buffer uses it in order to reserve space
+     * for the data at once instead of growing while it is written.
+     * The size is only a hint, an inaccurate size does not affect the written data.
+     * @param data the data that will be serialized.
+     * @return the number of bytes serialize writes, or a negative value if it is not known.
+     */
+    default int serializedSize(T data) {
+        return -1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.binbuff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A READ mode Buffer that reads its data from an InputStream on demand.
+ * Unlike Buffer(InputStream, int) the data is not read up front, the buffer holds a chunk of 'chunkSize' bytes
+ * and reads more of the stream into it when a read reaches the end of the chunk,
+ * so the memory used by the buffer does not depend on the amount of data in the stream, for example: <br>
+ *      try (InputStreamBuffer buf = new InputStreamBuffer(Files.newInputStream(path))) { <br>
+ *          int count = buf.readInt();                                 <br>
+ *          buf.read(players, Player.class, count);                    <br>
+ *      }                                                              <br>
+ *
+ * note: a read that is larger than a whole chunk gets a larger chunk of its own.
+ * note: the buffer is always STATIC and in READ mode, writing to it or changing its mode is not supported,
+ * and since the data is not kept by the buffer getSerialized, cloneSerialized and asByteBuffer are not supported.
+ * note: the pointer can only be moved backwards within the current chunk.
+ * @see OutputStreamBuffer
+ */
+public class InputStreamBuffer extends Buffer implements Closeable {
+
+    /**
+     * The default size of a chunk - 64KB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream stream;
+    private final int chunkSize;
+    // the number of bytes that were read from the stream and dropped from the chunk.
+    private long consumedBytes;
+
+    /**
+     * Constructs an InputStreamBuffer that reads from the given stream.
+     * @param stream the stream the data is read from.
+     * @param chunkSize the number of bytes read from the stream at once.
+     * @param order the byte order the data was written with.
+     */
+    public InputStreamBuffer(InputStream stream, int chunkSize, ByteOrder order) {
+        super(emptyStorage(chunkSize), TYPE.STATIC, MODE.READ, order);
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunk size must be positive.");
+        this.stream = stream;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Constructs an InputStreamBuffer with the default chunk size.
+     * @see InputStreamBuffer#InputStreamBuffer(InputStream, int, ByteOrder)
+     */
+    public InputStreamBuffer(InputStream stream, ByteOrder order) {
+        this(stream, DEFAULT_CHUNK_SIZE, order);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN InputStreamBuffer with the default chunk size.
+     * @see InputStreamBuffer#InputStreamBuffer(InputStream, int, ByteOrder)
+     */
+    public InputStreamBuffer(InputStream stream) {
+        this(stream, ByteOrder.BIG_ENDIAN);
+    }
+
+    private static ByteBuffer emptyStorage(int capacity) {
+        ByteBuffer storage = ByteBuffer.allocate(capacity);
+        storage.limit(0);
+        return storage;
+    }
+
+    /*
+    Moves the bytes that were not read yet to the start of the chunk and reads from the stream after them
+    until at least 'size' bytes are readable, a chunk that grew for a large read is replaced by a chunk
+    of 'chunkSize' bytes once it is no longer needed.
+     */
+    @Override
+    void fill(int size) throws BufferUnderflowException {
+        ByteBuffer storage = this.getStorage();
+        int pointer = this.getPointer();
+        int readable = storage.limit() - pointer;
+        byte[] chunk = storage.array();
+        int capacity = Math.max(this.chunkSize, size);
+        if (chunk.length < size || (chunk.length != capacity && readable <= capacity)) {
+            byte[] resized = new byte[capacity];
+            System.arraycopy(chunk, pointer, resized, 0, readable);
+            chunk = resized;
+            storage = ByteBuffer.wrap(chunk);
+        }
+        else System.arraycopy(chunk, pointer, chunk, 0, readable);
+        this.consumedBytes += pointer;
+
+        try {
+            while (readable < size) {
+                int read = this.stream.read(chunk, readable, chunk.length - readable);
+                if (read < 0) {
+                    storage.limit(readable);
+                    this.setStorage(storage, 0);
+                    throw new BufferUnderflowException();
+                }
+                readable += read;
+            }
+        } catch (IOException e) {
+            storage.limit(readable);
+            this.setStorage(storage, 0);
+            throw new UncheckedIOException("problem reading from the stream", e);
+        }
+        storage.limit(readable);
+        this.setStorage(storage, 0);
+    }
+
+    /**
+     * Get the position of the read pointer, that is the number of bytes that were read from the buffer.
+     * @return the position of the read pointer.
+     */
+    @Override
+    public long getPosition() {
+        return this.consumedBytes + this.getPointer();
+    }
+
+    /*
+    The data of the stream is only read once, so the pointer cannot be moved to any position (for example to a record)
+    and the size of the data is not known in advance.
+     */
+    @Override
+    void setPosition(long position) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("an InputStreamBuffer cannot move to a position, use seekByte to skip data.");
+    }
+
+    @Override
+    long getSize() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the size of an InputStreamBuffer is not known before the stream ends.");
+    }
+
+    @Override
+    ByteBuffer absoluteStorage(int index, int size) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an InputStreamBuffer is not kept by the buffer.");
+    }
+
+    @Override
+    boolean isReadable(long size) {
+        return true;
+    }
+
+    /**
+     * Moves the read pointer of the buffer by adding 'amount' to the current pointer,
+     * moving forward reads from the stream as needed, moving backwards is only possible within the current chunk.
+     * @param amount signed amount of bytes to skip.
+     * @throws BufferOverflowException if the pointer is moved past the end of the stream.
+     * @throws BufferUnderflowException if the pointer is moved backwards past the start of the current chunk.
+     */
+    @Override
+    public void seekByte(int amount) throws BufferOverflowException, BufferUnderflowException {
+        if (amount < 0) {
+            if (this.getPointer() + amount < 0) throw new BufferUnderflowException();
+            this.setPointer(this.getPointer() + amount);
+            return;
+        }
+        while (amount > 0) {
+            int step = Math.min(amount, this.getStorage().limit() - this.getPointer());
+            if (step == 0) {
+                try {
+                    this.fill(1);
+                } catch (BufferUnderflowException e) {
+                    throw new BufferOverflowException();
+                }
+                continue;
+            }
+            this.setPointer(this.getPointer() + step);
+            amount -= step;
+        }
+    }
+
+    /**
+     * Closes the stream the buffer reads from.
+     * @throws IOException if there is a problem closing the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        this.stream.close();
+    }
+
+    /**
+     * A stream cannot be read again, rewinding an InputStreamBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void rewind() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot rewind an InputStreamBuffer.");
+    }
+
+    /**
+     * Writing to an InputStreamBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setWrite(TYPE type, int extraSize) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot write to an InputStreamBuffer.");
+    }
+
+    /**
+     * Writing to an InputStreamBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void clear(TYPE type) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot write to an InputStreamBuffer.");
+    }
+
+    /**
+     * The data of an InputStreamBuffer is read from its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] getSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an InputStreamBuffer is read from its stream.");
+    }
+
+    /**
+     * The data of an InputStreamBuffer is read from its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public ByteBuffer asByteBuffer() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an InputStreamBuffer is read from its stream.");
+    }
+
+    /**
+     * The data of an InputStreamBuffer is read from its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] cloneSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an InputStreamBuffer is read from its stream.");
+    }
+}
@@ -0,0 +1,94 @@
+package com.binbuff;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+/**
+ * Creates the instances the buffer reads into when reading collections, maps and null array elements.
+ * Looking up the empty constructor of a class and checking its access on every element costs more
+ * than reading the element itself, so the constructor of each class is resolved once into a Supplier
+ * and cached in a ClassValue.
+ * The Supplier calls the constructor directly (it is spun by the LambdaMetafactory, like a T::new lambda)
+ * when the constructor is accessible from this package, otherwise it falls back to the cached Constructor.
+ */
+final class Instantiator {
+
+    private Instantiator() { }
+
+    private static final ClassValue<Supplier<?>> suppliers = new ClassValue<Supplier<?>>() {
+        @Override
+        protected Supplier<?> computeValue(Class<?> type) {
+            return supplier(type);
+        }
+    };
+
+    /**
+     * Get the Supplier that creates instances of the given class using its empty constructor.
+     * @param type the class of the instances.
+     * @param <T> the type of the instances.
+     * @return the Supplier of the class, if the class cannot be instantiated the Supplier throws IllegalArgumentException.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Supplier<T> of(Class<T> type) {
+        return (Supplier<T>) suppliers.get(type);
+    }
+
+    private static Supplier<?> supplier(Class<?> type) {
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+        } catch (NoSuchMethodException | SecurityException e) {
+            return failing(type, e);
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+            // the generated class is defined next to this one, it must be able to see the class it creates.
+            if (isVisible(type)) {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+                return (Supplier<?>) site.getTarget().invoke();
+            }
+        } catch (ReflectiveOperationException | LambdaConversionException | SecurityException ignored) {
+            // the constructor is not accessible from this package, it is called through reflection.
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // invoking the call site only returns the generated supplier, it does not throw checked exceptions.
+            throw new IllegalStateException(e);
+        }
+
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+                throw readFailure(type, e);
+            }
+        };
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, Instantiator.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Supplier<?> failing(Class<?> type, Exception cause) {
+        return () -> { throw readFailure(type, cause); };
+    }
+
+    private static IllegalArgumentException readFailure(Class<?> type, Exception cause) {
+        return new IllegalArgumentException("Cannot read object of type - " + type.getSimpleName() +
+                ", all readable classes must have an empty constructor", cause);
+    }
+}
@@ -0,0 +1,285 @@
+package com.binbuff;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int values, unlike a Map< Integer, Integer> it does not box its keys and values
+ * and does not create an entry object for every mapping.
+ * The keys and values are kept in a single array (every key is followed by its value) with open addressing
+ * and linear probing, a key of 0 marks an empty slot so the mapping of the key 0 is kept outside of the array.
+ * Getting a key that is not in the map returns the map's missing value (0 by default) instead of null.
+ * The map is written into a Buffer as its size (a variable length int) followed by every key and its value,
+ * reading the map replaces its contents and sizes it for all the mappings at once.
+ */
+public class Int2IntHashMap implements ISerializable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.65f;
+
+    /**
+     * Receives the mappings of the map in forEach.
+     */
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private final int missingValue;
+    // keys at even indices and their values at the following odd indices, the number of slots is a power of two.
+    private int[] entries;
+    private int mask;
+    private int resizeThreshold;
+    private int size;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Constructs an empty map.
+     * @param capacity the number of mappings the map can hold before it grows.
+     * @param missingValue the value returned for keys that are not in the map.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public Int2IntHashMap(int capacity, int missingValue) throws IllegalArgumentException {
+        if (capacity < 0) throw new IllegalArgumentException("the capacity must not be negative - " + capacity + ".");
+        this.missingValue = missingValue;
+        this.allocate(slotsFor(capacity));
+    }
+
+    /**
+     * Constructs an empty map with a missing value of 0.
+     * @see Int2IntHashMap#Int2IntHashMap(int, int)
+     */
+    public Int2IntHashMap() {
+        this(DEFAULT_CAPACITY, 0);
+    }
+
+    private static int slotsFor(int capacity) {
+        long slots = Math.max(2, (long) Math.ceil(capacity / LOAD_FACTOR));
+        if (slots > 1 << 29) throw new IllegalStateException("cannot hold " + capacity + " mappings.");
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    private void allocate(int slots) {
+        this.entries = new int[2 * slots];
+        this.mask = slots - 1;
+        this.resizeThreshold = (int) (slots * LOAD_FACTOR);
+    }
+
+    /*
+    Spreads the bits of the key (multiplication by the golden ratio) so that sequential keys do not form long runs.
+     */
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+    public int getMissingValue() {
+        return this.missingValue;
+    }
+
+    /**
+     * Get the value of the given key.
+     * @param key the key.
+     * @return the value of the key, or the missing value if the key is not in the map.
+     */
+    public int get(int key) {
+        if (key == 0) return this.hasZeroKey ? this.zeroValue : this.missingValue;
+        int[] entries = this.entries;
+        for (int slot = this.slot(key); ; slot = (slot + 1) & this.mask) {
+            int current = entries[2 * slot];
+            if (current == key) return entries[2 * slot + 1];
+            if (current == 0) return this.missingValue;
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) return this.hasZeroKey;
+        int[] entries = this.entries;
+        for (int slot = this.slot(key); ; slot = (slot + 1) & this.mask) {
+            int current = entries[2 * slot];
+            if (current == key) return true;
+            if (current == 0) return false;
+        }
+    }
+
+    /**
+     * Maps the key to the given value.
+     * @param key the key.
+     * @param value the value.
+     * @return the previous value of the key, or the missing value if the key was not in the map.
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int previous = this.hasZeroKey ? this.zeroValue : this.missingValue;
+            if (!this.hasZeroKey) this.size++;
+            this.hasZeroKey = true;
+            this.zeroValue = value;
+            return previous;
+        }
+        int[] entries = this.entries;
+        int slot = this.slot(key);
+        for (; entries[2 * slot] != 0; slot = (slot + 1) & this.mask) {
+            if (entries[2 * slot] == key) {
+                int previous = entries[2 * slot + 1];
+                entries[2 * slot + 1] = value;
+                return previous;
+            }
+        }
+        entries[2 * slot] = key;
+        entries[2 * slot + 1] = value;
+        if (++this.size > this.resizeThreshold) this.rehash(2 * (this.mask + 1));
+        return this.missingValue;
+    }
+
+    /**
+     * Adds the given delta to the value of the key, a key that is not in the map starts from the missing value.
+     * @param key the key.
+     * @param delta the amount to add.
+     * @return the new value of the key.
+     */
+    public int addTo(int key, int delta) {
+        int value = this.get(key) + delta;
+        this.put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes the mapping of the given key.
+     * @param key the key.
+     * @return the value of the key, or the missing value if the key was not in the map.
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!this.hasZeroKey) return this.missingValue;
+            this.hasZeroKey = false;
+            this.size--;
+            return this.zeroValue;
+        }
+        int[] entries = this.entries;
+        int slot = this.slot(key);
+        for (; entries[2 * slot] != key; slot = (slot + 1) & this.mask)
+            if (entries[2 * slot] == 0) return this.missingValue;
+        int removed = entries[2 * slot + 1];
+        this.size--;
+
+        // the following entries of the run are shifted back so that lookups do not stop at the removed slot.
+        int empty = slot;
+        for (int next = (slot + 1) & this.mask; entries[2 * next] != 0; next = (next + 1) & this.mask) {
+            int home = this.slot(entries[2 * next]);
+            // the entry can move to the empty slot only if its home slot is not between the empty slot and its slot.
+            if (((next - home) & this.mask) >= ((next - empty) & this.mask)) {
+                entries[2 * empty] = entries[2 * next];
+                entries[2 * empty + 1] = entries[2 * next + 1];
+                empty = next;
+            }
+        }
+        entries[2 * empty] = 0;
+        entries[2 * empty + 1] = 0;
+        return removed;
+    }
+
+    private void rehash(int slots) {
+        int[] old = this.entries;
+        this.allocate(slots);
+        int[] entries = this.entries;
+        for (int i = 0; i < old.length; i += 2) {
+            int key = old[i];
+            if (key == 0) continue;
+            int slot = this.slot(key);
+            while (entries[2 * slot] != 0) slot = (slot + 1) & this.mask;
+            entries[2 * slot] = key;
+            entries[2 * slot + 1] = old[i + 1];
+        }
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (this.hasZeroKey) consumer.accept(0, this.zeroValue);
+        int[] entries = this.entries;
+        for (int i = 0; i < entries.length; i += 2)
+            if (entries[i] != 0) consumer.accept(entries[i], entries[i + 1]);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the mappings, the map keeps its capacity.
+     */
+    public void clear() {
+        Arrays.fill(this.entries, 0);
+        this.hasZeroKey = false;
+        this.size = 0;
+    }
+
+    @Override
+    public void serialize(Buffer buffer) {
+        buffer.writeVarInt(this.size);
+        if (this.hasZeroKey) {
+            buffer.write(0);
+            buffer.write(this.zeroValue);
+        }
+        int[] entries = this.entries;
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == 0) continue;
+            buffer.write(entries[i]);
+            buffer.write(entries[i + 1]);
+        }
+    }
+
+    @Override
+    public int serializedSize() {
+        long size = Buffer.varIntSize(this.size) + 8L * this.size;
+        return size > Integer.MAX_VALUE ? -1 : (int) size;
+    }
+
+    @Override
+    public void deserialize(Buffer buffer) {
+        int size = buffer.readVarInt();
+        if (size < 0 || !buffer.isReadable(8L * size)) throw new IllegalStateException("Malformed map size in buffer.");
+        int slots = slotsFor(size);
+        if (slots > this.mask + 1) this.allocate(slots);
+        else Arrays.fill(this.entries, 0);
+        this.hasZeroKey = false;
+        this.size = 0;
+        for (int i = 0; i < size; i++) {
+            int key = buffer.readInt();
+            this.put(key, buffer.readInt());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Int2IntHashMap)) return false;
+        Int2IntHashMap other = (Int2IntHashMap) o;
+        if (this.size != other.size) return false;
+        if (this.hasZeroKey && (!other.hasZeroKey || other.zeroValue != this.zeroValue)) return false;
+        int[] entries = this.entries;
+        for (int i = 0; i < entries.length; i += 2) {
+            int key = entries[i];
+            if (key != 0 && (!other.containsKey(key) || other.get(key) != entries[i + 1])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hasZeroKey ? this.zeroValue : 0;
+        int[] entries = this.entries;
+        for (int i = 0; i < entries.length; i += 2)
+            if (entries[i] != 0) hash += entries[i] ^ entries[i + 1];
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        this.forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
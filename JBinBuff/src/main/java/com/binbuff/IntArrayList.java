@@ -0,0 +1,180 @@
+package com.binbuff;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints backed by an int array, unlike a List< Integer> it does not box its elements.
+ * The list is written into a Buffer as its size (a variable length int) followed by the elements,
+ * which are copied to and from the buffer in bulk, for example:     <br>
+ *      IntArrayList ids = new IntArrayList();                       <br>
+ *      ids.add(7);                                                  <br>
+ *      buff.write(ids);                                             <br>
+ *      ------reading the list------                                 <br>
+ *      IntArrayList read = new IntArrayList();                      <br>
+ *      buff.read(read);  // replaces the contents of the list.      <br>
+ */
+public class IntArrayList implements ISerializable {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Constructs an empty list with the given initial capacity.
+     * @param capacity the number of elements the list can hold before it grows.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public IntArrayList(int capacity) throws IllegalArgumentException {
+        if (capacity < 0) throw new IllegalArgumentException("the capacity must not be negative - " + capacity + ".");
+        this.elements = new int[capacity];
+    }
+
+    /**
+     * Constructs an empty list with a capacity of 10 elements.
+     * @see IntArrayList#IntArrayList(int)
+     */
+    public IntArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a list that holds a copy of the given elements.
+     * @param elements the elements of the list.
+     */
+    public IntArrayList(int[] elements) {
+        this.elements = elements.clone();
+        this.size = elements.length;
+    }
+
+    /**
+     * Makes sure the list can hold the given number of elements without growing.
+     * @param capacity the number of elements.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= this.elements.length) return;
+        int grown = (int) Math.min(Math.max(this.elements.length * 2L, capacity), Buffer.MAX_CAPACITY);
+        this.elements = Arrays.copyOf(this.elements, Math.max(grown, capacity));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("index " + index + " is out of bounds for size " + this.size + ".");
+    }
+
+    public void add(int value) {
+        if (this.size == this.elements.length) this.ensureCapacity(this.size + 1);
+        this.elements[this.size++] = value;
+    }
+
+    public void addAll(int[] values) {
+        this.ensureCapacity(this.size + values.length);
+        System.arraycopy(values, 0, this.elements, this.size, values.length);
+        this.size += values.length;
+    }
+
+    public int get(int index) {
+        this.checkIndex(index);
+        return this.elements[index];
+    }
+
+    /**
+     * Replaces the element at the given index.
+     * @param index the index of the element.
+     * @param value the new value of the element.
+     * @return the previous value of the element.
+     */
+    public int set(int index, int value) {
+        this.checkIndex(index);
+        int previous = this.elements[index];
+        this.elements[index] = value;
+        return previous;
+    }
+
+    /**
+     * Removes the element at the given index, the elements after it are shifted to the left.
+     * @param index the index of the element.
+     * @return the value of the removed element.
+     */
+    public int removeAt(int index) {
+        this.checkIndex(index);
+        int removed = this.elements[index];
+        System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+        this.size--;
+        return removed;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < this.size; i++)
+            if (this.elements[i] == value) return i;
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return this.indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the elements, the list keeps its capacity.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.elements, this.size);
+    }
+
+    @Override
+    public void serialize(Buffer buffer) {
+        buffer.writeVarInt(this.size);
+        buffer.write(this.elements, 0, this.size);
+    }
+
+    @Override
+    public int serializedSize() {
+        long size = Buffer.varIntSize(this.size) + 4L * this.size;
+        return size > Integer.MAX_VALUE ? -1 : (int) size;
+    }
+
+    @Override
+    public void deserialize(Buffer buffer) {
+        int size = buffer.readVarInt();
+        if (size < 0 || !buffer.isReadable(4L * size)) throw new IllegalStateException("Malformed list size in buffer.");
+        // the current elements are replaced, so there is no need to copy them when growing.
+        if (size > this.elements.length) this.elements = new int[size];
+        buffer.read(this.elements, 0, size);
+        this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntArrayList)) return false;
+        IntArrayList other = (IntArrayList) o;
+        if (this.size != other.size) return false;
+        for (int i = 0; i < this.size; i++)
+            if (this.elements[i] != other.elements[i]) return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < this.size; i++) hash = 31 * hash + this.elements[i];
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.toArray());
+    }
+}
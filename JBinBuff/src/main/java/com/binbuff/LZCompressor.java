@@ -0,0 +1,189 @@
+package com.binbuff;
+
+import java.util.Arrays;
+
+/**
+ * A fast pure java ICompressor from the LZ77 family, the compressed data uses a format similar to LZ4 blocks.
+ * The compressor finds repeated sequences of bytes with a hash table of 4 byte sequences and replaces
+ * them with references to their previous occurrence, it does not use any entropy coding,
+ * so it compresses less than the DeflateCompressor but compresses and decompresses many times faster.
+ * Every compressed block is a list of sequences, a sequence is made of:               <br>
+ * * a token byte - the high 4 bits are the number of literals and the low 4 bits are the match length - 4. <br>
+ * * the number of literals - 15, if it didn't fit the token, as a run of 255 bytes ending with a smaller byte. <br>
+ * * the literal bytes.                                                                <br>
+ * * the offset of the match, 2 bytes little endian.                                   <br>
+ * * the match length - 19, if it didn't fit the token, encoded like the number of literals. <br>
+ * The last sequence of a block contains only literals.
+ * @see ICompressor
+ */
+public class LZCompressor implements ICompressor {
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_LOG = 14;
+    // the number of missed positions before the search starts skipping bytes, speeds up incompressible data.
+    private static final int SKIP_TRIGGER = 6;
+
+    /*
+    The hash table of a thread, kept between blocks instead of allocating one for every block.
+    Slots hold the position + 1 of a sequence offset by 'base', every slot not greater than 'base'
+    was written for an earlier block and is empty, so the table does not have to be cleared.
+     */
+    private static final class HashTable {
+        private final int[] slots = new int[1 << HASH_LOG];
+        private int base;
+    }
+
+    private static final ThreadLocal<HashTable> tables = ThreadLocal.withInitial(HashTable::new);
+
+    @Override
+    public int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    @Override
+    public long maxDecompressedLength(int length) {
+        // a byte of a match length run adds at most 255 bytes, nothing else expands more.
+        return (long) length * 255 + 32;
+    }
+
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | src[i + 3] << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeLength(byte[] dest, int d, int length) {
+        while (length >= 255) {
+            dest[d++] = (byte) 255;
+            length -= 255;
+        }
+        dest[d++] = (byte) length;
+        return d;
+    }
+
+    /*
+    Writes a sequence of the literals src[literalStart, literalEnd) followed by a match,
+    a matchLength of 0 writes the last sequence of the block which has no match.
+     */
+    private static int writeSequence(byte[] src, int literalStart, int literalEnd,
+                                     int offset, int matchLength, byte[] dest, int d) {
+        int literals = literalEnd - literalStart;
+        int matchToken = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+        int token = d++;
+        dest[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchToken, 15));
+        if (literals >= 15) d = writeLength(dest, d, literals - 15);
+        System.arraycopy(src, literalStart, dest, d, literals);
+        d += literals;
+        if (matchLength == 0) return d;
+
+        dest[d++] = (byte) offset;
+        dest[d++] = (byte) (offset >>> 8);
+        if (matchToken >= 15) d = writeLength(dest, d, matchToken - 15);
+        return d;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+        HashTable hashTable = tables.get();
+        if (hashTable.base > Integer.MAX_VALUE - length) {
+            Arrays.fill(hashTable.slots, 0);
+            hashTable.base = 0;
+        }
+        int[] table = hashTable.slots;
+        // the value stored for a position, every value of this block is greater than hashTable.base.
+        int base = hashTable.base + 1 - srcOffset;
+        int end = srcOffset + length;
+        int d = destOffset;
+        int anchor = srcOffset;
+        int p = srcOffset;
+        int searchLimit = end - MIN_MATCH;
+
+        while (p <= searchLimit) {
+            int sequence = readInt(src, p);
+            int h = hash(sequence);
+            int ref = table[h] - base;
+            table[h] = p + base;
+            if (ref < srcOffset || p - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                p += 1 + ((p - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+
+            // extend the match backwards over literals and then forwards as far as it goes.
+            while (p > anchor && ref > srcOffset && src[p - 1] == src[ref - 1]) {
+                p--;
+                ref--;
+            }
+            int matchLength = MIN_MATCH;
+            while (p + matchLength < end && src[p + matchLength] == src[ref + matchLength]) matchLength++;
+
+            d = writeSequence(src, anchor, p, p - ref, matchLength, dest, d);
+            p += matchLength;
+            anchor = p;
+            if (p - 2 <= searchLimit && p - 2 > srcOffset)
+                table[hash(readInt(src, p - 2))] = p - 2 + base;
+        }
+        hashTable.base += length;
+
+        d = writeSequence(src, anchor, end, 0, 0, dest, d);
+        return d - destOffset;
+    }
+
+    private static IllegalStateException malformed() {
+        return new IllegalStateException("Malformed compressed data in buffer.");
+    }
+
+    @Override
+    public void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength)
+            throws IllegalStateException {
+        int s = srcOffset;
+        int srcEnd = srcOffset + length;
+        int d = destOffset;
+        int destEnd = destOffset + originalLength;
+        try {
+            while (true) {
+                int token = src[s++] & 0xFF;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > srcEnd - s || literals > destEnd - d) throw malformed();
+                System.arraycopy(src, s, dest, d, literals);
+                s += literals;
+                d += literals;
+                if (s == srcEnd) break;
+
+                int offset = (src[s++] & 0xFF) | (src[s++] & 0xFF) << 8;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (offset == 0 || offset > d - destOffset || matchLength > destEnd - d) throw malformed();
+
+                int ref = d - offset;
+                if (offset >= matchLength) {
+                    System.arraycopy(dest, ref, dest, d, matchLength);
+                    d += matchLength;
+                } else {
+                    // the match overlaps the bytes it produces, it must be copied one byte at a time.
+                    for (int i = 0; i < matchLength; i++) dest[d++] = dest[ref++];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw malformed();
+        }
+        if (d != destEnd) throw malformed();
+    }
+}
@@ -0,0 +1,305 @@
+package com.binbuff;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A READ mode Buffer over a file that is mapped into memory with FileChannel.map.
+ * Unlike Buffer(InputStream) the file is not copied into the java heap, the data is read straight from
+ * the mapped memory and the operating system's page cache decides which parts of the file are resident,
+ * this means reading can start right away even for very large files.
+ * A single mapping is limited to 2GB, so the buffer maps the file one region at a time and maps the
+ * next region when a read reaches the end of the current one, this allows reading files of any size.
+ * All the read operations of the Buffer are supported, for example:   <br>
+ *      try (MappedBuffer buf = new MappedBuffer(path)) {               <br>
+ *          int count = buf.readInt();                                 <br>
+ *          buf.read(games, Game.class, count);                        <br>
+ *      }                                                              <br>
+ *
+ * note: the buffer is always STATIC and in READ mode, writing to it or changing its mode is not supported.
+ * note: the buffer's data is not kept in a byte array, thus getSerialized and cloneSerialized are not supported,
+ * and asByteBuffer returns a view of the currently mapped region only, use writeTo in order to copy all the data.
+ * @see Buffer
+ */
+public class MappedBuffer extends Buffer implements Closeable {
+
+    /**
+     * The default size of a mapped region - 1GB.
+     */
+    public static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long start;
+    private final long size;
+    private final int regionSize;
+
+    // the position (relative to the start of the buffer) and length of the currently mapped region.
+    private long regionStart;
+    private long regionLength;
+
+    /**
+     * Constructs a MappedBuffer over 'size' bytes of the channel's file starting at 'position'.
+     * @param channel the channel of the file that should be mapped, it must be readable.
+     * @param position the position in the file the buffer data starts at.
+     * @param size the number of bytes of the file the buffer should contain.
+     * @param order the byte order the data was written with.
+     * @param regionSize the maximal number of bytes that will be mapped at once.
+     * @throws IOException if there is a problem mapping the file.
+     * @throws IllegalArgumentException if the region size is not positive.
+     */
+    public MappedBuffer(FileChannel channel, long position, long size, ByteOrder order, int regionSize) throws IOException {
+        this(channel, false, position, size, order, regionSize);
+    }
+
+    /**
+     * Constructs a MappedBuffer over the whole file of the channel.
+     * note: closing the buffer does not close a channel that was given to it.
+     * @param channel the channel of the file that should be mapped, it must be readable.
+     * @param order the byte order the data was written with.
+     * @throws IOException if there is a problem mapping the file.
+     * @see MappedBuffer#MappedBuffer(FileChannel, long, long, ByteOrder, int)
+     */
+    public MappedBuffer(FileChannel channel, ByteOrder order) throws IOException {
+        this(channel, false, 0, channel.size(), order, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN MappedBuffer over the whole file of the channel.
+     * @see MappedBuffer#MappedBuffer(FileChannel, ByteOrder)
+     */
+    public MappedBuffer(FileChannel channel) throws IOException {
+        this(channel, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Constructs a MappedBuffer over the whole file at the given path,
+     * the buffer opens the file and closes it when the buffer is closed.
+     * @param path the path of the file that should be mapped.
+     * @param order the byte order the data was written with.
+     * @throws IOException if there is a problem opening or mapping the file.
+     */
+    public MappedBuffer(Path path, ByteOrder order) throws IOException {
+        this(open(path), order);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN MappedBuffer over the whole file at the given path.
+     * @see MappedBuffer#MappedBuffer(Path, ByteOrder)
+     */
+    public MappedBuffer(Path path) throws IOException {
+        this(path, ByteOrder.BIG_ENDIAN);
+    }
+
+    private MappedBuffer(OpenedFile file, ByteOrder order) {
+        this(file.channel, true, file.region, 0, file.size, order, DEFAULT_REGION_SIZE);
+    }
+
+    private MappedBuffer(FileChannel channel, boolean ownsChannel, long position, long size, ByteOrder order, int regionSize) throws IOException {
+        this(channel, ownsChannel, map(channel, position, Math.min(size, Math.max(regionSize, 0))), position, size, order, regionSize);
+    }
+
+    private MappedBuffer(FileChannel channel, boolean ownsChannel, ByteBuffer region, long position, long size, ByteOrder order, int regionSize) {
+        super(region, TYPE.STATIC, MODE.READ, order);
+        if (regionSize <= 0) throw new IllegalArgumentException("region size must be positive.");
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.start = position;
+        this.size = size;
+        this.regionSize = regionSize;
+        this.regionStart = 0;
+        this.regionLength = Math.min(size, regionSize);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    /*
+    A file opened by the buffer together with its size and first region,
+    the file is opened and mapped before the buffer is constructed so that a failure can close it.
+     */
+    private static final class OpenedFile {
+        final FileChannel channel;
+        final long size;
+        final ByteBuffer region;
+
+        OpenedFile(FileChannel channel, long size, ByteBuffer region) {
+            this.channel = channel;
+            this.size = size;
+            this.region = region;
+        }
+    }
+
+    private static OpenedFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            return new OpenedFile(channel, size, map(channel, 0, Math.min(size, DEFAULT_REGION_SIZE)));
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the region of the file that starts at the given position (relative to the start of the buffer),
+     * the region will contain at least 'minSize' bytes.
+     */
+    private void mapRegion(long position, int minSize) {
+        long length = Math.min(Math.max(this.regionSize, minSize), this.size - position);
+        try {
+            this.setStorage(map(this.channel, this.start + position, length), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("problem mapping the file", e);
+        }
+        this.regionStart = position;
+        this.regionLength = length;
+    }
+
+    @Override
+    void fill(int size) throws BufferUnderflowException {
+        long position = this.getPosition();
+        if (this.size - position < size) throw new BufferUnderflowException();
+        this.mapRegion(position, size);
+    }
+
+    /**
+     * Get the position of the read pointer, that is the number of bytes from the start of the buffer.
+     * @return the position of the read pointer.
+     */
+    @Override
+    public long getPosition() {
+        return this.regionStart + this.getPointer();
+    }
+
+    /**
+     * Moves the read pointer to the given position.
+     * @param position the number of bytes from the start of the buffer the pointer should point to.
+     * @throws BufferOverflowException if the position is past the end of the buffer.
+     * @throws BufferUnderflowException if the position is smaller than 0.
+     */
+    @Override
+    public void setPosition(long position) throws BufferOverflowException, BufferUnderflowException {
+        if (position > this.size) throw new BufferOverflowException();
+        if (position < 0) throw new BufferUnderflowException();
+        long offset = position - this.regionStart;
+        if (offset >= 0 && offset <= this.regionLength)
+            this.setPointer((int) offset);
+        else
+            this.mapRegion(position, 0);
+    }
+
+    /**
+     * Get the number of bytes in the buffer.
+     * @return the size of the buffer.
+     */
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    /*
+    The storage only holds the mapped region, read the file into a Buffer or a DirectBuffer to access it at any index.
+     */
+    @Override
+    ByteBuffer absoluteStorage(int index, int size) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of a MappedBuffer is mapped one region at a time.");
+    }
+
+    @Override
+    boolean isReadable(long size) {
+        return this.size - this.getPosition() >= size;
+    }
+
+    /*
+    Every view maps its own regions of the file, so threads that read records in parallel never remap each other's region.
+     */
+    @Override
+    Buffer readView() {
+        try {
+            return new MappedBuffer(this.channel, false, this.start, this.size, this.getByteOrder(), this.regionSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("problem mapping the file", e);
+        }
+    }
+
+    @Override
+    public void seekByte(int amount) throws BufferOverflowException, BufferUnderflowException {
+        this.setPosition(this.getPosition() + amount);
+    }
+
+    @Override
+    public void rewind() {
+        this.setPosition(0);
+        this.clearReadDictionary();
+    }
+
+    /**
+     * Writing to a MappedBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setWrite(TYPE type, int extraSize) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot write to a MappedBuffer.");
+    }
+
+    /**
+     * Writing to a MappedBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void clear(TYPE type) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot write to a MappedBuffer.");
+    }
+
+    /**
+     * The data of a MappedBuffer may be larger than any byte array, copying it is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] cloneSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot clone the data of a MappedBuffer.");
+    }
+
+    /**
+     * Writes all the buffer's data to a channel, the data is transferred straight from the file with
+     * FileChannel.transferTo, which lets the operating system copy it without bringing it into the java process.
+     * @param target the channel the data should be written to.
+     * @return the number of bytes that were written.
+     * @throws IOException if there is a problem reading the file or writing to the channel.
+     */
+    @Override
+    public long writeTo(WritableByteChannel target) throws IOException {
+        long written = 0;
+        while (written < this.size) {
+            long transferred = this.channel.transferTo(this.start + written, this.size - written, target);
+            if (transferred <= 0) break;
+            written += transferred;
+        }
+        return written;
+    }
+
+    /**
+     * Closes the file the buffer was created from if it was opened by the buffer.
+     * The mapped memory is released once the buffer is no longer referenced.
+     * @throws IOException if there is a problem closing the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.ownsChannel) this.channel.close();
+    }
+}
@@ -0,0 +1,325 @@
+package com.binbuff;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The codec of plain classes (POJOs) and records that do not implement ISerializable and have no registered codec,
+ * it writes every field (or record component) that is not static or transient in the order of declaration,
+ * fields of superclasses first, in the same format as the serializers generated for @BinBuff classes: <br>
+ * * primitives are written with the primitive write methods. <br>
+ * * primitive arrays are written with their length first, -1 marks a null array. <br>
+ * * any other field is written with the codec of its declared type, and must not be null (strings may be null). <br>
+ * The fields are accessed through a single MethodHandle per class that is composed once out of the field's
+ * getters (or setters) and the primitive write (or read) methods of the buffer, so writing an object
+ * does not go through reflection and does not box its primitive fields.
+ * note: POJOs are read into an existing object (or a new one created with the empty constructor),
+ * records are immutable so they are read by reading their components and calling the canonical constructor.
+ */
+final class ObjectCodec extends Codec {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private final MethodHandle writer;
+    private final MethodHandle reader;
+    // records are read with their canonical constructor, 'reader' is not used for them.
+    private final MethodHandle constructor;
+    private final MethodHandle[] componentReaders;
+    private final int fixedSize;
+
+    private ObjectCodec(MethodHandle writer, MethodHandle reader, MethodHandle constructor, MethodHandle[] componentReaders, int fixedSize) {
+        this.writer = writer;
+        this.reader = reader;
+        this.constructor = constructor;
+        this.componentReaders = componentReaders;
+        this.fixedSize = fixedSize;
+    }
+
+    @Override
+    void write(Buffer buffer, Object data) {
+        try {
+            this.writer.invokeExact(buffer, data);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    void read(Buffer buffer, Object dest) throws IllegalArgumentException {
+        if (this.reader == null) {
+            super.read(buffer, dest);
+            return;
+        }
+        try {
+            this.reader.invokeExact(dest, buffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    boolean isValue() {
+        return this.constructor != null;
+    }
+
+    @Override
+    Object readValue(Buffer buffer) {
+        try {
+            Object[] components = new Object[this.componentReaders.length];
+            for (int i = 0; i < components.length; i++)
+                components[i] = this.componentReaders[i].invokeExact(buffer);
+            return this.constructor.invokeExact(components);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @Override
+    int fixedSize() {
+        return this.fixedSize;
+    }
+
+    //region Creation
+
+    /**
+     * Creates the codec of the given class.
+     * @param type the class.
+     * @return the codec of the class, or null if the class is not a POJO or a record that can be serialized.
+     */
+    static ObjectCodec create(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() || type.isAnonymousClass()
+                || Modifier.isAbstract(type.getModifiers()) || isPlatform(type))
+            return null;
+        try {
+            Object[] components = recordComponents(type);
+            return components != null ? record(type, components) : pojo(type);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // inaccessible classes (and fields of unsupported types) cannot be serialized.
+            return null;
+        }
+    }
+
+    private static boolean isPlatform(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    private static ObjectCodec pojo(Class<?> type) throws ReflectiveOperationException {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            if (isPlatform(c)) return null;
+            List<Field> declared = new ArrayList<>();
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+                if (Modifier.isFinal(modifiers) || !isSupported(field.getType())) return null;
+                field.setAccessible(true);
+                declared.add(field);
+            }
+            fields.addAll(0, declared);
+        }
+
+        List<MethodHandle> writers = new ArrayList<>();
+        List<MethodHandle> readers = new ArrayList<>();
+        int fixedSize = 0;
+        for (Field field : fields) {
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+            getter = getter.asType(getter.type().changeParameterType(0, Object.class));
+            setter = setter.asType(setter.type().changeParameterType(0, Object.class));
+            writers.add(fieldWriter(field.getType(), getter));
+            readers.add(fieldReader(field.getType(), getter, setter));
+            fixedSize = addSize(fixedSize, field.getType());
+        }
+        return new ObjectCodec(sequence(writers, WRITER_TYPE), sequence(readers, READER_TYPE), null, null, fixedSize);
+    }
+
+    private static ObjectCodec record(Class<?> type, Object[] components) throws ReflectiveOperationException {
+        Method getAccessor = components.getClass().getComponentType().getMethod("getAccessor");
+        Class<?>[] types = new Class<?>[components.length];
+        List<MethodHandle> writers = new ArrayList<>();
+        MethodHandle[] readers = new MethodHandle[components.length];
+        int fixedSize = 0;
+        for (int i = 0; i < components.length; i++) {
+            Method accessor = (Method) getAccessor.invoke(components[i]);
+            types[i] = accessor.getReturnType();
+            if (!isSupported(types[i])) return null;
+            accessor.setAccessible(true);
+            MethodHandle getter = lookup.unreflect(accessor);
+            writers.add(fieldWriter(types[i], getter.asType(getter.type().changeParameterType(0, Object.class))));
+            readers[i] = valueReader(types[i]).asType(MethodType.methodType(Object.class, Buffer.class));
+            fixedSize = addSize(fixedSize, types[i]);
+        }
+        Constructor<?> canonical = type.getDeclaredConstructor(types);
+        canonical.setAccessible(true);
+        MethodHandle constructor = lookup.unreflectConstructor(canonical)
+                .asSpreader(Object[].class, types.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return new ObjectCodec(sequence(writers, WRITER_TYPE), null, constructor, readers, fixedSize);
+    }
+
+    /*
+    Records are only available from java 16, the record API is looked up reflectively so that the library
+    still runs on java 8.
+     */
+    private static Object[] recordComponents(Class<?> type) throws ReflectiveOperationException {
+        Method isRecord;
+        try {
+            isRecord = Class.class.getMethod("isRecord");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        if (!(Boolean) isRecord.invoke(type)) return null;
+        return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+    }
+
+    private static boolean isSupported(Class<?> type) {
+        if (type.isPrimitive()) return true;
+        if (type.isArray()) return type.getComponentType().isPrimitive();
+        // collections and maps are written without their size, so they cannot be read back as fields.
+        if (Iterable.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || type == Object.class) return false;
+        if (ISerializable.class.isAssignableFrom(type)) return true;
+        // the codec of an enum, interface or abstract class cannot write the field's value or create one to read into.
+        if (type.isEnum() || type.isInterface() || Modifier.isAbstract(type.getModifiers())) return false;
+        return !isPlatform(type) || Codec.of(type).isValue();
+    }
+
+    private static int addSize(int size, Class<?> type) {
+        if (size < 0 || !type.isPrimitive()) return -1;
+        if (type == long.class || type == double.class) return size + 8;
+        if (type == int.class || type == float.class) return size + 4;
+        if (type == short.class || type == char.class) return size + 2;
+        return size + 1;
+    }
+
+    //endregion
+
+    //region Field Handles
+
+    private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Buffer.class, Object.class);
+    private static final MethodType READER_TYPE = MethodType.methodType(void.class, Object.class, Buffer.class);
+
+    /*
+    Combines the handles of the fields into a single handle that calls them in order,
+    the handles are folded as a balanced tree so that the JIT can inline the whole tree of classes with many fields.
+     */
+    private static MethodHandle sequence(List<MethodHandle> handles, MethodType type) {
+        if (handles.isEmpty())
+            return MethodHandles.dropArguments(MethodHandles.constant(Object.class, null).asType(MethodType.methodType(void.class)), 0, type.parameterArray());
+        if (handles.size() == 1) return handles.get(0);
+        int middle = handles.size() / 2;
+        // foldArguments calls the combiner (the first half) before the target (the second half).
+        return MethodHandles.foldArguments(sequence(handles.subList(middle, handles.size()), type), sequence(handles.subList(0, middle), type));
+    }
+
+    /*
+    (Buffer buffer, Object data)void - writes the field that 'getter' reads from 'data'.
+     */
+    private static MethodHandle fieldWriter(Class<?> type, MethodHandle getter) throws ReflectiveOperationException {
+        MethodHandle write;
+        if (type.isPrimitive()) write = lookup.findVirtual(Buffer.class, "write", MethodType.methodType(void.class, type));
+        else if (type.isArray()) write = MethodHandles.insertArguments(WRITE_ARRAY, 0, Codec.of(type));
+        else write = MethodHandles.insertArguments(WRITE_OBJECT, 0, type);
+        write = write.asType(MethodType.methodType(void.class, Buffer.class, getter.type().returnType()));
+        return MethodHandles.filterArguments(write, 1, getter);
+    }
+
+    /*
+    (Buffer buffer)T - reads a value of the given type.
+     */
+    private static MethodHandle valueReader(Class<?> type) throws ReflectiveOperationException {
+        if (type.isPrimitive()) {
+            String name = type.getName();
+            name = "read" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            return lookup.findVirtual(Buffer.class, name, MethodType.methodType(type));
+        }
+        if (type.isArray())
+            return MethodHandles.insertArguments(READ_ARRAY, 0, type.getComponentType(),
+                    addSize(0, type.getComponentType()), Codec.of(type))
+                    .asType(MethodType.methodType(type, Buffer.class));
+        MethodHandle read = MethodHandles.insertArguments(READ_OBJECT, 0, type);
+        // (Buffer, Object current)Object with no current value.
+        return MethodHandles.insertArguments(read, 1, (Object) null).asType(MethodType.methodType(type, Buffer.class));
+    }
+
+    /*
+    (Object dest, Buffer buffer)void - reads a value and assigns it to the field with 'setter'.
+     */
+    private static MethodHandle fieldReader(Class<?> type, MethodHandle getter, MethodHandle setter) throws ReflectiveOperationException {
+        if (type.isPrimitive() || type.isArray()) return MethodHandles.filterArguments(setter, 1, valueReader(type));
+
+        // objects are read into the current value of the field when there is one.
+        MethodHandle read = MethodHandles.insertArguments(READ_OBJECT, 0, type);
+        read = MethodHandles.filterArguments(read, 1, getter.asType(MethodType.methodType(Object.class, Object.class)));
+        MethodHandle value = MethodHandles.permuteArguments(read, MethodType.methodType(Object.class, Object.class, Buffer.class), 1, 0)
+                .asType(MethodType.methodType(type, Object.class, Buffer.class));
+        // (Object dest, T value)void -> (T value, Object dest, Buffer)void, then the value is computed from (dest, buffer).
+        MethodHandle assign = MethodHandles.dropArguments(setter, 2, Buffer.class);
+        assign = MethodHandles.permuteArguments(assign, MethodType.methodType(void.class, type, Object.class, Buffer.class), 1, 0, 2);
+        return MethodHandles.foldArguments(assign, value);
+    }
+
+    private static final MethodHandle WRITE_ARRAY;
+    private static final MethodHandle READ_ARRAY;
+    private static final MethodHandle WRITE_OBJECT;
+    private static final MethodHandle READ_OBJECT;
+    static {
+        try {
+            WRITE_ARRAY = lookup.findStatic(ObjectCodec.class, "writeArray", MethodType.methodType(void.class, Codec.class, Buffer.class, Object.class));
+            READ_ARRAY = lookup.findStatic(ObjectCodec.class, "readArray", MethodType.methodType(Object.class, Class.class, int.class, Codec.class, Buffer.class));
+            WRITE_OBJECT = lookup.findStatic(ObjectCodec.class, "writeObject", MethodType.methodType(void.class, Class.class, Buffer.class, Object.class));
+            READ_OBJECT = lookup.findStatic(ObjectCodec.class, "readObject", MethodType.methodType(Object.class, Class.class, Buffer.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static void writeArray(Codec codec, Buffer buffer, Object array) {
+        if (array == null) buffer.write(-1);
+        else {
+            buffer.write(Array.getLength(array));
+            codec.write(buffer, array);
+        }
+    }
+
+    private static Object readArray(Class<?> component, int elementSize, Codec codec, Buffer buffer) {
+        int length = buffer.readArrayLength(elementSize);
+        if (length < 0) return null;
+        Object array = Array.newInstance(component, length);
+        codec.read(buffer, array);
+        return array;
+    }
+
+    /*
+    The codecs of object fields are looked up on every call rather than when the handles are composed,
+    this allows a class to have fields of its own type.
+     */
+    private static void writeObject(Class<?> type, Buffer buffer, Object value) {
+        Codec.of(type).write(buffer, value);
+    }
+
+    private static Object readObject(Class<?> type, Buffer buffer, Object current) {
+        Codec codec = Codec.of(type);
+        if (codec.isValue()) return codec.readValue(buffer);
+        Object dest = current != null ? current : Instantiator.of(type).get();
+        codec.read(buffer, dest);
+        return dest;
+    }
+
+    //endregion
+}
@@ -0,0 +1,202 @@
+package com.binbuff;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A WRITE mode Buffer that writes its data to an OutputStream in fixed size chunks.
+ * Data is written into a chunk of 'chunkSize' bytes like in any other buffer, and once the chunk is full
+ * it is written to the stream and the buffer starts over at the start of the chunk,
+ * so the memory used by the buffer does not depend on the amount of data that is written, for example: <br>
+ *      try (OutputStreamBuffer buf = new OutputStreamBuffer(Files.newOutputStream(path))) { <br>
+ *          buf.write(players.size());                                 <br>
+ *          buf.write(players);                                        <br>
+ *      }                                                              <br>
+ *
+ * The data written to the stream is exactly the data a Buffer would hold after the same writes,
+ * it can be read with an InputStreamBuffer or with any other buffer.
+ * note: values never span two chunks, a write that is larger than a whole chunk gets a larger chunk of its own.
+ * note: the buffer is always in WRITE mode, reading from it or changing its mode is not supported,
+ * and since the data is sent to the stream getSerialized, cloneSerialized and asByteBuffer are not supported.
+ * note: call flush (or close) once all the data was written, otherwise the last chunk is not written to the stream.
+ * @see InputStreamBuffer
+ */
+public class OutputStreamBuffer extends Buffer implements Flushable, Closeable {
+
+    /**
+     * The default size of a chunk - 64KB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final OutputStream stream;
+    private final int chunkSize;
+    private long flushedBytes;
+
+    /**
+     * Constructs an OutputStreamBuffer that writes to the given stream.
+     * @param stream the stream the data is written to.
+     * @param chunkSize the number of bytes written to the stream at once.
+     * @param order the byte order primitives will be written in.
+     */
+    public OutputStreamBuffer(OutputStream stream, int chunkSize, ByteOrder order) {
+        super(TYPE.DYNAMIC, chunkSize, order);
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunk size must be positive.");
+        this.stream = stream;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Constructs an OutputStreamBuffer with the default chunk size.
+     * @see OutputStreamBuffer#OutputStreamBuffer(OutputStream, int, ByteOrder)
+     */
+    public OutputStreamBuffer(OutputStream stream, ByteOrder order) {
+        this(stream, DEFAULT_CHUNK_SIZE, order);
+    }
+
+    /**
+     * Constructs a BIG_ENDIAN OutputStreamBuffer with the default chunk size.
+     * @see OutputStreamBuffer#OutputStreamBuffer(OutputStream, int, ByteOrder)
+     */
+    public OutputStreamBuffer(OutputStream stream) {
+        this(stream, ByteOrder.BIG_ENDIAN);
+    }
+
+    /*
+    Writes the current chunk to the stream, the buffer then continues writing at the start of a chunk
+    of 'chunkSize' bytes.
+     */
+    private void flushChunk() throws IOException {
+        int length = this.getPointer();
+        if (length == 0) return;
+        byte[] chunk = this.getStorage().array();
+        this.stream.write(chunk, 0, length);
+        this.flushedBytes += length;
+        if (chunk.length != this.chunkSize) this.setStorage(this.allocate(this.chunkSize), 0);
+        else this.setPointer(0);
+    }
+
+    @Override
+    void overflow(int size) throws IllegalStateException {
+        try {
+            this.flushChunk();
+        } catch (IOException e) {
+            throw new UncheckedIOException("problem writing to the stream", e);
+        }
+        if (this.getStorage().capacity() < size) super.overflow(size);
+    }
+
+    /*
+    There is no need to reserve space for a write, the written data is sent to the stream chunk by chunk.
+     */
+    @Override
+    void reserve(long size) { }
+
+    /**
+     * Get the number of bytes that were written to the buffer, including the bytes that were not flushed yet.
+     * @return the number of bytes written to the buffer.
+     */
+    public long getBytesWritten() {
+        return this.flushedBytes + this.getPointer();
+    }
+
+    @Override
+    long getPosition() {
+        return this.getBytesWritten();
+    }
+
+    @Override
+    ByteBuffer absoluteStorage(int index, int size) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an OutputStreamBuffer is not kept by the buffer.");
+    }
+
+    /**
+     * Writes the current chunk to the stream and flushes the stream.
+     * @throws IOException if there is a problem writing to the stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.flushChunk();
+        this.stream.flush();
+    }
+
+    /**
+     * Writes the current chunk to the stream and closes the stream.
+     * @throws IOException if there is a problem writing to or closing the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flushChunk();
+        } finally {
+            this.stream.close();
+        }
+    }
+
+    /**
+     * Reading from an OutputStreamBuffer is not supported.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setRead() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot read from an OutputStreamBuffer.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, it cannot be cleared.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void clear(TYPE type) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot clear an OutputStreamBuffer.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, the pointer cannot be moved.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void seekByte(int amount) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot move the pointer of an OutputStreamBuffer.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, the pointer cannot be moved.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void rewind() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("cannot move the pointer of an OutputStreamBuffer.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] getSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an OutputStreamBuffer is written to its stream.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public ByteBuffer asByteBuffer() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an OutputStreamBuffer is written to its stream.");
+    }
+
+    /**
+     * The data of an OutputStreamBuffer is written to its stream, it is not kept by the buffer.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public byte[] cloneSerialized() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the data of an OutputStreamBuffer is written to its stream.");
+    }
+}
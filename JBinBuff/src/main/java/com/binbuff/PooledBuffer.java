@@ -0,0 +1,60 @@
+package com.binbuff;
+
+import java.nio.ByteOrder;
+
+/**
+ * A Buffer that belongs to a BufferPool.
+ * Pooled buffers are obtained with BufferPool.acquire and must be returned to their pool once they are
+ * no longer used, either by calling release or by closing them, which allows using them with try-with-resources:
+ *      try (PooledBuffer buf = pool.acquire()) {          <br>
+ *          buf.write(some_data);                          <br>
+ *          out.write(buf.cloneSerialized());              <br>
+ *      }                                                  <br>
+ *
+ * note: a pooled buffer must not be used after it was released, since it may already be used by someone else.
+ * @see BufferPool
+ */
+public class PooledBuffer extends Buffer implements AutoCloseable {
+
+    private final BufferPool pool;
+    private boolean released;
+
+    PooledBuffer(BufferPool pool, int size, ByteOrder order) {
+        super(TYPE.DYNAMIC, size, order);
+        this.pool = pool;
+    }
+
+    /**
+     * Get the pool the buffer belongs to.
+     * @return the pool of the buffer.
+     */
+    public BufferPool getPool() {
+        return this.pool;
+    }
+
+    /*
+    Called by the pool whenever the buffer is handed out.
+     */
+    void acquired() {
+        this.released = false;
+    }
+
+    /**
+     * Returns the buffer to its pool.
+     * @throws IllegalStateException if the buffer was already released.
+     */
+    public void release() throws IllegalStateException {
+        if (this.released) throw new IllegalStateException("the buffer was already released.");
+        this.released = true;
+        this.pool.release(this);
+    }
+
+    /**
+     * Returns the buffer to its pool.
+     * @see PooledBuffer#release()
+     */
+    @Override
+    public void close() {
+        this.release();
+    }
+}
@@ -0,0 +1,109 @@
+import com.binbuff.Buffer;
+import com.binbuff.BufferPool;
+import com.binbuff.IGrowthPolicy;
+import com.binbuff.PooledBuffer;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(32, 1024 * 1024);
+        Game game = new Game(1280, 720, 10);
+
+        PooledBuffer buf = pool.acquire();
+        buf.write(game);
+        buf.setRead();
+        Game ngame = new Game();
+        buf.read(ngame);
+        assert game.equals(ngame);
+        buf.release();
+
+        assert pool.getMisses() == 1 && pool.getHits() == 0;
+        assert pool.getRetainedBytes() > 0;
+
+        try (PooledBuffer again = pool.acquire()) {
+            assert again == buf;
+            assert pool.getHits() == 1 && pool.getRetainedBytes() == 0;
+            again.write(game);
+            again.setRead();
+            ngame = new Game();
+            again.read(ngame);
+            assert game.equals(ngame);
+        }
+
+        try {
+            buf.release();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        // the configuration of a released buffer does not carry over to the next caller.
+        buf = pool.acquire();
+        buf.setDictionarySize(16);
+        buf.setMaxCapacity(64);
+        buf.setGrowthPolicy(IGrowthPolicy.linear(8));
+        buf.release();
+        buf = pool.acquire();
+        assert buf.getDictionarySize() == 0 && buf.getMaxCapacity() == Buffer.MAX_CAPACITY;
+        assert buf.getGrowthPolicy() == IGrowthPolicy.DOUBLING;
+        buf.release();
+    }
+
+    @Test
+    public void testMaxRetainedBytes() {
+        BufferPool pool = new BufferPool(64, 100, 0, ByteOrder.BIG_ENDIAN);
+
+        PooledBuffer first = pool.acquire();
+        PooledBuffer second = pool.acquire();
+        first.release();
+        second.release();
+        assert pool.getRetainedBytes() == 64;
+
+        PooledBuffer large = pool.acquire();
+        large.write(new byte[1000]);
+        large.release();
+        assert pool.getRetainedBytes() == 0;
+
+        pool.acquire().release();
+        pool.trim();
+        assert pool.getRetainedBytes() == 0;
+    }
+
+    @Test
+    public void testConcurrentUse() throws InterruptedException {
+        BufferPool pool = new BufferPool(16, 1024 * 1024, 2, ByteOrder.BIG_ENDIAN);
+        AtomicInteger failures = new AtomicInteger();
+        ArrayList<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            final int id = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    try (PooledBuffer buf = pool.acquire()) {
+                        for (int j = 0; j <= i % 50; j++) buf.write(id, i, j);
+                        buf.setRead();
+                        for (int j = 0; j <= i % 50; j++) {
+                            if (buf.readInt() != id || buf.readInt() != i || buf.readInt() != j)
+                                failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assert failures.get() == 0;
+        assert pool.getHits() + pool.getMisses() == 8 * 2000;
+        assert pool.getHits() > pool.getMisses();
+
+        // the caches of the terminated threads are reclaimed by the trim.
+        pool.trim();
+        assert pool.getRetainedBytes() == 0;
+    }
+}
@@ -0,0 +1,179 @@
+import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+public class ChunkedBufferTest {
+
+    @Test
+    public void testChunkedBuffer() {
+        int[] ints = new int[1000];
+        for (int i = 0; i < ints.length; i++) ints[i] = i * 3;
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < 100; i++) players.add(new Player(i));
+
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, ByteOrder.LITTLE_ENDIAN);
+        ChunkedBuffer cbuf = new ChunkedBuffer(64, ByteOrder.LITTLE_ENDIAN);
+        for (Buffer b : new Buffer[] { buf, cbuf }) {
+            b.write(ints);
+            b.write(players);
+            for (int i = 0; i < 100; i++) b.write((short) i);
+            b.write(-1L);
+        }
+
+        ByteBuffer[] chunks = cbuf.getChunks();
+        assert chunks.length > 10;
+        long size = 0;
+        for (ByteBuffer chunk : chunks) size += chunk.remaining();
+        assert size == cbuf.getSize();
+        assert Arrays.equals(buf.cloneSerialized(), cbuf.cloneSerialized());
+
+        cbuf.setRead();
+        int[] nints = new int[ints.length];
+        ArrayList<Player> nplayers = new ArrayList<>();
+        cbuf.read(nints);
+        cbuf.read(nplayers, Player.class, players.size());
+        // the shorts were written into several chunks, reading them as ints reads across the chunks.
+        for (int i = 0; i < 100; i += 2) {
+            int pair = cbuf.readInt();
+            assert pair == (i | (i + 1) << 16);
+        }
+        long last = cbuf.readLong();
+        assert last == -1L;
+        assert Arrays.equals(ints, nints);
+        assert players.equals(nplayers);
+
+        cbuf.rewind();
+        cbuf.seekByte(4 * 500);
+        int sought = cbuf.readInt();
+        assert sought == ints[500];
+
+        cbuf.setWrite();
+        cbuf.write(7);
+        cbuf.setRead();
+        cbuf.seekByte((int) cbuf.getSize() - 4);
+        sought = cbuf.readInt();
+        assert sought == 7;
+
+        cbuf.clear();
+        cbuf.write(8);
+        assert cbuf.getSize() == 4 && cbuf.getChunks().length == 1;
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+
+        Path file = Files.createTempFile("binbuff", ".test");
+        try {
+            ChunkedBuffer cbuf = new ChunkedBuffer(64);
+            cbuf.write(data);
+            for (int i = 0; i < 100; i++) cbuf.write(i);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                long written = cbuf.writeTo(channel);
+                assert written == cbuf.getSize();
+            }
+            assert Arrays.equals(cbuf.cloneSerialized(), Files.readAllBytes(file));
+
+            ChunkedBuffer scattered = new ChunkedBuffer(64);
+            scattered.write(42);
+            try (FileChannel channel = FileChannel.open(file)) {
+                int read = scattered.readFrom(channel, (int) cbuf.getSize() + 100);
+                assert read == cbuf.getSize();
+            }
+            ChunkedBuffer streamed = new ChunkedBuffer(64);
+            streamed.write(42);
+            int read = streamed.readFrom(Channels.newChannel(new ByteArrayInputStream(data)), 100);
+            assert read == 100;
+
+            scattered.setRead();
+            streamed.setRead();
+            byte[] ndata = new byte[data.length];
+            int first = scattered.readInt();
+            assert first == 42;
+            scattered.read(ndata);
+            assert Arrays.equals(data, ndata);
+            for (int i = 0; i < 100; i++) {
+                int value = scattered.readInt();
+                assert value == i;
+            }
+            first = streamed.readInt();
+            assert first == 42;
+            ndata = new byte[100];
+            streamed.read(ndata);
+            assert Arrays.equals(Arrays.copyOf(data, 100), ndata);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParallelWrite() {
+        Player[] players = new Player[50000];
+        for (int i = 0; i < players.length; i++) players[i] = new Player(i);
+        double[] doubles = new double[100000];
+        for (int i = 0; i < doubles.length; i++) doubles[i] = i / 7.0;
+        ArrayList<Integer> ints = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) ints.add(i * 5);
+        HashMap<Integer, Player> pmap = new HashMap<>();
+        for (int i = 0; i < 20000; i++) pmap.put(i, players[i]);
+        // these are written sequentially.
+        LinkedList<Integer> linked = new LinkedList<>(ints);
+        short[] shorts = { 1, 2, 3 };
+
+        ChunkedBuffer sequential = new ChunkedBuffer(1000, ByteOrder.LITTLE_ENDIAN);
+        ChunkedBuffer parallel = new ChunkedBuffer(1000, ByteOrder.LITTLE_ENDIAN);
+        sequential.write((byte) 7);
+        parallel.write((byte) 7);
+        for (Object data : new Object[] { players, doubles, ints, pmap, linked, shorts }) {
+            sequential.write(data);
+            parallel.writeParallel(data);
+        }
+        sequential.write(-1L);
+        parallel.write(-1L);
+        assert parallel.getSize() == sequential.getSize();
+        assert Arrays.equals(parallel.cloneSerialized(), sequential.cloneSerialized());
+
+        parallel.setRead();
+        Player[] nplayers = new Player[players.length];
+        for (int i = 0; i < nplayers.length; i++) nplayers[i] = new Player();
+        double[] ndoubles = new double[doubles.length];
+        ArrayList<Integer> nints = new ArrayList<>();
+        HashMap<Integer, Player> npmap = new HashMap<>();
+        byte first = parallel.readByte();
+        assert first == 7;
+        parallel.read(nplayers);
+        parallel.read(ndoubles);
+        parallel.read(nints, Integer.class, ints.size());
+        parallel.read(npmap, Integer.class, Player.class, pmap.size());
+        assert Arrays.equals(players, nplayers) && Arrays.equals(doubles, ndoubles);
+        assert ints.equals(nints) && pmap.equals(npmap);
+        parallel.seekByte(4 * linked.size() + 2 * shorts.length);
+        long last = parallel.readLong();
+        assert last == -1L;
+
+        // an unsupported element fails the write before anything is written.
+        ArrayList<Object> unsupported = new ArrayList<Object>(ints);
+        unsupported.set(unsupported.size() - 1, new Object());
+        ChunkedBuffer failed = new ChunkedBuffer(1000);
+        try {
+            failed.writeParallel(unsupported);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        assert failed.getSize() == 0;
+    }
+}
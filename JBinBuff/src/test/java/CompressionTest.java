@@ -0,0 +1,115 @@
+import com.binbuff.*;
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CompressionTest {
+
+    private static final ICompressor[] compressors = { new LZCompressor(), new DeflateCompressor() };
+
+    @Test
+    public void testCompressors() {
+        Random random = new Random(7);
+        byte[] noise = new byte[100000];
+        random.nextBytes(noise);
+        byte[] text = new byte[100000];
+        for (int i = 0; i < text.length; i++) text[i] = (byte) "the quick brown fox ".charAt((i * 7 / 5) % 20);
+        byte[][] inputs = { new byte[0], new byte[] {1, 2, 3}, new byte[1000], noise, text };
+
+        for (ICompressor compressor : compressors) {
+            for (byte[] input : inputs) {
+                byte[] compressed = new byte[3 + compressor.maxCompressedLength(input.length)];
+                int length = compressor.compress(input, 0, input.length, compressed, 3);
+                byte[] output = new byte[input.length + 2];
+                compressor.decompress(compressed, 3, length, output, 1, input.length);
+                assert Arrays.equals(input, Arrays.copyOfRange(output, 1, input.length + 1));
+            }
+            int length = compressor.compress(text, 0, text.length, new byte[compressor.maxCompressedLength(text.length)], 0);
+            assert length < text.length / 4;
+        }
+    }
+
+    @Test
+    public void testCompressedBuffer() {
+        int[] ints = new int[5000];
+        for (int i = 0; i < ints.length; i++) ints[i] = i % 100;
+        Game[] games = new Game[500];
+        for (int i = 0; i < games.length; i++) games[i] = new Game(1280, 720, i % 5);
+
+        for (ICompressor compressor : compressors) {
+            CompressedBuffer buf = new CompressedBuffer(compressor, 1000, ByteOrder.LITTLE_ENDIAN);
+            buf.write(42L);
+            buf.write(ints);
+            buf.write(games);
+            buf.writeVarInt(300);
+            byte[] compressed = buf.cloneSerialized();
+            assert compressed.length < 4 * ints.length;
+
+            CompressedBuffer rbuf = new CompressedBuffer(compressor, compressed, compressed.length, ByteOrder.LITTLE_ENDIAN);
+            int[] nints = new int[ints.length];
+            Game[] ngames = new Game[games.length];
+            for (int i = 0; i < ngames.length; i++) ngames[i] = new Game();
+            long first = rbuf.readLong();
+            rbuf.read(nints);
+            rbuf.read(ngames);
+            int last = rbuf.readVarInt();
+            assert first == 42L && last == 300;
+            assert Arrays.equals(ints, nints);
+            assert Arrays.equals(games, ngames);
+            try {
+                rbuf.readByte();
+                assert false;
+            } catch (BufferUnderflowException ignored) { }
+
+            buf.setRead();
+            buf.seekByte(8 + 4 * 1000);
+            int sought = buf.readInt();
+            assert sought == ints[1000];
+            buf.rewind();
+            first = buf.readLong();
+            assert first == 42L;
+
+            buf.setWrite();
+            buf.write(7);
+            buf.setRead();
+            buf.seekByte(8 + 4 * ints.length);
+            buf.read(ngames);
+            last = buf.readVarInt();
+            int appended = buf.readInt();
+            assert last == 300 && appended == 7;
+        }
+    }
+
+    @Test
+    public void testMalformed() {
+        CompressedBuffer buf = new CompressedBuffer(new LZCompressor());
+        byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 5);
+        buf.write(data);
+        byte[] compressed = buf.cloneSerialized();
+        compressed[8] = (byte) 0xF0;
+        try {
+            new CompressedBuffer(new LZCompressor(), compressed, compressed.length).read(data);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        // a frame claiming more data than a buffer can hold is rejected before anything is allocated.
+        byte[] huge = { 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0, 1, 5 };
+        try {
+            new CompressedBuffer(new LZCompressor(), huge, huge.length).readByte();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        // so is a frame claiming more data than its compressed bytes can hold.
+        byte[] inflated = { 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 0, 0, 0, 1, 5 };
+        for (ICompressor compressor : compressors) {
+            try {
+                new CompressedBuffer(compressor, inflated, inflated.length).readByte();
+                assert false;
+            } catch (IllegalStateException ignored) { }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import com.binbuff.Buffer;
+import com.binbuff.ConcurrentBuffer;
+import com.binbuff.ISerializable;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+public class ConcurrentBufferTest {
+
+    private static class Event implements ISerializable {
+        int thread;
+        int index;
+        long payload;
+
+        Event() { }
+
+        Event(int thread, int index) {
+            this.thread = thread;
+            this.index = index;
+            this.payload = (long) thread << 32 | index;
+        }
+
+        @Override
+        public void serialize(Buffer buffer) {
+            buffer.writeVarInt(this.thread);
+            buffer.writeVarInt(this.index);
+            buffer.write(this.payload);
+        }
+
+        @Override
+        public void deserialize(Buffer buffer) {
+            this.thread = buffer.readVarInt();
+            this.index = buffer.readVarInt();
+            this.payload = buffer.readLong();
+        }
+    }
+
+    @Test
+    public void testRegions() {
+        ConcurrentBuffer cbuf = new ConcurrentBuffer(32, 2, ByteOrder.LITTLE_ENDIAN);
+        Buffer published = cbuf.poll();
+        assert published == null;
+
+        ConcurrentBuffer.Region first = cbuf.claim(4);
+        ConcurrentBuffer.Region second = cbuf.claim(8);
+        second.write(2L);
+        second.commit();
+        // the second region is not published before the first one is committed.
+        published = cbuf.poll();
+        assert published == null && cbuf.getPublishedLength() == 0;
+
+        first.write(1);
+        first.commit();
+        assert cbuf.getPublishedLength() == 12;
+        published = cbuf.poll();
+        assert published.getMode() == Buffer.MODE.READ;
+        int ni = published.readInt();
+        long nl = published.readLong();
+        assert ni == 1 && nl == 2L;
+        published = cbuf.poll();
+        assert published == null;
+
+        ConcurrentBuffer.Region partial = cbuf.claim(8);
+        partial.write(3);
+        try {
+            partial.commit();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        try {
+            partial.write(4L);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        partial.write(4);
+        partial.commit();
+        try {
+            partial.commit();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        // 20 of the 32 bytes are used.
+        try {
+            cbuf.claim(13);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        try {
+            cbuf.claim(0);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        cbuf.write(new Event(1, 2));
+        published = cbuf.poll();
+        ni = published.readInt();
+        int nj = published.readInt();
+        assert ni == 3 && nj == 4;
+        Event event = new Event();
+        published.read(event);
+        assert event.thread == 1 && event.index == 2 && event.payload == (1L << 32 | 2);
+
+        cbuf.clear();
+        published = cbuf.poll();
+        assert cbuf.getPublishedLength() == 0 && published == null;
+        cbuf.claim(32).write(new byte[32]);
+        assert cbuf.getPublishedLength() == 0;
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        int threadCount = 8, events = 20000;
+        ConcurrentBuffer cbuf = new ConcurrentBuffer(threadCount * events * 16, 64, ByteOrder.BIG_ENDIAN);
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < events; i++) {
+                    if (i % 2 == 0) {
+                        cbuf.write(new Event(id, i));
+                        continue;
+                    }
+                    ConcurrentBuffer.Region region = cbuf.claim(Buffer.varIntSize(id) + Buffer.varIntSize(i) + 8);
+                    region.writeVarInt(id);
+                    region.writeVarInt(i);
+                    region.write((long) id << 32 | i);
+                    region.commit();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // the consumer reads while the writers are still writing, every poll must end on a whole event.
+        int[] next = new int[threadCount];
+        int read = 0;
+        start.countDown();
+        boolean writing;
+        do {
+            // the last poll happens after all the writers have finished.
+            writing = false;
+            for (Thread thread : threads) writing |= thread.isAlive();
+            Buffer published = cbuf.poll();
+            if (published == null) continue;
+            Event event = new Event();
+            for (int left = published.asByteBuffer().remaining(); left > 0; read++) {
+                published.read(event);
+                assert event.index == next[event.thread] && event.payload == ((long) event.thread << 32 | event.index);
+                next[event.thread]++;
+                left -= Buffer.varIntSize(event.thread) + Buffer.varIntSize(event.index) + 8;
+            }
+        } while (writing);
+        assert read == threadCount * events;
+    }
+}
@@ -0,0 +1,124 @@
+import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import com.binbuff.DirectBuffer;
+import com.binbuff.Flyweight;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+public class FlyweightTest {
+
+    // the width and height of a Game are written before anything else.
+    private static class GameView extends Flyweight {
+        int getWidth() { return this.getInt(0); }
+
+        int getHeight() { return this.getInt(4); }
+
+        void setHeight(int height) { this.putInt(4, height); }
+
+        // the number of the game's player, written right after the height.
+        int getPlayerNum() { return this.getInt(8); }
+    }
+
+    @Test
+    public void testAbsoluteAccess() {
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, ByteOrder.LITTLE_ENDIAN);
+        buf.write((byte) 1);
+        buf.write(true);
+        buf.write((short) -2);
+        buf.write('c');
+        buf.write(3);
+        buf.write(4L);
+        buf.write(5.5f);
+        buf.write(6.5);
+
+        // absolute access works in WRITE mode and does not move the pointer.
+        assert buf.getByte(0) == 1 && buf.getBoolean(1) && buf.getShort(2) == -2 && buf.getChar(4) == 'c';
+        assert buf.getInt(6) == 3 && buf.getLong(10) == 4L && buf.getFloat(18) == 5.5f && buf.getDouble(22) == 6.5;
+        buf.putInt(6, 30);
+        buf.write(7);
+        try {
+            buf.getInt(31);
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+        buf.setRead();
+        try {
+            buf.putLong(30, 8L);
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+        try {
+            buf.getByte(-1);
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+
+        buf.putBoolean(1, false);
+        buf.putDouble(22, -6.5);
+        byte nb = buf.readByte();
+        boolean nbl = buf.readBoolean();
+        short ns = buf.readShort();
+        char nc = buf.readChar();
+        int ni = buf.readInt();
+        long nl = buf.readLong();
+        float nf = buf.readFloat();
+        double nd = buf.readDouble();
+        int last = buf.readInt();
+        assert nb == 1 && !nbl && ns == -2 && nc == 'c';
+        assert ni == 30 && nl == 4L && nf == 5.5f && nd == -6.5;
+        assert last == 7 && buf.getInt(30) == 7;
+
+        DirectBuffer dbuf = new DirectBuffer(buf);
+        dbuf.putShort(2, (short) 9);
+        assert dbuf.getShort(2) == 9 && dbuf.getInt(30) == 7;
+
+        ChunkedBuffer cbuf = new ChunkedBuffer(16);
+        cbuf.write(1);
+        try {
+            cbuf.getInt(0);
+            assert false;
+        } catch (UnsupportedOperationException ignored) { }
+    }
+
+    @Test
+    public void testFlyweight() {
+        ArrayList<Game> games = new ArrayList<>();
+        for (int i = 0; i < 200; i++) games.add(new Game(i * 10, -i, i % 5));
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (Game game : games) buf.writeRecord(game);
+        buf.writeRecordIndex();
+        buf.setRead();
+
+        GameView view = new GameView();
+        assert view.getBuffer() == null;
+        int[] positions = buf.getRecordPositions();
+        assert positions.length == games.size();
+        int wide = 0;
+        for (int i = 0; i < positions.length; i++) {
+            view.wrap(buf, positions[i]);
+            assert view.getOffset() == positions[i] && view.getBuffer() == buf;
+            assert view.getWidth() == i * 10 && view.getHeight() == -i && view.getPlayerNum() == 1;
+            if (view.getWidth() >= 1000) {
+                view.setHeight(i);
+                wide++;
+            }
+        }
+        assert wide == 100;
+
+        // the updates are part of the serialized data.
+        ArrayList<Game> updated = buf.readRecordsParallel(Game.class);
+        for (int i = 0; i < games.size(); i++) {
+            Game expected = new Game(i * 10, i >= 100 ? i : -i, i % 5);
+            assert updated.get(i).equals(expected);
+        }
+
+        try {
+            view.wrap(null, 0);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        view.wrap(buf, buf.asByteBuffer().remaining() - 4);
+        try {
+            view.getPlayerNum();
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+    }
+}
@@ -0,0 +1,139 @@
+import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import com.binbuff.Int2IntHashMap;
+import com.binbuff.IntArrayList;
+import com.binbuff.LongArrayList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PrimitiveCollectionsTest {
+
+    @Test
+    public void testArrayLists() {
+        IntArrayList ints = new IntArrayList(0);
+        LongArrayList longs = new LongArrayList();
+        for (int i = 0; i < 1000; i++) {
+            ints.add(i * 3);
+            longs.add((long) i << 40);
+        }
+        assert ints.size() == 1000 && ints.get(10) == 30 && ints.indexOf(33) == 11 && !ints.contains(31);
+        int previous = ints.set(0, -1);
+        assert previous == 0 && ints.get(0) == -1;
+        int removed = ints.removeAt(1);
+        assert removed == 3 && ints.get(1) == 6 && ints.size() == 999;
+        assert longs.get(999) == 999L << 40;
+        try {
+            ints.get(999);
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.write(ints);
+        // the size followed by the elements.
+        assert dbuf.asByteBuffer().remaining() == Buffer.varIntSize(999) + 4 * 999;
+        assert ints.serializedSize() == dbuf.asByteBuffer().remaining();
+        dbuf.write(longs);
+        dbuf.write(new IntArrayList(new int[] {1, 2, 3}));
+        ArrayList<LongArrayList> lists = new ArrayList<>();
+        lists.add(longs);
+        lists.add(new LongArrayList(new long[] {5, 6}));
+        dbuf.writeList(lists);
+
+        dbuf.setRead();
+        IntArrayList nints = new IntArrayList(new int[] {7, 7, 7});
+        LongArrayList nlongs = new LongArrayList(0);
+        dbuf.read(nints);
+        dbuf.read(nlongs);
+        assert nints.equals(ints) && nints.hashCode() == ints.hashCode();
+        assert nlongs.equals(longs);
+        // reading replaces the contents of the list.
+        dbuf.read(nints);
+        assert nints.size() == 3 && nints.toString().equals("[1, 2, 3]");
+        ArrayList<LongArrayList> nlists = dbuf.readList(LongArrayList.class);
+        assert nlists.equals(lists);
+
+        // a list that spans several chunks.
+        ChunkedBuffer cbuf = new ChunkedBuffer(256);
+        cbuf.write(ints);
+        cbuf.setRead();
+        nints = new IntArrayList();
+        cbuf.read(nints);
+        assert nints.equals(ints);
+
+        // a size larger than the data that follows it is rejected before the elements are allocated.
+        dbuf.clear();
+        dbuf.writeVarInt(1000);
+        dbuf.write(new int[] {1, 2, 3});
+        dbuf.setRead();
+        try {
+            dbuf.read(nints);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        dbuf.rewind();
+        try {
+            dbuf.read(nlongs);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+    }
+
+    @Test
+    public void testInt2IntHashMap() {
+        Random r = new Random(42);
+        Int2IntHashMap map = new Int2IntHashMap(4, -1);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // the keys include 0, which is kept outside of the table.
+            int key = r.nextInt(5000) - 2500;
+            if (r.nextInt(4) == 0) {
+                Integer removed = expected.remove(key);
+                int value = map.remove(key);
+                assert value == (removed == null ? -1 : removed);
+            }
+            else {
+                int value = r.nextInt();
+                Integer previous = expected.put(key, value);
+                int replaced = map.put(key, value);
+                assert replaced == (previous == null ? -1 : previous);
+            }
+            assert map.containsKey(key) == expected.containsKey(key);
+        }
+        assert map.size() == expected.size();
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+            assert map.get(entry.getKey()) == entry.getValue();
+        assert map.get(1 << 20) == -1 && !map.containsKey(1 << 20);
+
+        Int2IntHashMap counters = new Int2IntHashMap();
+        for (int i = 0; i < 100; i++) counters.addTo(i % 7, 1);
+        assert counters.get(0) == 15 && counters.get(6) == 14 && counters.size() == 7;
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.write(map);
+        assert dbuf.asByteBuffer().remaining() == map.serializedSize();
+        dbuf.write(counters);
+        dbuf.write(new Int2IntHashMap());
+
+        dbuf.setRead();
+        Int2IntHashMap nmap = new Int2IntHashMap(4, -1);
+        nmap.put(1 << 20, 5);
+        dbuf.read(nmap);
+        assert nmap.equals(map) && nmap.hashCode() == map.hashCode() && !nmap.containsKey(1 << 20);
+        Int2IntHashMap ncounters = new Int2IntHashMap();
+        dbuf.read(ncounters);
+        assert ncounters.equals(counters) && ncounters.get(100) == 0;
+        dbuf.read(ncounters);
+        assert ncounters.isEmpty();
+
+        dbuf.clear();
+        dbuf.writeVarInt(Integer.MAX_VALUE);
+        dbuf.write(new int[] {1, 2});
+        dbuf.setRead();
+        try {
+            dbuf.read(ncounters);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+    }
+}
@@ -0,0 +1,195 @@
+import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import com.binbuff.CompressedBuffer;
+import com.binbuff.DirectBuffer;
+import com.binbuff.IDeserializer;
+import com.binbuff.InputStreamBuffer;
+import com.binbuff.LZCompressor;
+import com.binbuff.MappedBuffer;
+import com.binbuff.OutputStreamBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class RecordIndexTest {
+
+    private static ArrayList<Game> games(int count) {
+        ArrayList<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) games.add(new Game(i, -i, i % 7));
+        return games;
+    }
+
+    @Test
+    public void testSeekRecord() {
+        ArrayList<Game> games = games(100);
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, ByteOrder.LITTLE_ENDIAN);
+        buf.write(-1);
+        for (int i = 0; i < games.size(); i++) {
+            buf.writeRecord(games.get(i));
+            // data between the records is not part of them.
+            if (i % 3 == 0) buf.write((long) i);
+        }
+        buf.writeRecordIndex();
+
+        try {
+            buf.getRecordCount();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        buf.setRead();
+        int first = buf.readInt();
+        assert first == -1;
+        assert buf.getRecordCount() == games.size();
+        // reading the count does not move the pointer.
+        Game game = new Game();
+        buf.read(game);
+        assert game.equals(games.get(0));
+        ArrayList<Game> records = buf.readRecordsParallel(Game.class);
+        assert records.equals(games);
+
+        for (int i = games.size() - 1; i >= 0; i -= 9) {
+            buf.seekRecord(i);
+            buf.read(game);
+            assert game.equals(games.get(i));
+            if (i % 3 == 0) {
+                long between = buf.readLong();
+                assert between == i;
+            }
+        }
+        try {
+            buf.seekRecord(games.size());
+            assert false;
+        } catch (IndexOutOfBoundsException ignored) { }
+
+        // the copy keeps the positions of records that were not indexed yet.
+        Buffer copied = new Buffer(Buffer.TYPE.DYNAMIC);
+        copied.writeRecord(1);
+        copied = new Buffer(copied);
+        copied.writeRecord(2);
+        copied.writeRecordIndex();
+        copied.setRead();
+        assert copied.getRecordCount() == 2;
+        ArrayList<Integer> integers = copied.readRecordsParallel(Integer.class);
+        assert integers.get(1) == 2;
+
+        Buffer empty = new Buffer(Buffer.TYPE.DYNAMIC);
+        empty.writeRecordIndex();
+        empty.setRead();
+        integers = empty.readRecordsParallel(Integer.class);
+        assert empty.getRecordCount() == 0 && integers.isEmpty();
+
+        Buffer plain = new Buffer(Buffer.TYPE.DYNAMIC);
+        plain.write(new long[4]);
+        plain.setRead();
+        try {
+            plain.seekRecord(0);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        Buffer dictionary = new Buffer(Buffer.TYPE.DYNAMIC);
+        dictionary.setDictionarySize(16);
+        try {
+            dictionary.writeRecord("record");
+            assert false;
+        } catch (IllegalStateException ignored) { }
+    }
+
+    @Test
+    public void testParallelRead() throws IOException {
+        // enough records for the parallel read to split them into several ranges.
+        ArrayList<Game> games = games(5000);
+        IDeserializer<Game> deserializer = new IDeserializer<Game>() {
+            @Override
+            public void deserialize(Game dest, Buffer buffer) {
+                dest.deserialize(buffer);
+            }
+
+            @Override
+            public Class<Game> getTypeClass() { return Game.class; }
+        };
+
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (Game game : games) buf.writeRecord(game);
+        buf.writeRecordIndex();
+        buf.write(7);
+        buf.writeRecord(games.get(0));
+        buf.writeRecordIndex();
+        buf.setRead();
+        // only the last index can be found.
+        assert buf.getRecordCount() == 1;
+
+        buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (Game game : games) buf.writeRecord(game);
+        buf.writeRecordIndex();
+        byte[] data = buf.cloneSerialized();
+        buf.setRead();
+        ArrayList<Game> records = buf.readRecordsParallel(Game.class);
+        assert records.equals(games);
+        // the pointer is left at the end of the data.
+        try {
+            buf.readByte();
+            assert false;
+        } catch (BufferUnderflowException ignored) { }
+        buf.rewind();
+        records = buf.readRecordsParallel(deserializer);
+        assert records.equals(games);
+
+        DirectBuffer dbuf = new DirectBuffer(buf);
+        records = dbuf.readRecordsParallel(Game.class);
+        assert records.equals(games);
+
+        // records written in chunks or to a stream have the same positions.
+        ChunkedBuffer cbuf = new ChunkedBuffer(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStreamBuffer obuf = new OutputStreamBuffer(out, 1000, ByteOrder.BIG_ENDIAN);
+        for (Game game : games) {
+            cbuf.writeRecord(game);
+            obuf.writeRecord(game);
+        }
+        cbuf.writeRecordIndex();
+        obuf.writeRecordIndex();
+        obuf.close();
+        assert Arrays.equals(cbuf.cloneSerialized(), data);
+        assert Arrays.equals(out.toByteArray(), data);
+        cbuf.setRead();
+        try {
+            cbuf.getRecordCount();
+            assert false;
+        } catch (UnsupportedOperationException ignored) { }
+        try {
+            new InputStreamBuffer(new ByteArrayInputStream(data)).seekRecord(0);
+            assert false;
+        } catch (UnsupportedOperationException ignored) { }
+        try {
+            new CompressedBuffer(new LZCompressor()).writeRecord(1);
+            assert false;
+        } catch (UnsupportedOperationException ignored) { }
+
+        Path file = Files.createTempFile("binbuff", ".test");
+        try {
+            Files.write(file, data);
+            // every range maps its own regions, a tiny region size makes the records cross regions.
+            try (FileChannel channel = FileChannel.open(file)) {
+                MappedBuffer mbuf = new MappedBuffer(channel, 0, channel.size(), ByteOrder.BIG_ENDIAN, 61);
+                assert mbuf.getRecordCount() == games.size();
+                mbuf.seekRecord(4321);
+                Game game = new Game();
+                mbuf.read(game);
+                assert game.equals(games.get(4321));
+                records = mbuf.readRecordsParallel(Game.class);
+                assert records.equals(games);
+                assert mbuf.getPosition() == mbuf.getSize();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -1,6 +1,31 @@
 import com.binbuff.Buffer;
+import com.binbuff.ChunkedBuffer;
+import com.binbuff.CompressedBuffer;
+import com.binbuff.DirectBuffer;
+import com.binbuff.IDeserializer;
+import com.binbuff.IGrowthPolicy;
+import com.binbuff.ICompressor;
+import com.binbuff.ISerializable;
+import com.binbuff.ISerializer;
+import com.binbuff.InputStreamBuffer;
+import com.binbuff.LZCompressor;
+import com.binbuff.MappedBuffer;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class SerializationTest {
@@ -98,6 +123,393 @@ public class SerializationTest {
         }
     }
 
+    @Test
+    public void testLargePrimitiveArray() {
+        int length = 100000;
+        short[] s = new short[length];
+        char[] c = new char[length];
+        int[] i = new int[length];
+        long[] l = new long[length];
+        float[] f = new float[length];
+        double[] d = new double[length];
+        Random r = new Random(0);
+        for (int j = 0; j < length; j++) {
+            s[j] = (short) r.nextInt();
+            c[j] = (char) r.nextInt();
+            i[j] = r.nextInt();
+            l[j] = r.nextLong();
+            f[j] = r.nextFloat();
+            d[j] = r.nextDouble();
+        }
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC);
+        dbuf.write((byte) 1);
+        dbuf.write(s, c, i, l, f, d);
+        dbuf.setRead();
+
+        short[] dns = new short[length];
+        char[] dnc = new char[length];
+        int[] dni = new int[length];
+        long[] dnl = new long[length];
+        float[] dnf = new float[length];
+        double[] dnd = new double[length];
+
+        byte dnb = dbuf.readByte();
+        dbuf.read(dns, dnc, dni, dnl, dnf, dnd);
+
+        assert dnb == 1;
+
+        assert Arrays.equals(s, dns);
+        assert Arrays.equals(c, dnc);
+        assert Arrays.equals(i, dni);
+        assert Arrays.equals(l, dnl);
+        assert Arrays.equals(f, dnf);
+        assert Arrays.equals(d, dnd);
+    }
+
+    @Test
+    public void testWireFormat() {
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.write(0x01020304);
+        buf.write(new int[] {0x05060708});
+        buf.write(new long[] {0x090a0b0c0d0e0f10L});
+
+        byte[] expected = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+        assert Arrays.equals(expected, buf.cloneSerialized());
+    }
+
+    @Test
+    public void testVarInt() {
+        Random random = new Random(42);
+        int[] ints = new int[1000];
+        long[] longs = new long[1000];
+        for (int j = 0; j < ints.length; j++) {
+            ints[j] = random.nextInt() >> random.nextInt(32);
+            longs[j] = random.nextLong() >> random.nextInt(64);
+        }
+        ints[0] = 0; ints[1] = 127; ints[2] = 128; ints[3] = Integer.MAX_VALUE; ints[4] = Integer.MIN_VALUE; ints[5] = -1;
+        longs[0] = 0; longs[1] = 127; longs[2] = 128; longs[3] = Long.MAX_VALUE; longs[4] = Long.MIN_VALUE; longs[5] = -1;
+
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.writeVarInt(ints);
+        buf.writeSignedVarInt(ints);
+        buf.writeVarLong(longs);
+        buf.writeSignedVarLong(longs);
+        for (int j = 0; j < ints.length; j++) {
+            buf.writeVarInt(ints[j]);
+            buf.writeSignedVarLong(longs[j]);
+            buf.writeSignedVarInt(ints[j]);
+            buf.writeVarLong(longs[j]);
+        }
+        buf.setRead();
+
+        int[] nints = new int[ints.length];
+        long[] nlongs = new long[longs.length];
+        buf.readVarInt(nints);
+        assert Arrays.equals(ints, nints);
+        buf.readSignedVarInt(nints);
+        assert Arrays.equals(ints, nints);
+        buf.readVarLong(nlongs);
+        assert Arrays.equals(longs, nlongs);
+        buf.readSignedVarLong(nlongs);
+        assert Arrays.equals(longs, nlongs);
+        // the last values are near the end of the buffer and are decoded byte by byte.
+        for (int j = 0; j < ints.length; j++) {
+            int varInt = buf.readVarInt();
+            long signedVarLong = buf.readSignedVarLong();
+            int signedVarInt = buf.readSignedVarInt();
+            long varLong = buf.readVarLong();
+            assert varInt == ints[j] && signedVarLong == longs[j];
+            assert signedVarInt == ints[j] && varLong == longs[j];
+        }
+
+        assert Buffer.varIntSize(127) == 1 && Buffer.varIntSize(128) == 2 && Buffer.varIntSize(-1) == 5;
+        assert Buffer.varLongSize(0) == 1 && Buffer.varLongSize(-1) == 10;
+        Buffer small = new Buffer(Buffer.TYPE.STATIC, 2);
+        small.writeSignedVarInt(-64);
+        small.writeSignedVarInt(63);
+        small.setRead();
+        int min = small.readSignedVarInt();
+        int max = small.readSignedVarInt();
+        assert min == -64 && max == 63;
+
+        Buffer malformed = new Buffer(new byte[] {-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1});
+        try {
+            malformed.readVarInt();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        malformed.rewind();
+        try {
+            malformed.readVarLong();
+            assert false;
+        } catch (IllegalStateException ignored) { }
+
+        // a last byte with bits beyond the value is rejected whether or not the whole value is in the storage.
+        byte[] wideInt = {-1, -1, -1, -1, 0x1F};
+        byte[] wideLong = {-1, -1, -1, -1, -1, -1, -1, -1, -1, 2};
+        for (Buffer wide : new Buffer[] { new Buffer(wideInt), new InputStreamBuffer(new ByteArrayInputStream(wideInt)) }) {
+            try {
+                wide.readVarInt();
+                assert false;
+            } catch (IllegalStateException ignored) { }
+        }
+        for (Buffer wide : new Buffer[] { new Buffer(wideLong), new InputStreamBuffer(new ByteArrayInputStream(wideLong)) }) {
+            try {
+                wide.readVarLong();
+                assert false;
+            } catch (IllegalStateException ignored) { }
+        }
+    }
+
+    @Test
+    public void testModeSwitch() {
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, 64);
+        buf.write(1, 2L);
+        buf.setRead();
+        byte[] storage = buf.getSerialized();
+        assert buf.asByteBuffer().remaining() == 12 && buf.cloneSerialized().length == 12;
+        int ni = buf.readInt();
+        long nl = buf.readLong();
+        assert ni == 1 && nl == 2L;
+        try {
+            buf.readByte();
+            assert false;
+        } catch (BufferUnderflowException ignored) { }
+
+        buf.setWrite(Buffer.TYPE.STATIC, 4);
+        buf.write(3);
+        buf.setRead();
+        assert buf.getSerialized() == storage;
+        ni = buf.readInt();
+        nl = buf.readLong();
+        int appended = buf.readInt();
+        assert ni == 1 && nl == 2L && appended == 3;
+
+        buf.clear();
+        buf.write((short) 4);
+        buf.setRead();
+        assert buf.getSerialized() == storage && buf.cloneSerialized().length == 2;
+        short ns = buf.readShort();
+        assert ns == 4;
+
+        Buffer copy = new Buffer(buf);
+        copy.rewind();
+        ns = copy.readShort();
+        assert ns == 4;
+    }
+
+    @Test
+    public void testByteOrder() {
+        int[] i = new int[1000];
+        double[] d = new double[1000];
+        for (int j = 0; j < i.length; j++) {
+            i[j] = j * 31;
+            d[j] = j * 1.5;
+        }
+        Game game = new Game(1280, 720, 3);
+
+        Buffer lbuf = new Buffer(Buffer.TYPE.DYNAMIC, ByteOrder.LITTLE_ENDIAN);
+        lbuf.write(0x01020304);
+        lbuf.write(i, d, game);
+
+        byte[] ser = lbuf.cloneSerialized();
+        assert ser[0] == 4 && ser[1] == 3 && ser[2] == 2 && ser[3] == 1;
+
+        Buffer rbuf = new Buffer(ser, ByteOrder.LITTLE_ENDIAN);
+        int[] ni = new int[i.length];
+        double[] nd = new double[d.length];
+        Game ngame = new Game();
+
+        assert rbuf.getByteOrder() == ByteOrder.LITTLE_ENDIAN;
+        int first = rbuf.readInt();
+        assert first == 0x01020304;
+        rbuf.read(ni, nd, ngame);
+
+        assert Arrays.equals(i, ni);
+        assert Arrays.equals(d, nd);
+        assert game.equals(ngame);
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        double[] d = new double[1000];
+        for (int j = 0; j < d.length; j++) d[j] = j * 1.5;
+        Game game = new Game(1280, 720, 3);
+        ArrayList<Player> players = new ArrayList<>();
+        players.add(new Player(1));
+        players.add(new Player(2));
+
+        DirectBuffer dbuf = new DirectBuffer(Buffer.TYPE.DYNAMIC);
+        dbuf.write((byte) 7, true, 'c', 42L);
+        dbuf.write(d, game, players);
+
+        Buffer hbuf = new Buffer(Buffer.TYPE.DYNAMIC);
+        hbuf.write((byte) 7, true, 'c', 42L);
+        hbuf.write(d, game, players);
+        assert Arrays.equals(hbuf.cloneSerialized(), dbuf.cloneSerialized());
+
+        ByteBuffer view = dbuf.asByteBuffer();
+        assert view.isDirect() && view.remaining() == hbuf.cloneSerialized().length;
+
+        DirectBuffer rbuf = new DirectBuffer(view);
+        double[] nd = new double[d.length];
+        Game ngame = new Game();
+        ArrayList<Player> nplayers = new ArrayList<>();
+
+        byte nb = rbuf.readByte();
+        boolean nbl = rbuf.readBoolean();
+        char nc = rbuf.readChar();
+        long nl = rbuf.readLong();
+        rbuf.read(nd, ngame);
+        rbuf.read(nplayers, Player.class, 2);
+
+        assert nb == 7 && nbl && nc == 'c' && nl == 42L;
+        assert Arrays.equals(d, nd);
+        assert game.equals(ngame);
+        assert players.equals(nplayers);
+
+        try {
+            rbuf.getSerialized();
+            assert false;
+        } catch (UnsupportedOperationException ignored) { }
+    }
+
+    @Test
+    public void testMappedBuffer() throws IOException {
+        long[] l = new long[1000];
+        for (int j = 0; j < l.length; j++) l[j] = j * 7L;
+        Game[] games = new Game[20];
+        for (int j = 0; j < games.length; j++) games[j] = new Game(1280, 720, j);
+
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.write(games.length);
+        buf.write(games);
+        buf.write(l);
+        buf.write(-1);
+
+        Path file = Files.createTempFile("binbuff", ".test");
+        try {
+            Files.write(file, buf.cloneSerialized());
+
+            // a tiny region size makes reads cross from one mapped region to the next.
+            try (FileChannel channel = FileChannel.open(file)) {
+                MappedBuffer mbuf = new MappedBuffer(channel, 0, channel.size(), ByteOrder.BIG_ENDIAN, 61);
+                Game[] ngames = new Game[mbuf.readInt()];
+                long[] nl = new long[l.length];
+                mbuf.read(ngames);
+                mbuf.read(nl);
+
+                int end = mbuf.readInt();
+                assert Arrays.equals(games, ngames);
+                assert Arrays.equals(l, nl);
+                assert end == -1;
+                assert mbuf.getPosition() == mbuf.getSize();
+
+                mbuf.rewind();
+                int length = mbuf.readInt();
+                assert length == games.length;
+                mbuf.setPosition(mbuf.getSize() - 4);
+                end = mbuf.readInt();
+                assert end == -1;
+            }
+
+            try (MappedBuffer mbuf = new MappedBuffer(file)) {
+                int length = mbuf.readInt();
+                assert length == games.length;
+                ArrayList<Game> ngames = new ArrayList<>();
+                mbuf.read(ngames, Game.class, games.length);
+                assert Arrays.asList(games).equals(ngames);
+
+                // a channel that does not accept any bytes stops the transfer instead of spinning.
+                long written = mbuf.writeTo(new WritableByteChannel() {
+                    @Override
+                    public int write(ByteBuffer src) { return 0; }
+
+                    @Override
+                    public boolean isOpen() { return true; }
+
+                    @Override
+                    public void close() { }
+                });
+                assert written == 0;
+            }
+
+            try (FileChannel channel = FileChannel.open(file)) {
+                new MappedBuffer(channel, 0, channel.size(), ByteOrder.BIG_ENDIAN, 0);
+                assert false;
+            } catch (IllegalArgumentException ignored) { }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        Game[] games = new Game[100];
+        for (int j = 0; j < games.length; j++) games[j] = new Game(1280, 720, j);
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC);
+        buf.write(games);
+        byte[] expected = buf.cloneSerialized();
+        DirectBuffer dbuf = new DirectBuffer(buf);
+
+        Path file = Files.createTempFile("binbuff", ".test");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                long written = buf.writeTo(channel);
+                long dwritten = dbuf.writeTo(channel);
+                assert written == expected.length && dwritten == expected.length;
+            }
+            buf.setRead();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long written = buf.writeTo(Channels.newChannel(out));
+            assert written == expected.length;
+            assert Arrays.equals(expected, out.toByteArray());
+
+            try (FileChannel channel = FileChannel.open(file)) {
+                Buffer rbuf = new Buffer(Buffer.TYPE.STATIC, expected.length);
+                int read = rbuf.readFrom(channel, expected.length);
+                assert read == expected.length;
+                DirectBuffer rdbuf = new DirectBuffer(Buffer.TYPE.DYNAMIC);
+                read = rdbuf.readFrom(channel, 2 * expected.length);
+                assert read == expected.length;
+                rbuf.setRead();
+                rdbuf.setRead();
+                Game[] ngames = new Game[games.length];
+                rbuf.read(ngames);
+                assert Arrays.equals(games, ngames);
+                rdbuf.read(ngames);
+                assert Arrays.equals(games, ngames);
+            }
+
+            out.reset();
+            try (MappedBuffer mbuf = new MappedBuffer(file)) {
+                written = mbuf.writeTo(Channels.newChannel(out));
+                assert written == 2 * expected.length;
+            }
+            assert out.size() == 2 * expected.length;
+        } finally {
+            Files.delete(file);
+        }
+
+        // a non blocking channel that is full or has no bytes ready ends the transfer with a partial count.
+        byte[] large = new byte[1 << 20];
+        for (Buffer lbuf : new Buffer[] { new Buffer(Buffer.TYPE.DYNAMIC), new ChunkedBuffer(1 << 12) }) {
+            lbuf.write(large);
+            Pipe pipe = Pipe.open();
+            try (Pipe.SinkChannel sink = pipe.sink(); Pipe.SourceChannel source = pipe.source()) {
+                sink.configureBlocking(false);
+                source.configureBlocking(false);
+                long sent = lbuf.writeTo(sink);
+                assert sent > 0 && sent < large.length;
+                Buffer rbuf = lbuf instanceof ChunkedBuffer ? new ChunkedBuffer(1 << 12) : new Buffer(Buffer.TYPE.DYNAMIC);
+                int received = rbuf.readFrom(source, large.length);
+                assert received == sent;
+                received = rbuf.readFrom(source, large.length);
+                assert received == 0;
+            }
+        }
+    }
+
     @Test
     public void testSerializable() {
         Player player = new Player(1);
@@ -226,4 +638,588 @@ public class SerializationTest {
         assert lhmap.equals(nlhmap);
         assert tmap.equals(ntmap);
     }
+    @Test
+    public void testSizeHints() {
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) players.add(new Player(i));
+        ArrayList<Integer> ints = new ArrayList<>();
+        for (int i = 0; i < 100; i++) ints.add(i);
+        Game[] games = { new Game(1280, 720, 3), new Game(640, 480, 5) };
+
+        // a write that is larger than the storage reserves exactly the space it needs.
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.write(players);
+        assert dbuf.getSerialized().length == 13 * players.size();
+        // smaller writes grow the storage by the growth policy.
+        dbuf.write(ints);
+        dbuf.write(games);
+        int size = 13 * players.size() + 4 * ints.size() + games[0].serializedSize() + games[1].serializedSize();
+        assert dbuf.asByteBuffer().remaining() == size;
+        assert dbuf.getSerialized().length == 2 * 13 * players.size();
+        Buffer lbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        for (Player player : players) lbuf.write(player);
+        assert lbuf.getSerialized().length < 2 * 13 * players.size();
+
+        ISerializer<Player> serializer = new ISerializer<Player>() {
+            @Override
+            public void serialize(Player data, Buffer buffer) { buffer.write(data.playerNum); }
+
+            // a wrong hint only affects how much space is reserved.
+            @Override
+            public int serializedSize(Player data) { return 1; }
+        };
+        Buffer sbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        sbuf.write(serializer, players);
+        sbuf.setRead();
+        for (Player player : players) {
+            int playerNum = sbuf.readInt();
+            assert playerNum == player.playerNum;
+        }
+
+        dbuf.setRead();
+        ArrayList<Player> nplayers = new ArrayList<>();
+        ArrayList<Integer> nints = new ArrayList<>();
+        Game[] ngames = { new Game(), new Game() };
+        dbuf.read(nplayers, Player.class, players.size());
+        dbuf.read(nints, Integer.class, ints.size());
+        dbuf.read(ngames);
+        assert players.equals(nplayers);
+        assert ints.equals(nints);
+        assert Arrays.equals(games, ngames);
+    }
+
+    @Test
+    public void testGrowthPolicy() {
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 10);
+        assert dbuf.getGrowthPolicy() == IGrowthPolicy.DOUBLING;
+        dbuf.setGrowthPolicy(IGrowthPolicy.linear(100));
+        dbuf.write(new byte[11]);
+        assert dbuf.getSerialized().length == 110;
+        dbuf.setGrowthPolicy(IGrowthPolicy.factor(1.5));
+        dbuf.write(new byte[100]);
+        assert dbuf.getSerialized().length == 165;
+
+        dbuf.setMaxCapacity(200);
+        Buffer copy = new Buffer(dbuf);
+        assert copy.getMaxCapacity() == 200 && copy.getGrowthPolicy() == dbuf.getGrowthPolicy();
+        dbuf.write(new byte[60]);
+        assert dbuf.getSerialized().length == 200;
+        try {
+            dbuf.write(new byte[40]);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        // a size hint that is too large fails before anything is allocated or written.
+        ISerializable huge = new ISerializable() {
+            @Override
+            public void serialize(Buffer buffer) { buffer.write(1); }
+
+            @Override
+            public void deserialize(Buffer buffer) { }
+
+            @Override
+            public int serializedSize() { return Integer.MAX_VALUE; }
+        };
+        try {
+            dbuf.write(huge);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+        dbuf.write(new byte[29]);
+        dbuf.setRead();
+        assert dbuf.asByteBuffer().remaining() == 200;
+
+        try {
+            IGrowthPolicy.factor(1);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        try {
+            dbuf.setMaxCapacity(-1);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+    }
+    // a class that does not implement ISerializable, it is written with a registered codec.
+    public static class Point {
+        public int x, y;
+
+        public Point() { }
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point && ((Point) o).x == this.x && ((Point) o).y == this.y;
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(this.x, this.y); }
+    }
+
+    @Test
+    public void testCodecs() {
+        Buffer.registerCodec(Point.class, new ISerializer<Point>() {
+            @Override
+            public void serialize(Point data, Buffer buffer) {
+                buffer.write(data.x);
+                buffer.write(data.y);
+            }
+
+            @Override
+            public int serializedSize(Point data) { return 8; }
+        }, new IDeserializer<Point>() {
+            @Override
+            public void deserialize(Point dest, Buffer buffer) {
+                dest.x = buffer.readInt();
+                dest.y = buffer.readInt();
+            }
+
+            @Override
+            public Class<Point> getTypeClass() { return Point.class; }
+        });
+
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 100; i++) points.add(new Point(i, -i));
+        HashMap<Integer, Point> pmap = new HashMap<>();
+        for (int i = 0; i < 10; i++) pmap.put(i, new Point(i * 2, i * 3));
+        List<Boolean> flags = Arrays.asList(true, false, true);
+        // elements of different classes in a single collection.
+        List<Object> mixed = Arrays.asList(1, (short) 2, new Point(3, 4), new Player(5), 6L);
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.write(points, pmap, flags);
+        assert dbuf.getSerialized().length == 8 * 100 + 12 * 10 + 3;
+        dbuf.write(mixed);
+        try {
+            dbuf.write(new Object());
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+
+        dbuf.setRead();
+        ArrayList<Point> npoints = new ArrayList<>();
+        HashMap<Integer, Point> npmap = new HashMap<>();
+        ArrayList<Boolean> nflags = new ArrayList<>();
+        dbuf.read(npoints, Point.class, points.size());
+        dbuf.read(npmap, Integer.class, Point.class, pmap.size());
+        dbuf.read(nflags, Boolean.class, flags.size());
+        assert points.equals(npoints);
+        assert pmap.equals(npmap);
+        assert flags.equals(nflags);
+
+        Point point = new Point();
+        Player player = new Player();
+        int ni = dbuf.readInt();
+        short ns = dbuf.readShort();
+        dbuf.read(point, player);
+        long nl = dbuf.readLong();
+        assert ni == 1 && ns == 2;
+        assert point.equals(new Point(3, 4)) && player.equals(new Player(5));
+        assert nl == 6L;
+    }
+
+    @Test
+    public void testDeserializers() {
+        IDeserializer<Point> deserializer = new IDeserializer<Point>() {
+            @Override
+            public void deserialize(Point dest, Buffer buffer) {
+                dest.x = buffer.readShort();
+                dest.y = buffer.readShort();
+            }
+
+            @Override
+            public Class<Point> getTypeClass() { return Point.class; }
+        };
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC);
+        for (int i = 0; i < 20; i++) dbuf.write((short) i);
+        dbuf.setRead();
+
+        ArrayList<Point> points = new ArrayList<>();
+        HashMap<Point, Point> pmap = new HashMap<>();
+        dbuf.read(points, deserializer, 5);
+        dbuf.read(pmap, deserializer, deserializer, 2);
+        for (int i = 0; i < 5; i++) assert points.get(i).equals(new Point(2 * i, 2 * i + 1));
+        assert pmap.size() == 2;
+        assert pmap.get(new Point(10, 11)).equals(new Point(12, 13));
+        assert pmap.get(new Point(14, 15)).equals(new Point(16, 17));
+
+        // null elements of an array are created with the empty constructor of the component type.
+        dbuf.rewind();
+        Player[] players = new Player[2];
+        try {
+            dbuf.read(new ISerializable[1]);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        dbuf.rewind();
+        dbuf.read(players);
+        assert players[0] != null && players[1] != null;
+    }
+
+    @Test
+    public void testStrings() {
+        String ascii = "hello BinBuff";
+        String latin = "caf\u00e9 \u00fcber";
+        String mixed = "\u05e9\u05dc\u05d5\u05dd \u4f60\u597d \ud83d\ude00!";
+        String[] strings = {ascii, latin, mixed, "", null};
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.writeString(strings);
+        int size = 0;
+        for (String s : strings) size += Buffer.stringSize(s);
+        assert dbuf.asByteBuffer().remaining() == size;
+        // ascii takes a byte per char and the length takes a single byte.
+        assert Buffer.stringSize(ascii) == ascii.length() + 1;
+        assert Buffer.stringSize(mixed) == 1 + mixed.getBytes(StandardCharsets.UTF_8).length;
+        // unpaired surrogates are written as '?'.
+        dbuf.writeString("a\ud83db");
+        dbuf.write(Arrays.asList(ascii, mixed));
+
+        dbuf.setRead();
+        for (String s : strings) {
+            String read = dbuf.readString();
+            assert Objects.equals(read, s);
+        }
+        String replaced = dbuf.readString();
+        assert replaced.equals("a?b");
+        ArrayList<String> list = new ArrayList<>();
+        dbuf.read(list, String.class, 2);
+        assert list.equals(Arrays.asList(ascii, mixed));
+
+        dbuf.rewind();
+        char[] chars = new char[32];
+        StringBuilder builder = new StringBuilder("> ");
+        for (String s : strings) {
+            int read = dbuf.readString(chars);
+            assert s == null ? read == -1 : new String(chars, 0, read).equals(s);
+        }
+        dbuf.rewind();
+        for (String s : strings) {
+            int read = dbuf.readString(builder);
+            assert read == (s == null ? -1 : s.length());
+        }
+        assert builder.toString().equals("> " + ascii + latin + mixed);
+        dbuf.rewind();
+        // a string that does not fit in the array is skipped.
+        try {
+            dbuf.readString(new char[ascii.length() - 1]);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        String next = dbuf.readString();
+        assert next.equals(latin);
+
+        // strings written in other buffer types.
+        DirectBuffer direct = new DirectBuffer(Buffer.TYPE.DYNAMIC, 4);
+        direct.writeString(strings);
+        direct.setRead();
+        for (String s : strings) {
+            String read = direct.readString();
+            assert Objects.equals(read, s);
+        }
+
+        // every overload rejects malformed UTF-8, including overlong sequences, but not a replacement char that was written.
+        for (byte[] bytes : new byte[][] { {3, (byte) 0xC3, 'a'}, {3, (byte) 0xC0, (byte) 0x80} }) {
+            Buffer malformed = new Buffer(bytes);
+            try {
+                malformed.readString();
+                assert false;
+            } catch (IllegalStateException ignored) { }
+            malformed.rewind();
+            try {
+                malformed.readString(chars);
+                assert false;
+            } catch (IllegalStateException ignored) { }
+            malformed.rewind();
+            try {
+                malformed.readString(builder);
+                assert false;
+            } catch (IllegalStateException ignored) { }
+        }
+        Buffer replacement = new Buffer(Buffer.TYPE.DYNAMIC);
+        replacement.writeString("a\uFFFDb");
+        replacement.setRead();
+        String read = replacement.readString();
+        assert read.equals("a\uFFFDb");
+    }
+
+    @Test
+    public void testDictionary() {
+        String[] regions = {"north", "south", "\u05de\u05e8\u05db\u05d6", "east", "west"};
+        Buffer plain = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.setDictionarySize(4);
+        for (int i = 0; i < 100; i++) {
+            plain.writeString(regions[i % regions.length]);
+            dbuf.writeString(regions[i % regions.length]);
+        }
+        dbuf.writeString((String) null);
+        dbuf.write(Arrays.asList("north", "west"));
+        // every string is written in full once, "west" does not fit in the dictionary and is always written in full.
+        int full = 0;
+        for (String region : regions) full += Buffer.stringSize(region);
+        assert dbuf.asByteBuffer().remaining() == full + 4 * 19 + 19 * Buffer.stringSize("west") + 1 + 1 + Buffer.stringSize("west");
+        assert dbuf.asByteBuffer().remaining() < plain.asByteBuffer().remaining() / 2;
+        try {
+            dbuf.setDictionarySize(-1);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+
+        dbuf.setRead();
+        String[] read = new String[100];
+        for (int i = 0; i < 100; i++) {
+            read[i] = dbuf.readString();
+            assert read[i].equals(regions[i % regions.length]);
+        }
+        // repeated strings are read as the same instance.
+        assert read[0] == read[5] && read[2] == read[97];
+        String none = dbuf.readString();
+        assert none == null;
+        ArrayList<String> list = new ArrayList<>();
+        dbuf.read(list, String.class, 2);
+        assert list.get(0) == read[0] && list.get(1).equals("west");
+
+        // the dictionary starts over when the buffer is read again.
+        dbuf.rewind();
+        char[] chars = new char[16];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            String region = regions[i % regions.length];
+            if (i % 2 == 0) {
+                int length = dbuf.readString(chars);
+                assert new String(chars, 0, length).equals(region);
+            }
+            else {
+                int length = dbuf.readString(builder);
+                assert length == region.length();
+            }
+        }
+
+        // the dictionary of a copy continues from the dictionary of the original.
+        dbuf.clear();
+        dbuf.writeString("north");
+        Buffer copy = new Buffer(dbuf);
+        copy.writeString("north");
+        copy.setRead();
+        String original = copy.readString();
+        String copied = copy.readString();
+        assert original == copied;
+
+        // a string that does not fit in the array is skipped but still added to the dictionary.
+        dbuf.clear();
+        dbuf.writeString("a string longer than the array");
+        dbuf.writeString("a string longer than the array");
+        dbuf.setRead();
+        try {
+            dbuf.readString(new char[4]);
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        String skipped = dbuf.readString();
+        assert skipped.equals("a string longer than the array");
+
+        // strings appended after setWrite may refer to the strings written before, reading again after a rewind
+        // finds the same strings.
+        for (Buffer abuf : new Buffer[] { new Buffer(Buffer.TYPE.DYNAMIC), new ChunkedBuffer(16), new CompressedBuffer(new LZCompressor()) }) {
+            abuf.setDictionarySize(16);
+            abuf.writeString("alpha");
+            abuf.writeString("alpha");
+            abuf.setRead();
+            abuf.setWrite(Buffer.TYPE.DYNAMIC);
+            abuf.writeString("beta");
+            abuf.writeString("beta");
+            abuf.setRead();
+            for (int pass = 0; pass < 2; pass++) {
+                String[] appended = new String[4];
+                for (int i = 0; i < appended.length; i++) appended[i] = abuf.readString();
+                assert Arrays.equals(appended, new String[] { "alpha", "alpha", "beta", "beta" });
+                abuf.rewind();
+            }
+        }
+
+        // a reference to a string that is not in the dictionary.
+        dbuf.clear();
+        dbuf.write((byte) 3);
+        dbuf.setRead();
+        try {
+            dbuf.readString(chars);
+            assert false;
+        } catch (IllegalStateException ignored) { }
+    }
+
+    @Test
+    public void testFramed() {
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < 200; i++) players.add(new Player(i));
+        HashMap<Integer, String> names = new HashMap<>();
+        for (int i = 0; i < 1000; i++) names.put(i, "player " + i);
+        ISerializer<Player> serializer = (data, buffer) -> data.serialize(buffer);
+        IDeserializer<Player> deserializer = new IDeserializer<Player>() {
+            @Override
+            public void deserialize(Player dest, Buffer buffer) { dest.deserialize(buffer); }
+
+            @Override
+            public Class<Player> getTypeClass() { return Player.class; }
+        };
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.writeList(players);
+        // the size plus one is written first, as a variable length int.
+        assert dbuf.asByteBuffer().remaining() == 2 + 200 * 13;
+        dbuf.writeMap(names);
+        dbuf.writeList(new ArrayList<Integer>());
+        dbuf.writeList(null);
+        dbuf.writeMap(null);
+        dbuf.writeList(serializer, players);
+        dbuf.writeMap(serializer, serializer, Collections.singletonMap(new Player(1), new Player(2)));
+        dbuf.write(7);
+
+        dbuf.setRead();
+        ArrayList<Player> nplayers = dbuf.readList(Player.class);
+        HashMap<Integer, String> nnames = dbuf.readMap(Integer.class, String.class);
+        ArrayList<Integer> empty = dbuf.readList(Integer.class);
+        ArrayList<Integer> nullList = dbuf.readList(Integer.class);
+        HashMap<Integer, Integer> nullMap = dbuf.readMap(Integer.class, Integer.class);
+        ArrayList<Player> deserialized = dbuf.readList(deserializer);
+        HashMap<Player, Player> pmap = dbuf.readMap(deserializer, deserializer);
+        int last = dbuf.readInt();
+        assert nplayers.equals(players) && nnames.equals(names);
+        assert empty.isEmpty() && nullList == null && nullMap == null;
+        assert deserialized.equals(players);
+        assert pmap.size() == 1 && pmap.get(new Player(1)).equals(new Player(2));
+        assert last == 7;
+
+        // a corrupt size runs out of elements instead of allocating room for all of them up front.
+        dbuf.clear();
+        dbuf.writeVarInt(Integer.MAX_VALUE);
+        dbuf.write(1);
+        dbuf.writeVarInt(Integer.MAX_VALUE);
+        dbuf.write(2);
+        dbuf.setRead();
+        try {
+            dbuf.readList(Integer.class);
+            assert false;
+        } catch (BufferUnderflowException ignored) { }
+        dbuf.rewind();
+        dbuf.readVarInt();
+        dbuf.readInt();
+        try {
+            dbuf.readMap(Integer.class, Integer.class);
+            assert false;
+        } catch (BufferUnderflowException ignored) { }
+    }
+
+    // plain classes that are written field by field without a serializer.
+    public static class Position {
+        public int x, y;
+    }
+
+    public static class Entity {
+        protected long id;
+    }
+
+    public static class Account extends Entity {
+        private static int created = 0;
+        private float balance;
+        private short[] history;
+        private Position position = new Position();
+        private transient int cached;
+    }
+
+    public static class Immutable {
+        private final int value = 0;
+    }
+
+    public static class WithList {
+        private List<Integer> values = new ArrayList<>();
+    }
+
+    public abstract static class Shape {
+        public int sides = 4;
+    }
+
+    public static class Square extends Shape { }
+
+    // the field before the unsupported one would be written if the class was not rejected up front.
+    public static class WithEnum {
+        private int id = 1;
+        private Buffer.TYPE type = Buffer.TYPE.DYNAMIC;
+    }
+
+    public static class WithInterface {
+        private int id = 2;
+        private ICompressor compressor = new LZCompressor();
+    }
+
+    public static class WithAbstract {
+        private int id = 3;
+        private Shape shape = new Square();
+    }
+
+    @Test
+    public void testObjects() {
+        Account account = new Account();
+        account.id = 5L;
+        account.balance = 12.5f;
+        account.history = new short[] {1, 2, 3};
+        account.position.x = 7;
+        account.position.y = -7;
+        account.cached = 42;
+        Account empty = new Account();
+        ArrayList<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Position position = new Position();
+            position.x = i;
+            position.y = i * i;
+            positions.add(position);
+        }
+
+        Buffer dbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        dbuf.write(account);
+        // superclass fields first, the static and transient fields are not written.
+        assert dbuf.asByteBuffer().remaining() == 8 + 4 + (4 + 2 * 3) + 8;
+        dbuf.write(empty);
+        dbuf.write(positions);
+        assert dbuf.asByteBuffer().remaining() == 2 * 30 - 6 + 8 * 10;
+        try {
+            dbuf.write(new Immutable());
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        try {
+            dbuf.write(new WithList());
+            assert false;
+        } catch (IllegalArgumentException ignored) { }
+        for (Object unsupported : new Object[] { new WithEnum(), new WithInterface(), new WithAbstract() }) {
+            try {
+                dbuf.write(unsupported);
+                assert false;
+            } catch (IllegalArgumentException ignored) { }
+        }
+        assert dbuf.asByteBuffer().remaining() == 2 * 30 - 6 + 8 * 10;
+
+        dbuf.setRead();
+        ByteBuffer wire = dbuf.asByteBuffer();
+        assert wire.getLong() == 5L && wire.getFloat() == 12.5f && wire.getInt() == 3;
+
+        Account read = new Account();
+        dbuf.read(read);
+        assert read.id == 5L && read.balance == 12.5f && Arrays.equals(read.history, account.history);
+        assert read.position.x == 7 && read.position.y == -7 && read.cached == 0;
+        // null arrays are written with a length of -1.
+        Account readEmpty = new Account();
+        readEmpty.history = new short[5];
+        dbuf.read(readEmpty);
+        assert readEmpty.history == null && readEmpty.position.x == 0;
+        ArrayList<Position> npositions = new ArrayList<>();
+        dbuf.read(npositions, Position.class, positions.size());
+        for (int i = 0; i < positions.size(); i++)
+            assert npositions.get(i).x == i && npositions.get(i).y == i * i;
+
+        // an array length larger than the rest of the data is rejected before the array is allocated.
+        Buffer sbuf = new Buffer(Buffer.TYPE.DYNAMIC, 0);
+        sbuf.write(account);
+        byte[] corrupt = sbuf.cloneSerialized();
+        corrupt[12] = 0x10;
+        try {
+            new Buffer(corrupt).read(new Account());
+            assert false;
+        } catch (IllegalStateException ignored) { }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+import com.binbuff.Buffer;
+import com.binbuff.InputStreamBuffer;
+import com.binbuff.OutputStreamBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class StreamBufferTest {
+
+    // a stream that returns only a few bytes from every read, like a socket might.
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] data) { super(data); }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+
+    @Test
+    public void testStreams() throws IOException {
+        long[] longs = new long[1000];
+        for (int i = 0; i < longs.length; i++) longs[i] = i * 1000L;
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < 100; i++) players.add(new Player(i));
+
+        Buffer buf = new Buffer(Buffer.TYPE.DYNAMIC, ByteOrder.LITTLE_ENDIAN);
+        buf.write(players.size());
+        buf.write(players);
+        buf.write(longs);
+        buf.writeVarLong(-1L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStreamBuffer obuf = new OutputStreamBuffer(out, 64, ByteOrder.LITTLE_ENDIAN)) {
+            obuf.write(players.size());
+            obuf.write(players);
+            assert out.size() > 0;
+            obuf.write(longs);
+            obuf.writeVarLong(-1L);
+            assert obuf.getBytesWritten() == buf.cloneSerialized().length;
+        }
+        assert Arrays.equals(buf.cloneSerialized(), out.toByteArray());
+
+        InputStream in = new TrickleInputStream(out.toByteArray());
+        try (InputStreamBuffer ibuf = new InputStreamBuffer(in, 64, ByteOrder.LITTLE_ENDIAN)) {
+            ArrayList<Player> nplayers = new ArrayList<>();
+            long[] nlongs = new long[longs.length];
+            ibuf.read(nplayers, Player.class, ibuf.readInt());
+            long first = ibuf.readLong();
+            assert first == longs[0];
+            ibuf.seekByte(-8);
+            ibuf.read(nlongs);
+            long last = ibuf.readVarLong();
+            assert last == -1L;
+            assert ibuf.getPosition() == out.size();
+            ibuf.seekByte(-1);
+            ibuf.nextByte();
+            assert players.equals(nplayers);
+            assert Arrays.equals(longs, nlongs);
+            try {
+                ibuf.readByte();
+                assert false;
+            } catch (BufferUnderflowException ignored) { }
+            try {
+                ibuf.seekByte(1);
+                assert false;
+            } catch (BufferOverflowException ignored) { }
+        }
+    }
+}